@@ -1,8 +1,11 @@
+import groovy.json.JsonSlurper
+
 plugins {
     java
     jacoco
     id("org.springframework.boot") version "3.4.2"
     id("io.spring.dependency-management") version "1.1.7"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "id.ac.ui.cs.advprog"
@@ -28,6 +31,8 @@ val seleniumJavaVersion = "4.14.1"
 val seleniumJupiterVersion = "5.0.1"
 val webdrivermanagerVersion = "5.6.3"
 val junitJupiterVersion = "5.9.1"
+val jmhCoreVersion = "1.37"
+val hdrHistogramVersion = "2.2.2"
 
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter-thymeleaf")
@@ -35,6 +40,7 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-validation")
     implementation("org.springframework.boot:spring-boot-starter-actuator")
     compileOnly("org.projectlombok:lombok")
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
     developmentOnly("org.springframework.boot:spring-boot-devtools")
     annotationProcessor("org.springframework.boot:spring-boot-configuration-processor")
     annotationProcessor("org.projectlombok:lombok")
@@ -44,6 +50,8 @@ dependencies {
     testImplementation("io.github.bonigarcia:selenium-jupiter:$seleniumJupiterVersion")
     testImplementation("io.github.bonigarcia:webdrivermanager:$webdrivermanagerVersion")
     testImplementation("org.junit.jupiter:junit-jupiter:$junitJupiterVersion")
+    testImplementation("org.hdrhistogram:HdrHistogram:$hdrHistogramVersion")
+    jmh("org.springframework.boot:spring-boot-starter-test")
 }
 
 tasks.register<Test>("unitTest") {
@@ -52,6 +60,7 @@ tasks.register<Test>("unitTest") {
 
     filter {
         excludeTestsMatching("*FunctionalTest")
+        excludeTestsMatching("*LoadTest")
     }
 }
 
@@ -64,6 +73,44 @@ tasks.register<Test>("functionalTest") {
     }
 }
 
+tasks.register<Test>("loadTest") {
+    description = "Runs HTTP load tests against an embedded server and reports latency percentiles."
+    group = "verification"
+
+    filter {
+        includeTestsMatching("*LoadTest")
+    }
+
+    // e.g. -PloadTest.concurrency=64 -PloadTest.rate=2000 -PloadTest.readRatio=0.9
+    listOf("concurrency", "warmupSeconds", "durationSeconds", "readRatio", "rate", "catalogSize", "maxP99Millis")
+        .forEach { name ->
+            providers.gradleProperty("loadTest.$name").orNull?.let { systemProperty("loadTest.$name", it) }
+        }
+    // -PloadTest.virtualThreads=true serves requests on virtual threads and traces any carrier pinning
+    val virtualThreads = providers.gradleProperty("loadTest.virtualThreads").orNull.toBoolean()
+    systemProperty("spring.threads.virtual.enabled", virtualThreads)
+    if (virtualThreads) {
+        jvmArgs("-Djdk.tracePinnedThreads=short")
+    }
+    // -PloadTest.syncOnCommit=true makes every write wait for an fsync, so request threads block on storage
+    if (providers.gradleProperty("loadTest.syncOnCommit").orNull.toBoolean()) {
+        systemProperty("eshop.storage.persistence.enabled", true)
+        systemProperty("eshop.storage.persistence.sync-on-commit", true)
+        val dataDirectory = temporaryDir.resolve("data")
+        systemProperty("eshop.storage.directory", dataDirectory.path)
+        doFirst { delete(dataDirectory) }
+    }
+    // -PloadTest.writePipeline=true applies form creates and edits in batches on a single writer thread
+    val writePipeline = providers.gradleProperty("loadTest.writePipeline").orNull.toBoolean()
+    systemProperty("eshop.write-pipeline.enabled", writePipeline)
+    val threadMode = if (virtualThreads) "virtual-threads" else "platform-threads"
+    val writeMode = if (writePipeline) "-write-pipeline" else ""
+    systemProperty("loadTest.reportDir",
+        layout.buildDirectory.dir("reports/load-test/$threadMode$writeMode").get().asFile.path)
+    testLogging.showStandardStreams = true
+    outputs.upToDateWhen { false }
+}
+
 tasks.withType<Test>().configureEach {
     useJUnitPlatform()
 }
@@ -71,6 +118,7 @@ tasks.withType<Test>().configureEach {
 tasks.test {
     filter {
         excludeTestsMatching("*FunctionalTest")
+        excludeTestsMatching("*LoadTest")
     }
 
     finalizedBy(tasks.jacocoTestReport)
@@ -79,3 +127,60 @@ tasks.test {
 tasks.jacocoTestReport {
     dependsOn(tasks.test)
 }
+
+jmh {
+    jmhVersion = jmhCoreVersion
+    // Narrow a run with -PjmhIncludes=<regex>, e.g. -PjmhIncludes=ProductRepositoryBenchmark.findById
+    includes = providers.gradleProperty("jmhIncludes").map { listOf(it) }.orElse(listOf())
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    jvmArgs = listOf("-Xms4g", "-Xmx4g")
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+}
+
+tasks.register("jmhCompare") {
+    description = "Compares JMH results with a baseline run given by -PjmhBaseline=<results.json>."
+    group = "benchmark"
+
+    val baselineFile = providers.gradleProperty("jmhBaseline").map { file(it) }
+    val resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+    val threshold = providers.gradleProperty("jmhRegressionThreshold").map { it.toDouble() }.orElse(0.10)
+
+    doLast {
+        // Key each run by benchmark and parameters; the score is normalized so that higher is better
+        fun scores(json: File): Map<String, Pair<Double, String>> {
+            @Suppress("UNCHECKED_CAST")
+            val runs = JsonSlurper().parse(json) as List<Map<String, Any?>>
+            return runs.associate { run ->
+                @Suppress("UNCHECKED_CAST")
+                val params = (run["params"] as Map<String, Any?>?).orEmpty().toSortedMap()
+                @Suppress("UNCHECKED_CAST")
+                val metric = run["primaryMetric"] as Map<String, Any?>
+                val score = (metric["score"] as Number).toDouble()
+                val higherIsBetter = run["mode"] == "thrpt"
+                val key = run["benchmark"].toString() +
+                        (if (params.isEmpty()) "" else params.entries.joinToString(",", "(", ")"))
+                key to Pair(if (higherIsBetter) score else -score, metric["scoreUnit"].toString())
+            }
+        }
+
+        val baseline = scores(baselineFile.orNull ?: throw GradleException("Pass the baseline with -PjmhBaseline=<results.json>"))
+        val current = scores(resultsFile.get().asFile)
+        val regressions = mutableListOf<String>()
+        for ((key, now) in current.toSortedMap()) {
+            val before = baseline[key] ?: continue
+            val change = (now.first - before.first) / Math.abs(before.first)
+            val line = "%-100s %12.3f -> %12.3f %-8s %+7.1f%%".format(
+                key, Math.abs(before.first), Math.abs(now.first), now.second, change * 100)
+            println(line)
+            if (change < -threshold.get()) {
+                regressions.add(line)
+            }
+        }
+        if (regressions.isNotEmpty()) {
+            throw GradleException("Benchmarks regressed beyond ${threshold.get() * 100}%:\n" + regressions.joinToString("\n"))
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import id.ac.ui.cs.advprog.eshop.EshopApplication;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Full MVC cost of the product list pages: dispatch, controller, service,
+ * repository and Thymeleaf rendering. The rendered-page cache filter is not
+ * part of the MockMvc chain, so every invocation renders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProductListPageBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    ConfigurableApplicationContext context;
+
+    MockMvc mockMvc;
+
+    String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(EshopApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .properties("server.port=0", "eshop.storage.persistence.enabled=false")
+                .run();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+
+        ProductService productService = context.getBean(ProductService.class);
+        ids = new String[size];
+        List<Product> batch = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            ids[i] = String.format("%08d-0000-0000-0000-000000000000", i);
+            Product product = new Product();
+            product.setProductId(ids[i]);
+            product.setProductName("Product " + i);
+            product.setProductQuantity(i % 100 + 1);
+            batch.add(product);
+            if (batch.size() == 10_000 || i == size - 1) {
+                productService.createAll(batch);
+                batch = new ArrayList<>();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String firstPage() throws Exception {
+        return mockMvc.perform(get("/product/list")).andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String pageByNumber() throws Exception {
+        int page = ThreadLocalRandom.current().nextInt(size / 20);
+        return mockMvc.perform(get("/product/list").param("page", Integer.toString(page)))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String pageAfterCursor() throws Exception {
+        String after = ids[ThreadLocalRandom.current().nextInt(size - 20)];
+        return mockMvc.perform(get("/product/list").param("after", after))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String editPage() throws Exception {
+        String id = ids[ThreadLocalRandom.current().nextInt(size)];
+        return mockMvc.perform(get("/product/edit/" + id)).andReturn().getResponse().getContentAsString();
+    }
+}
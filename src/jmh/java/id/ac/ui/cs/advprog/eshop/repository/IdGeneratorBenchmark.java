@@ -0,0 +1,49 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ID generation on the create path: {@link UUID#randomUUID()}, which every
+ * thread draws from one {@code SecureRandom}, against the per-thread
+ * {@link TimeOrderedIdGenerator}, each on one thread and on all cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IdGeneratorBenchmark {
+
+    private final IdGenerator timeOrdered = IdStrategy.TIME_ORDERED.create();
+
+    @Benchmark
+    @Threads(1)
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String randomUuidContended() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String timeOrdered() {
+        return timeOrdered.nextId();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String timeOrderedContended() {
+        return timeOrdered.nextId();
+    }
+}
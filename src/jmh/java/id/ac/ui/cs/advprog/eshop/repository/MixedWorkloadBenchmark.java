@@ -0,0 +1,92 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent readers and writers on one catalog: six threads reading for
+ * every two writing, as a storefront sees it. JMH reports each group's
+ * throughput, so a change that speeds up writes by stalling readers shows.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MixedWorkloadBenchmark {
+
+    @Param({"100000"})
+    int size;
+
+    @Param({"HEAP", "COMPACT", "OFF_HEAP", "OFF_HEAP_COLUMNS"})
+    StorageEngine engine;
+
+    ProductRepository repository;
+
+    String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StorageProperties properties = new StorageProperties();
+        properties.setSegmentSize(16 << 20);
+        repository = new ProductRepository(engine.open("product", ProductCodec.INSTANCE, properties));
+        ids = ProductRepositoryBenchmark.populate(repository, size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.close();
+    }
+
+    private String randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(4)
+    public Product findById() {
+        return repository.findById(randomId());
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(2)
+    public List<Product> findPage() {
+        return repository.findPage(ThreadLocalRandom.current().nextInt(size - 20), 20);
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public Product update() {
+        String id = randomId();
+        return repository.update(id, ProductRepositoryBenchmark.newProduct(id, ThreadLocalRandom.current().nextInt(1, 100)));
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public Product adjustQuantity() {
+        String id = randomId();
+        try {
+            return repository.adjustQuantity(id, ThreadLocalRandom.current().nextBoolean() ? 1 : -1);
+        } catch (IllegalStateException e) {
+            // Sold out; the random walk will bring it back up
+            return null;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-threaded cost of each repository operation against catalogs of
+ * different sizes and storage engines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProductRepositoryBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"HEAP", "COMPACT", "OFF_HEAP", "OFF_HEAP_COLUMNS"})
+    StorageEngine engine;
+
+    ProductRepository repository;
+
+    String[] ids;
+
+    private final AtomicLong created = new AtomicLong();
+
+    static Product newProduct(String id, int quantity) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName("Product " + id);
+        product.setProductQuantity(quantity);
+        return product;
+    }
+
+    /**
+     * Fill a repository with {@code size} products in batches, returning their IDs
+     */
+    static String[] populate(ProductRepository repository, int size) {
+        String[] ids = new String[size];
+        List<Product> batch = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            ids[i] = String.format("%08d-0000-0000-0000-000000000000", i);
+            batch.add(newProduct(ids[i], i % 100 + 1));
+            if (batch.size() == 10_000 || i == size - 1) {
+                repository.createAll(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        return ids;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StorageProperties properties = new StorageProperties();
+        properties.setSegmentSize(16 << 20);
+        repository = new ProductRepository(engine.open("product", ProductCodec.INSTANCE, properties));
+        ids = populate(repository, size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.close();
+    }
+
+    private String randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    @Benchmark
+    public Product findById() {
+        return repository.findById(randomId());
+    }
+
+    @Benchmark
+    public Product update() {
+        String id = randomId();
+        return repository.update(id, newProduct(id, ThreadLocalRandom.current().nextInt(1, 100)));
+    }
+
+    /**
+     * Create and delete as a pair, so the catalog keeps its size across iterations
+     */
+    @Benchmark
+    public void createAndDelete() {
+        String id = "bench-" + created.incrementAndGet();
+        repository.create(newProduct(id, 1));
+        repository.deleteById(id);
+    }
+
+    @Benchmark
+    public List<Product> findPage() {
+        return repository.findPage(ThreadLocalRandom.current().nextInt(Math.max(1, size - 20)), 20);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void findAll(Blackhole blackhole) {
+        Iterator<Product> products = repository.findAll();
+        while (products.hasNext()) {
+            blackhole.consume(products.next());
+        }
+    }
+}
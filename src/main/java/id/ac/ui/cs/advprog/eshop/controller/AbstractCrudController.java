@@ -1,12 +1,23 @@
 package id.ac.ui.cs.advprog.eshop.controller;
 
+import id.ac.ui.cs.advprog.eshop.service.WritePipeline;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import jakarta.validation.Valid;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Abstract base controller that provides common CRUD operations
@@ -17,8 +28,30 @@ import java.util.List;
  */
 public abstract class AbstractCrudController<T, S> {
 
+    /**
+     * Number of entities shown on a list page when the client does not ask for a size
+     */
+    protected static final int DEFAULT_PAGE_SIZE = 20;
+
+    /**
+     * Largest page size a client may request, so one request cannot render the whole catalog
+     */
+    protected static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Largest number of entities accepted by one batch request; bigger syncs are split by the client
+     */
+    protected static final int MAX_BATCH_SIZE = 10_000;
+
+    /**
+     * Prefix of every ETag. It changes on each start, because repository versions restart from zero.
+     */
+    private static final String ETAG_EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
     protected final S service;
 
+    private WritePipeline<T> writePipeline;
+
     /**
      * Constructor-based dependency injection
      */
@@ -26,6 +59,14 @@ public abstract class AbstractCrudController<T, S> {
         this.service = service;
     }
 
+    /**
+     * Apply form creates and edits through a single-writer pipeline instead of on the request thread
+     */
+    @Autowired(required = false)
+    public void setWritePipeline(WritePipeline<T> writePipeline) {
+        this.writePipeline = writePipeline;
+    }
+
     /**
      * Get the full create path (e.g., "/product/create", "/car/createCar")
      */
@@ -97,9 +138,19 @@ public abstract class AbstractCrudController<T, S> {
     protected abstract T createEntity(T entity);
 
     /**
-     * Find all entities using the service
+     * Iterate lazily over all entities using the service
      */
-    protected abstract List<T> findAllEntities();
+    protected abstract Iterator<T> iterateAllEntities();
+
+    /**
+     * Find one page of entities using the service
+     */
+    protected abstract List<T> findEntityPage(int page, int size);
+
+    /**
+     * Find the entities following the one with the given ID using the service
+     */
+    protected abstract List<T> findEntitiesAfter(String id, int size);
 
     /**
      * Find entity by ID using the service
@@ -121,6 +172,31 @@ public abstract class AbstractCrudController<T, S> {
      */
     protected abstract String getEntityId(T entity);
 
+    /**
+     * Get the modification version of all entities using the service
+     */
+    protected abstract long getCollectionVersion();
+
+    /**
+     * Get the modification version of one entity using the service, or -1 when it does not exist
+     */
+    protected abstract long getEntityVersion(String id);
+
+    /**
+     * Create several entities in one pass using the service
+     */
+    protected abstract List<T> createEntities(List<T> entities);
+
+    /**
+     * Update several entities in one pass using the service
+     */
+    protected abstract List<T> updateEntities(List<T> entities);
+
+    /**
+     * Delete several entities by ID using the service, returning how many existed
+     */
+    protected abstract int deleteEntitiesById(List<String> ids);
+
     /**
      * Display the create entity form
      */
@@ -139,23 +215,86 @@ public abstract class AbstractCrudController<T, S> {
         if (bindingResult.hasErrors()) {
             return getCreateViewName();
         }
-        createEntity(entity);
+        if (writePipeline != null) {
+            awaitCommit(writePipeline.create(entity));
+        } else {
+            createEntity(entity);
+        }
         return getCreateRedirectUrl();
     }
 
     /**
-     * Display the list of entities
+     * Display one page of entities, either by page number or after a keyset cursor.
+     * Answers 304 without reading any entity when the collection has not changed
+     * since the client's copy.
+     */
+    public String listPage(int page, int size, String after, Model model, WebRequest request) {
+        // Read the version before the data, so a tag is never newer than the page it describes
+        if (request.checkNotModified(etag(getCollectionVersion()))) {
+            return null;
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        boolean keyset = after != null && !after.isEmpty();
+
+        List<T> entities = keyset
+                ? findEntitiesAfter(after, pageSize)
+                : findEntityPage(pageNumber, pageSize);
+        model.addAttribute(getEntitiesAttributeName(), entities);
+        model.addAttribute("page", pageNumber);
+        model.addAttribute("size", pageSize);
+        model.addAttribute("previousPageUrl", previousPageUrl(keyset, pageNumber, pageSize));
+        model.addAttribute("nextPageUrl", nextPageUrl(keyset, entities, pageNumber, pageSize));
+        return getListViewName();
+    }
+
+    /**
+     * Display every entity. Rows are pulled from a lazy iterator while the
+     * template renders, and Thymeleaf flushes the response as its buffer fills,
+     * so neither the full list nor the full page is held in memory.
      */
-    public String listPage(Model model) {
-        List<T> allEntities = findAllEntities();
-        model.addAttribute(getEntitiesAttributeName(), allEntities);
+    public String listAllPage(Model model, WebRequest request) {
+        if (request.checkNotModified(etag(getCollectionVersion()))) {
+            return null;
+        }
+        model.addAttribute(getEntitiesAttributeName(), iterateAllEntities());
         return getListViewName();
     }
 
+    private String previousPageUrl(boolean keyset, int page, int size) {
+        if (keyset) {
+            return pageUrl(size).toUriString();
+        }
+        return page > 0 ? pageUrl(size).queryParam("page", page - 1).toUriString() : null;
+    }
+
+    private String nextPageUrl(boolean keyset, List<T> entities, int page, int size) {
+        if (entities.size() < size) {
+            return null;
+        }
+        if (keyset) {
+            String lastId = getEntityId(entities.get(entities.size() - 1));
+            return pageUrl(size).queryParam("after", lastId).toUriString();
+        }
+        return pageUrl(size).queryParam("page", page + 1).toUriString();
+    }
+
+    private static String etag(long version) {
+        return "\"" + ETAG_EPOCH + "-" + version + "\"";
+    }
+
+    private UriComponentsBuilder pageUrl(int size) {
+        return UriComponentsBuilder.fromPath(getListPath()).queryParam("size", size);
+    }
+
     /**
-     * Display the edit entity form
+     * Display the edit entity form, or answer 304 when the entity has not changed
      */
-    public String editPage(@PathVariable String id, Model model) {
+    public String editPage(@PathVariable String id, Model model, WebRequest request) {
+        long version = getEntityVersion(id);
+        if (version >= 0 && request.checkNotModified(etag(version))) {
+            return null;
+        }
         T entity = findEntityById(id);
         if (entity == null) {
             return getEditRedirectUrl();
@@ -172,10 +311,33 @@ public abstract class AbstractCrudController<T, S> {
         if (bindingResult.hasErrors()) {
             return getEditViewName();
         }
-        updateEntity(entity);
+        if (writePipeline != null) {
+            awaitCommit(writePipeline.update(entity));
+        } else {
+            updateEntity(entity);
+        }
         return getEditRedirectUrl();
     }
 
+    /**
+     * Wait for a pipelined write to commit, failing the request the way a direct write would.
+     * The pipeline's futures time out, so a stuck writer answers 503 rather than hanging the request.
+     */
+    private static void awaitCommit(CompletableFuture<?> write) {
+        try {
+            write.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "The write was not committed in time", e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
     /**
      * Delete an entity
      */
@@ -183,4 +345,43 @@ public abstract class AbstractCrudController<T, S> {
         deleteEntityById(id);
         return getDeleteRedirectUrl();
     }
-}
\ No newline at end of file
+
+    /**
+     * Create a batch of entities from a JSON payload
+     */
+    public List<T> createBatch(List<T> entities) {
+        checkBatchSize(entities);
+        try {
+            return createEntities(entities);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Update a batch of entities from a JSON payload; entities that do not exist are skipped
+     */
+    public List<T> updateBatch(List<T> entities) {
+        checkBatchSize(entities);
+        try {
+            return updateEntities(entities);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Delete a batch of entities by ID
+     */
+    public Map<String, Integer> deleteBatch(List<String> ids) {
+        checkBatchSize(ids);
+        return Map.of("deleted", deleteEntitiesById(ids));
+    }
+
+    private void checkBatchSize(List<?> batch) {
+        if (batch.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "A batch may contain at most " + MAX_BATCH_SIZE + " entries");
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Abstract base controller for the JSON API. It follows the same CRUD flow
+ * as {@link AbstractCrudController} but answers with entities instead of
+ * views, so machine clients never go through Thymeleaf.
+ *
+ * @param <T> The entity type this controller manages
+ * @param <S> The service type used to manage the entity
+ */
+public abstract class AbstractCrudRestController<T, S> {
+
+    protected final S service;
+
+    /**
+     * Constructor-based dependency injection
+     */
+    protected AbstractCrudRestController(S service) {
+        this.service = service;
+    }
+
+    /**
+     * Get the collection path of the API (e.g., "/api/products")
+     */
+    protected abstract String getApiPath();
+
+    /**
+     * Create an entity using the service
+     */
+    protected abstract T createEntity(T entity);
+
+    /**
+     * Find one page of entities using the service
+     */
+    protected abstract List<T> findEntityPage(int page, int size);
+
+    /**
+     * Find the entities following the one with the given ID using the service
+     */
+    protected abstract List<T> findEntitiesAfter(String id, int size);
+
+    /**
+     * Find entity by ID using the service
+     */
+    protected abstract T findEntityById(String id);
+
+    /**
+     * Replace the entity with the given ID using the service, or return {@code null} when it does not exist
+     */
+    protected abstract T updateEntity(String id, T entity);
+
+    /**
+     * Atomically add a non-zero {@code delta} to the entity's quantity using the service,
+     * or return {@code null} when it does not exist
+     */
+    protected abstract T adjustEntityQuantity(String id, int delta);
+
+    /**
+     * Delete an entity by ID using the service, returning whether it existed
+     */
+    protected abstract boolean deleteEntityById(String id);
+
+    /**
+     * Get ID from entity
+     */
+    protected abstract String getEntityId(T entity);
+
+    /**
+     * Set ID on entity
+     */
+    protected abstract void setEntityId(T entity, String id);
+
+    /**
+     * List one page of entities, either by page number or after a keyset cursor.
+     * A full page carries a {@code Link} header pointing at the next one.
+     */
+    public ResponseEntity<List<T>> list(int page, int size, String after) {
+        int pageSize = Math.max(1, Math.min(size, AbstractCrudController.MAX_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        boolean keyset = after != null && !after.isEmpty();
+
+        List<T> entities = keyset
+                ? findEntitiesAfter(after, pageSize)
+                : findEntityPage(pageNumber, pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (entities.size() == pageSize) {
+            UriComponentsBuilder next = UriComponentsBuilder.fromPath(getApiPath()).queryParam("size", pageSize);
+            if (keyset) {
+                next.queryParam("after", getEntityId(entities.get(entities.size() - 1)));
+            } else {
+                next.queryParam("page", pageNumber + 1);
+            }
+            response.header(HttpHeaders.LINK, "<" + next.toUriString() + ">; rel=\"next\"");
+        }
+        return response.body(entities);
+    }
+
+    /**
+     * Get one entity, or 404 when it does not exist
+     */
+    public ResponseEntity<T> get(String id) {
+        T entity = findEntityById(id);
+        return entity == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(entity);
+    }
+
+    /**
+     * Create an entity and point the {@code Location} header at it. The server
+     * assigns the ID, so a client-supplied one can never replace an existing entity.
+     */
+    public ResponseEntity<T> create(T entity) {
+        T created;
+        setEntityId(entity, null);
+        try {
+            created = createEntity(entity);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        URI location = UriComponentsBuilder.fromPath(getApiPath())
+                .pathSegment(getEntityId(created))
+                .build()
+                .toUri();
+        return ResponseEntity.created(location).body(created);
+    }
+
+    /**
+     * Replace an entity, or 404 when it does not exist
+     */
+    public ResponseEntity<T> update(String id, T entity) {
+        T updated;
+        try {
+            updated = updateEntity(id, entity);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        return updated == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(updated);
+    }
+
+    /**
+     * Add {@code delta} to an entity's stock without replacing the rest of it, so
+     * concurrent adjustments never lose each other. 404 when it does not exist,
+     * 409 when there is not enough stock to take.
+     */
+    public ResponseEntity<T> adjustQuantity(String id, int delta) {
+        if (delta == 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Delta cannot be zero");
+        }
+        T adjusted;
+        try {
+            adjusted = adjustEntityQuantity(id, delta);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+        return adjusted == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(adjusted);
+    }
+
+    /**
+     * Delete an entity, or 404 when it does not exist
+     */
+    public ResponseEntity<Void> delete(String id) {
+        return deleteEntityById(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
@@ -7,10 +7,13 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/car")
@@ -92,8 +95,18 @@ class CarController extends AbstractCrudController<Car, CarService> {
     }
 
     @Override
-    protected List<Car> findAllEntities() {
-        return service.findAll();
+    protected Iterator<Car> iterateAllEntities() {
+        return service.iterateAll();
+    }
+
+    @Override
+    protected List<Car> findEntityPage(int page, int size) {
+        return service.findPage(page, size);
+    }
+
+    @Override
+    protected List<Car> findEntitiesAfter(String id, int size) {
+        return service.findAfter(id, size);
     }
 
     @Override
@@ -116,6 +129,31 @@ class CarController extends AbstractCrudController<Car, CarService> {
         return entity.getCarId();
     }
 
+    @Override
+    protected long getCollectionVersion() {
+        return service.version();
+    }
+
+    @Override
+    protected long getEntityVersion(String id) {
+        return service.versionOf(id);
+    }
+
+    @Override
+    protected List<Car> createEntities(List<Car> entities) {
+        return service.createAll(entities);
+    }
+
+    @Override
+    protected List<Car> updateEntities(List<Car> entities) {
+        return service.updateAll(entities);
+    }
+
+    @Override
+    protected int deleteEntitiesById(List<String> ids) {
+        return service.deleteAllById(ids);
+    }
+
     // Mapping methods with explicit URL paths to match original controller
 
     @GetMapping("/createCar")
@@ -131,13 +169,22 @@ class CarController extends AbstractCrudController<Car, CarService> {
     }
 
     @GetMapping("/listCar")
-    public String carListPage(Model model) {
-        return listPage(model);
+    public String carListPage(@RequestParam(name = "page", defaultValue = "0") int page,
+                              @RequestParam(name = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                              @RequestParam(name = "after", required = false) String after,
+                              Model model,
+                              WebRequest request) {
+        return listPage(page, size, after, model, request);
+    }
+
+    @GetMapping("/listCar/all")
+    public String carListAllPage(Model model, WebRequest request) {
+        return listAllPage(model, request);
     }
 
     @GetMapping("/editCar/{carId}")
-    public String editCarPage(@PathVariable String carId, Model model) {
-        return editPage(carId, model);
+    public String editCarPage(@PathVariable String carId, Model model, WebRequest request) {
+        return editPage(carId, model, request);
     }
 
     @PostMapping("/editCar")
@@ -150,4 +197,22 @@ class CarController extends AbstractCrudController<Car, CarService> {
     public String deleteCar(@RequestParam("carId") String carId) {
         return deleteEntity(carId);
     }
-}
\ No newline at end of file
+
+    @PostMapping("/batch")
+    @ResponseBody
+    public List<Car> createCarBatch(@RequestBody List<Car> cars) {
+        return createBatch(cars);
+    }
+
+    @PutMapping("/batch")
+    @ResponseBody
+    public List<Car> updateCarBatch(@RequestBody List<Car> cars) {
+        return updateBatch(cars);
+    }
+
+    @DeleteMapping("/batch")
+    @ResponseBody
+    public Map<String, Integer> deleteCarBatch(@RequestBody List<String> carIds) {
+        return deleteBatch(carIds);
+    }
+}
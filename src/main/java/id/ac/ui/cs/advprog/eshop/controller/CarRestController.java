@@ -0,0 +1,108 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.service.CarService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.validation.Valid;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/cars")
+public class CarRestController extends AbstractCrudRestController<Car, CarService> {
+
+    @Autowired
+    public CarRestController(CarService carService) {
+        super(carService);
+    }
+
+    @Override
+    protected String getApiPath() {
+        return "/api/cars";
+    }
+
+    @Override
+    protected Car createEntity(Car entity) {
+        return service.create(entity);
+    }
+
+    @Override
+    protected List<Car> findEntityPage(int page, int size) {
+        return service.findPage(page, size);
+    }
+
+    @Override
+    protected List<Car> findEntitiesAfter(String id, int size) {
+        return service.findAfter(id, size);
+    }
+
+    @Override
+    protected Car findEntityById(String id) {
+        return service.findById(id);
+    }
+
+    @Override
+    protected Car updateEntity(String id, Car entity) {
+        return service.update(id, entity);
+    }
+
+    @Override
+    protected Car adjustEntityQuantity(String id, int delta) {
+        return delta > 0
+                ? service.increaseQuantity(id, delta)
+                : service.decreaseQuantity(id, Math.negateExact(delta));
+    }
+
+    @Override
+    protected boolean deleteEntityById(String id) {
+        return service.deleteAllById(List.of(id)) > 0;
+    }
+
+    @Override
+    protected String getEntityId(Car entity) {
+        return entity.getCarId();
+    }
+
+    @Override
+    protected void setEntityId(Car entity, String id) {
+        entity.setCarId(id);
+    }
+
+    @GetMapping
+    public ResponseEntity<List<Car>> listCars(
+            @RequestParam(name = "page", defaultValue = "0") int page,
+            @RequestParam(name = "size", defaultValue = "" + AbstractCrudController.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(name = "after", required = false) String after) {
+        return list(page, size, after);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Car> getCar(@PathVariable("id") String carId) {
+        return get(carId);
+    }
+
+    @PostMapping
+    public ResponseEntity<Car> createCar(@Valid @RequestBody Car car) {
+        return create(car);
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<Car> updateCar(@PathVariable("id") String carId,
+                                                 @Valid @RequestBody Car car) {
+        return update(carId, car);
+    }
+
+    @PatchMapping("/{id}/quantity")
+    public ResponseEntity<Car> adjustCarQuantity(@PathVariable("id") String carId,
+                                                 @RequestParam("delta") int delta) {
+        return adjustQuantity(carId, delta);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteCar(@PathVariable("id") String carId) {
+        return delete(carId);
+    }
+}
@@ -0,0 +1,86 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import id.ac.ui.cs.advprog.eshop.model.ChangeEvent;
+import id.ac.ui.cs.advprog.eshop.service.ChangeFeed;
+import id.ac.ui.cs.advprog.eshop.service.ChangeFeedProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Streams the change feed as server-sent events. Each event's ID is its
+ * sequence, so a reconnecting client resumes where it left off through
+ * {@code Last-Event-ID}; without one a stream starts at {@code after}, or
+ * with the next change. A {@code lost} event tells a client that fell too far
+ * behind how many changes it missed, so it should reload the full lists.
+ * <p>
+ * Each stream is served by its own virtual thread, so a slow client only
+ * slows itself down.
+ */
+@RestController
+@RequestMapping("/api/changes")
+public class ChangeFeedController {
+
+    private final ChangeFeed changeFeed;
+    private final ChangeFeedProperties properties;
+
+    @Autowired
+    public ChangeFeedController(ChangeFeed changeFeed, ChangeFeedProperties properties) {
+        this.changeFeed = changeFeed;
+        this.properties = properties;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(name = "entityType", required = false) ChangeEvent.EntityType entityType,
+                                    @RequestParam(name = "after", required = false) Long after,
+                                    @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        Long resumeAfter = lastEventId != null ? lastEventId : after;
+        ChangeFeed.Cursor cursor = changeFeed.subscribe(
+                resumeAfter == null ? changeFeed.nextSequence() : resumeAfter + 1);
+        SseEmitter emitter = new SseEmitter(properties.getStreamTimeout().toMillis());
+        Thread stream = Thread.ofVirtual()
+                .name("change-feed-stream")
+                .start(() -> stream(cursor, entityType, emitter));
+        emitter.onCompletion(stream::interrupt);
+        emitter.onTimeout(stream::interrupt);
+        emitter.onError(error -> stream.interrupt());
+        return emitter;
+    }
+
+    private void stream(ChangeFeed.Cursor cursor, ChangeEvent.EntityType entityType, SseEmitter emitter) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                ChangeFeed.Batch batch = cursor.await(properties.getBatchSize(), properties.getHeartbeat());
+                if (batch.isEmpty()) {
+                    // Keeps proxies from closing an idle stream and finds clients that went away
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                    continue;
+                }
+                if (batch.lost() > 0) {
+                    emitter.send(SseEmitter.event().name("lost").data(Map.of("lost", batch.lost())));
+                }
+                for (ChangeEvent event : batch.events()) {
+                    if (entityType == null || event.getEntityType() == entityType) {
+                        emitter.send(SseEmitter.event()
+                                .id(Long.toString(event.getSequence()))
+                                .name("change")
+                                .data(event, MediaType.APPLICATION_JSON));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // The client disconnected or the emitter already completed
+            emitter.completeWithError(e);
+        }
+    }
+}
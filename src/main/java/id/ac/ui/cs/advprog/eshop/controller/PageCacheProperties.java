@@ -0,0 +1,16 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "eshop.page-cache")
+public class PageCacheProperties {
+    private boolean enabled = false;
+
+    private DataSize maxSize = DataSize.ofMegabytes(16);
+
+    private DataSize maxEntrySize = DataSize.ofKilobytes(512);
+}
@@ -7,10 +7,13 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/product")
@@ -92,8 +95,18 @@ public class ProductController extends AbstractCrudController<Product, ProductSe
     }
 
     @Override
-    protected List<Product> findAllEntities() {
-        return service.findAll();
+    protected Iterator<Product> iterateAllEntities() {
+        return service.iterateAll();
+    }
+
+    @Override
+    protected List<Product> findEntityPage(int page, int size) {
+        return service.findPage(page, size);
+    }
+
+    @Override
+    protected List<Product> findEntitiesAfter(String id, int size) {
+        return service.findAfter(id, size);
     }
 
     @Override
@@ -116,6 +129,31 @@ public class ProductController extends AbstractCrudController<Product, ProductSe
         return entity.getProductId();
     }
 
+    @Override
+    protected long getCollectionVersion() {
+        return service.version();
+    }
+
+    @Override
+    protected long getEntityVersion(String id) {
+        return service.versionOf(id);
+    }
+
+    @Override
+    protected List<Product> createEntities(List<Product> entities) {
+        return service.createAll(entities);
+    }
+
+    @Override
+    protected List<Product> updateEntities(List<Product> entities) {
+        return service.updateAll(entities);
+    }
+
+    @Override
+    protected int deleteEntitiesById(List<String> ids) {
+        return service.deleteAllById(ids);
+    }
+
 
     @GetMapping("/create")
     public String createProductPage(Model model) {
@@ -130,13 +168,35 @@ public class ProductController extends AbstractCrudController<Product, ProductSe
     }
 
     @GetMapping("/list")
-    public String productListPage(Model model) {
-        return listPage(model);
+    public String productListPage(@RequestParam(name = "page", defaultValue = "0") int page,
+                                  @RequestParam(name = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                                  @RequestParam(name = "after", required = false) String after,
+                                  Model model,
+                                  WebRequest request) {
+        return listPage(page, size, after, model, request);
+    }
+
+    @GetMapping("/list/all")
+    public String productListAllPage(Model model, WebRequest request) {
+        return listAllPage(model, request);
+    }
+
+    @GetMapping("/search")
+    public String searchProductPage(@RequestParam(name = "q", defaultValue = "") String query,
+                                    @RequestParam(name = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                                    Model model) {
+        if (query.isBlank()) {
+            return "redirect:/product/list";
+        }
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        model.addAttribute(getEntitiesAttributeName(), service.search(query, limit));
+        model.addAttribute("query", query);
+        return getListViewName();
     }
 
     @GetMapping("/edit/{id}")
-    public String editProductPage(@PathVariable("id") String productId, Model model) {
-        return editPage(productId, model);
+    public String editProductPage(@PathVariable("id") String productId, Model model, WebRequest request) {
+        return editPage(productId, model, request);
     }
 
     @PostMapping("/edit")
@@ -149,4 +209,22 @@ public class ProductController extends AbstractCrudController<Product, ProductSe
     public String deleteProduct(@PathVariable("id") String productId) {
         return deleteEntity(productId);
     }
-}
\ No newline at end of file
+
+    @PostMapping("/batch")
+    @ResponseBody
+    public List<Product> createProductBatch(@RequestBody List<Product> products) {
+        return createBatch(products);
+    }
+
+    @PutMapping("/batch")
+    @ResponseBody
+    public List<Product> updateProductBatch(@RequestBody List<Product> products) {
+        return updateBatch(products);
+    }
+
+    @DeleteMapping("/batch")
+    @ResponseBody
+    public Map<String, Integer> deleteProductBatch(@RequestBody List<String> productIds) {
+        return deleteBatch(productIds);
+    }
+}
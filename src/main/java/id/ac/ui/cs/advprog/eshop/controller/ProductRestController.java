@@ -0,0 +1,109 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.service.ProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.validation.Valid;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/products")
+public class ProductRestController extends AbstractCrudRestController<Product, ProductService> {
+
+    @Autowired
+    public ProductRestController(ProductService productService) {
+        super(productService);
+    }
+
+    @Override
+    protected String getApiPath() {
+        return "/api/products";
+    }
+
+    @Override
+    protected Product createEntity(Product entity) {
+        return service.create(entity);
+    }
+
+    @Override
+    protected List<Product> findEntityPage(int page, int size) {
+        return service.findPage(page, size);
+    }
+
+    @Override
+    protected List<Product> findEntitiesAfter(String id, int size) {
+        return service.findAfter(id, size);
+    }
+
+    @Override
+    protected Product findEntityById(String id) {
+        return service.findById(id);
+    }
+
+    @Override
+    protected Product updateEntity(String id, Product entity) {
+        entity.setProductId(id);
+        return service.update(entity);
+    }
+
+    @Override
+    protected Product adjustEntityQuantity(String id, int delta) {
+        return delta > 0
+                ? service.increaseQuantity(id, delta)
+                : service.decreaseQuantity(id, Math.negateExact(delta));
+    }
+
+    @Override
+    protected boolean deleteEntityById(String id) {
+        return service.deleteAllById(List.of(id)) > 0;
+    }
+
+    @Override
+    protected String getEntityId(Product entity) {
+        return entity.getProductId();
+    }
+
+    @Override
+    protected void setEntityId(Product entity, String id) {
+        entity.setProductId(id);
+    }
+
+    @GetMapping
+    public ResponseEntity<List<Product>> listProducts(
+            @RequestParam(name = "page", defaultValue = "0") int page,
+            @RequestParam(name = "size", defaultValue = "" + AbstractCrudController.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(name = "after", required = false) String after) {
+        return list(page, size, after);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Product> getProduct(@PathVariable("id") String productId) {
+        return get(productId);
+    }
+
+    @PostMapping
+    public ResponseEntity<Product> createProduct(@Valid @RequestBody Product product) {
+        return create(product);
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<Product> updateProduct(@PathVariable("id") String productId,
+                                                 @Valid @RequestBody Product product) {
+        return update(productId, product);
+    }
+
+    @PatchMapping("/{id}/quantity")
+    public ResponseEntity<Product> adjustProductQuantity(@PathVariable("id") String productId,
+                                                 @RequestParam("delta") int delta) {
+        return adjustQuantity(productId, delta);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteProduct(@PathVariable("id") String productId) {
+        return delete(productId);
+    }
+}
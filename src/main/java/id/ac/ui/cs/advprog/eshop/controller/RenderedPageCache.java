@@ -0,0 +1,98 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, size-aware LRU cache of rendered responses. Every entry records
+ * the modification version of the data it was rendered from; a lookup with
+ * a different version is a miss and drops the entry, so a write to the
+ * underlying collection invalidates exactly the pages rendered from it.
+ */
+public class RenderedPageCache {
+    private final long maxBytes;
+    private final int maxEntryBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, CachedPage> pages = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    public RenderedPageCache(long maxBytes, int maxEntryBytes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    /**
+     * Get the page rendered for the given key at the given version, or {@code null}
+     */
+    public CachedPage get(String key, long version) {
+        lock.lock();
+        try {
+            CachedPage page = pages.get(key);
+            if (page == null) {
+                return null;
+            }
+            if (page.version() != version) {
+                evict(key, page);
+                return null;
+            }
+            return page;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cache a page, evicting the least recently used ones until it fits.
+     * Pages bigger than the entry limit are not cached.
+     */
+    public void put(String key, CachedPage page) {
+        if (page.body().length > maxEntryBytes) {
+            return;
+        }
+        lock.lock();
+        try {
+            CachedPage previous = pages.put(key, page);
+            if (previous != null) {
+                bytes -= weigh(key, previous);
+            }
+            bytes += weigh(key, page);
+            Iterator<Map.Entry<String, CachedPage>> eldest = pages.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, CachedPage> entry = eldest.next();
+                bytes -= weigh(entry.getKey(), entry.getValue());
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Total weight of the cached pages in bytes
+     */
+    public long size() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evict(String key, CachedPage page) {
+        pages.remove(key);
+        bytes -= weigh(key, page);
+    }
+
+    private static long weigh(String key, CachedPage page) {
+        return page.body().length + 2L * key.length();
+    }
+
+    /**
+     * A rendered response together with the data version it was rendered from
+     */
+    public record CachedPage(long version, String contentType, String etag, byte[] body) {
+    }
+}
@@ -0,0 +1,90 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Serves repeated GETs of list pages from a {@link RenderedPageCache}. A page
+ * is keyed by its path and sorted query parameters and tagged with the
+ * version of the collection it lists, read before rendering so a write that
+ * races with the render can only make the entry look older than it is.
+ */
+public class RenderedPageCacheFilter extends OncePerRequestFilter {
+    private final RenderedPageCache cache;
+    private final Map<String, LongSupplier> versions = new ConcurrentHashMap<>();
+
+    public RenderedPageCacheFilter(RenderedPageCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Cache the page at the given path, invalidated whenever the given version changes
+     */
+    public void cache(String path, LongSupplier version) {
+        versions.put(path, version);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod()) || !versions.containsKey(path(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        String key = key(request);
+        long version = versions.get(path(request)).getAsLong();
+        RenderedPageCache.CachedPage page = cache.get(key, version);
+        if (page != null) {
+            write(page, request, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper capture = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, capture);
+        if (capture.getStatus() == HttpServletResponse.SC_OK) {
+            cache.put(key, new RenderedPageCache.CachedPage(version, capture.getContentType(),
+                    capture.getHeader(HttpHeaders.ETAG), capture.getContentAsByteArray()));
+        }
+        capture.copyBodyToResponse();
+    }
+
+    private void write(RenderedPageCache.CachedPage page, HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        // Let Spring evaluate If-None-Match, as the controllers do, so lists, weak validators and * all match
+        if (page.etag() != null && new ServletWebRequest(request, response).checkNotModified(page.etag())) {
+            return;
+        }
+        response.setContentType(page.contentType());
+        response.setContentLength(page.body().length);
+        response.getOutputStream().write(page.body());
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static String key(HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(path(request));
+        char separator = '?';
+        for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            key.append(separator).append(parameter.getKey()).append('=')
+                    .append(Arrays.toString(parameter.getValue()));
+            separator = '&';
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,76 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import id.ac.ui.cs.advprog.eshop.model.Reservation;
+import id.ac.ui.cs.advprog.eshop.service.ReservationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * JSON API for checkout holds on product and car stock. A hold that is
+ * neither confirmed nor released within its TTL expires and its stock
+ * returns; once settled a hold is gone and answers 404.
+ */
+@RestController
+@RequestMapping("/api/reservations")
+public class ReservationRestController {
+
+    private final ReservationService reservationService;
+
+    @Autowired
+    public ReservationRestController(ReservationService reservationService) {
+        this.reservationService = reservationService;
+    }
+
+    @PostMapping
+    public ResponseEntity<Reservation> reserve(@RequestBody Reservation request,
+                                               @RequestParam(name = "ttlSeconds", required = false) Long ttlSeconds) {
+        Duration ttl = ttlSeconds == null ? null : Duration.ofSeconds(ttlSeconds);
+        Reservation reservation = translate(() -> reservationService.reserve(
+                request.getItemType(), request.getItemId(), request.getQuantity(), ttl));
+        if (reservation == null) {
+            return ResponseEntity.notFound().build();
+        }
+        URI location = UriComponentsBuilder.fromPath("/api/reservations")
+                .pathSegment(reservation.getReservationId())
+                .build()
+                .toUri();
+        return ResponseEntity.created(location).body(reservation);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Reservation> getReservation(@PathVariable("id") String reservationId) {
+        return found(reservationService.findById(reservationId));
+    }
+
+    @PostMapping("/{id}/confirm")
+    public ResponseEntity<Reservation> confirmReservation(@PathVariable("id") String reservationId) {
+        return found(translate(() -> reservationService.confirm(reservationId)));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Reservation> releaseReservation(@PathVariable("id") String reservationId) {
+        return found(translate(() -> reservationService.release(reservationId)));
+    }
+
+    private static ResponseEntity<Reservation> found(Reservation reservation) {
+        return reservation == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(reservation);
+    }
+
+    private static Reservation translate(Supplier<Reservation> action) {
+        try {
+            return action.get();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+    }
+}
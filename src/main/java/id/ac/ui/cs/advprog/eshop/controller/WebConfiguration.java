@@ -0,0 +1,47 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import id.ac.ui.cs.advprog.eshop.service.CarService;
+import id.ac.ui.cs.advprog.eshop.service.ProductService;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+/**
+ * HTTP plumbing for conditional requests and response caching.
+ */
+@Configuration
+@EnableConfigurationProperties(PageCacheProperties.class)
+public class WebConfiguration {
+
+    /**
+     * Tag every API response with a hash of its body and answer a matching
+     * {@code If-None-Match} with 304, so polling clients skip unchanged payloads
+     */
+    @Bean
+    public FilterRegistrationBean<ShallowEtagHeaderFilter> apiEtagFilter() {
+        FilterRegistrationBean<ShallowEtagHeaderFilter> registration =
+                new FilterRegistrationBean<>(new ShallowEtagHeaderFilter());
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    /**
+     * Serve repeated list page hits from rendered HTML until the listed collection changes
+     */
+    @Bean
+    public FilterRegistrationBean<RenderedPageCacheFilter> renderedPageCacheFilter(
+            PageCacheProperties properties, ProductService productService, CarService carService) {
+        RenderedPageCache cache = new RenderedPageCache(properties.getMaxSize().toBytes(),
+                (int) properties.getMaxEntrySize().toBytes());
+        RenderedPageCacheFilter filter = new RenderedPageCacheFilter(cache);
+        filter.cache("/product/list", productService::version);
+        filter.cache("/car/listCar", carService::version);
+
+        FilterRegistrationBean<RenderedPageCacheFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/product/list", "/car/listCar");
+        registration.setEnabled(properties.isEnabled());
+        return registration;
+    }
+}
@@ -0,0 +1,30 @@
+package id.ac.ui.cs.advprog.eshop.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A committed change to a product or car as published on the change feed.
+ * Created and updated events carry the entity as it was written; deleted
+ * events only its ID. Sequences grow by one per event.
+ */
+@Getter @Setter
+public class ChangeEvent {
+    public enum EntityType { PRODUCT, CAR }
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private long sequence;
+
+    private EntityType entityType;
+
+    private Type type;
+
+    private String entityId;
+
+    private Object entity;
+
+    private Instant timestamp;
+}
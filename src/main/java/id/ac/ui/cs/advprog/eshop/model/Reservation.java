@@ -0,0 +1,29 @@
+package id.ac.ui.cs.advprog.eshop.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A hold on some of an item's stock, taken out of the available quantity
+ * until it is confirmed, released or expires.
+ */
+@Getter @Setter
+public class Reservation {
+    public enum ItemType { PRODUCT, CAR }
+
+    public enum Status { PENDING, CONFIRMED, RELEASED, EXPIRED }
+
+    private String reservationId;
+
+    private ItemType itemType;
+
+    private String itemId;
+
+    private int quantity;
+
+    private Instant expiresAt;
+
+    private Status status;
+}
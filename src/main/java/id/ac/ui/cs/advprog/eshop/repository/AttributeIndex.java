@@ -0,0 +1,94 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Secondary index from one attribute of an entity to the IDs carrying it.
+ * Attribute values are matched case-insensitively. Each key keeps one
+ * concurrent ID set that writes change in place, so indexing an entity costs
+ * O(1) however many others share its key. Readers iterate the live sets and
+ * re-check what they find.
+ * <p>
+ * Adds share a read lock, so they run in parallel. Dropping a key whose set
+ * went empty takes the write lock, so no add can slip into a set that is
+ * being unmapped.
+ *
+ * @param <T> The entity type being indexed
+ */
+abstract class AttributeIndex<T> {
+    private final Function<T, String> attribute;
+    private final ConcurrentMap<String, Set<String>> entries;
+    private final ReentrantReadWriteLock pruneLock = new ReentrantReadWriteLock();
+
+    AttributeIndex(Function<T, String> attribute, ConcurrentMap<String, Set<String>> entries) {
+        this.attribute = attribute;
+        this.entries = entries;
+    }
+
+    void add(String id, T entity) {
+        if (id == null) {
+            return;
+        }
+        ReentrantReadWriteLock.ReadLock adding = pruneLock.readLock();
+        adding.lock();
+        try {
+            for (String key : keysOf(entity)) {
+                entries.computeIfAbsent(key, ignored -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        } finally {
+            adding.unlock();
+        }
+    }
+
+    void remove(String id, T entity) {
+        if (id == null) {
+            return;
+        }
+        for (String key : keysOf(entity)) {
+            Set<String> ids = entries.get(key);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                prune(key, ids);
+            }
+        }
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    String keyOf(T entity) {
+        return normalize(attribute.apply(entity));
+    }
+
+    /**
+     * Keys the entity is indexed under; the whole normalized attribute unless overridden
+     */
+    Collection<String> keysOf(T entity) {
+        String key = keyOf(entity);
+        return key == null ? List.of() : List.of(key);
+    }
+
+    static String normalize(String value) {
+        return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void prune(String key, Set<String> ids) {
+        ReentrantReadWriteLock.WriteLock pruning = pruneLock.writeLock();
+        pruning.lock();
+        try {
+            // An add may have refilled the set before the lock was taken
+            if (ids.isEmpty()) {
+                entries.remove(key, ids);
+            }
+        } finally {
+            pruning.unlock();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+/**
+ * Append-only byte storage used by the serialized storage engines. Records are
+ * never overwritten once appended, so concurrent readers can decode them
+ * without locking.
+ */
+public interface ByteStore extends AutoCloseable {
+
+    /**
+     * Append a record and return its address
+     */
+    long append(byte[] record);
+
+    /**
+     * Read a record of the given length from an address returned by {@link #append(byte[])}
+     */
+    byte[] read(long address, int length);
+
+    @Override
+    void close();
+}
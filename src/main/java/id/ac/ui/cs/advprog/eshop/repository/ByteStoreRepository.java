@@ -0,0 +1,379 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Storage engine that keeps entities serialized in a {@link ByteStore} and only
+ * holds the ID index and record locations on the heap. Entities are decoded on
+ * every read, trading CPU for a much smaller heap footprint.
+ * <p>
+ * Replaced and deleted records stay in the store as dead bytes. Once they make
+ * up half of it, the writer that crossed the line copies the live records into
+ * a fresh store and drops the old one, so each byte written is copied at most
+ * once more on average. Locations remember their store, so readers holding an
+ * older snapshot keep decoding from the store it was taken from; writers wait
+ * for the copy.
+ *
+ * @param <T> The entity type stored by this engine
+ */
+public class ByteStoreRepository<T> implements CrudRepository<T, String> {
+    private static final Logger LOG = LoggerFactory.getLogger(ByteStoreRepository.class);
+
+    /**
+     * Dead bytes below this never trigger a compaction, so small stores are not copied over and over
+     */
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+
+    private final EntityCodec<T> codec;
+    private final Supplier<ByteStore> stores;
+    private final long minCompactionBytes;
+    private final OrderedIndex<Location> index = new OrderedIndex<>();
+    private final ReentrantReadWriteLock compactionLock = new ReentrantReadWriteLock();
+    private final AtomicLong storedBytes = new AtomicLong();
+    private final AtomicLong deadBytes = new AtomicLong();
+    private volatile ByteStore store;
+
+    /**
+     * @param stores Opens an empty byte store; called on startup and again for every compaction
+     */
+    public ByteStoreRepository(EntityCodec<T> codec, Supplier<ByteStore> stores) {
+        this(codec, stores, MIN_COMPACTION_BYTES);
+    }
+
+    ByteStoreRepository(EntityCodec<T> codec, Supplier<ByteStore> stores, long minCompactionBytes) {
+        this.codec = codec;
+        this.stores = stores;
+        this.minCompactionBytes = minCompactionBytes;
+        this.store = stores.get();
+    }
+
+    @Override
+    public T create(T entity) {
+        String id = codec.idOf(entity);
+        compactionLock.readLock().lock();
+        try {
+            Location location = write(entity);
+            // Creating an existing ID replaces its record
+            discard(index.get(id));
+            index.insert(id, location);
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+        compactIfWasteful();
+        return entity;
+    }
+
+    @Override
+    public List<T> createAll(List<T> entities) {
+        List<String> ids = new ArrayList<>(entities.size());
+        List<Location> locations = new ArrayList<>(entities.size());
+        compactionLock.readLock().lock();
+        try {
+            Map<String, Location> replaced = new HashMap<>();
+            for (T entity : entities) {
+                String id = codec.idOf(entity);
+                Location location = write(entity);
+                ids.add(id);
+                locations.add(location);
+                if (id != null) {
+                    // A later entity with the same ID in the batch replaces the earlier one
+                    Location previous = replaced.put(id, location);
+                    if (previous != null) {
+                        deadBytes.addAndGet(previous.length());
+                    } else {
+                        discard(index.get(id));
+                    }
+                }
+            }
+            index.insertAll(ids, locations);
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+        compactIfWasteful();
+        return entities;
+    }
+
+    @Override
+    public Iterator<T> findAll() {
+        Iterator<OrderedIndex.Entry<Location>> entries = index.entries().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return read(entries.next().value());
+            }
+        };
+    }
+
+    @Override
+    public List<T> snapshot() {
+        IndexSnapshot<Location> locations = index.snapshot();
+        // Records are never overwritten, so decoding lazily from the locations
+        // captured in the snapshot still yields a consistent view.
+        return new DecodingList(locations);
+    }
+
+    @Override
+    public List<T> findPage(long offset, int limit) {
+        return CrudRepository.page(snapshot(), offset, limit);
+    }
+
+    @Override
+    public List<T> findAfter(String id, int limit) {
+        return readAll(index.after(id, limit));
+    }
+
+    @Override
+    public long count() {
+        return index.size();
+    }
+
+    @Override
+    public long version() {
+        return index.version();
+    }
+
+    @Override
+    public long versionOf(String id) {
+        OrderedIndex.Entry<?> entry = index.get(id);
+        return entry == null ? -1 : entry.stamp();
+    }
+
+    @Override
+    public T findById(String id) {
+        OrderedIndex.Entry<Location> entry = index.get(id);
+        return entry == null ? null : read(entry.value());
+    }
+
+    @Override
+    public T update(String id, T entity) {
+        T snapshot;
+        compactionLock.readLock().lock();
+        try {
+            OrderedIndex.Entry<Location> existing = index.get(id);
+            if (existing == null) {
+                return null;
+            }
+            Location previous = existing.value();
+            snapshot = codec.copyOf(entity, id);
+            if (index.update(id, write(snapshot)) == null) {
+                return null;
+            }
+            deadBytes.addAndGet(previous.length());
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+        compactIfWasteful();
+        return snapshot;
+    }
+
+    @Override
+    public List<T> updateAll(Map<String, T> entities) {
+        List<String> ids = new ArrayList<>(entities.size());
+        List<T> snapshots = new ArrayList<>(entities.size());
+        List<Location> locations = new ArrayList<>(entities.size());
+        List<T> values;
+        compactionLock.readLock().lock();
+        try {
+            List<Location> previous = new ArrayList<>(entities.size());
+            for (Map.Entry<String, T> entity : entities.entrySet()) {
+                OrderedIndex.Entry<Location> existing = index.get(entity.getKey());
+                if (existing == null) {
+                    continue;
+                }
+                T snapshot = codec.copyOf(entity.getValue(), entity.getKey());
+                ids.add(entity.getKey());
+                snapshots.add(snapshot);
+                previous.add(existing.value());
+                locations.add(write(snapshot));
+            }
+            List<OrderedIndex.Entry<Location>> updated = index.updateAll(ids, locations);
+            values = new ArrayList<>(updated.size());
+            for (int i = 0; i < updated.size(); i++) {
+                if (updated.get(i) != null) {
+                    values.add(snapshots.get(i));
+                    deadBytes.addAndGet(previous.get(i).length());
+                } else {
+                    deadBytes.addAndGet(locations.get(i).length());
+                }
+            }
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+        compactIfWasteful();
+        return values;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        compactionLock.readLock().lock();
+        try {
+            discard(index.remove(id));
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+        compactIfWasteful();
+    }
+
+    @Override
+    public int deleteAllById(Collection<String> ids) {
+        int deleted = 0;
+        compactionLock.readLock().lock();
+        try {
+            for (String id : new LinkedHashSet<>(ids)) {
+                OrderedIndex.Entry<Location> existing = index.get(id);
+                if (existing != null) {
+                    deadBytes.addAndGet(existing.value().length());
+                    deleted++;
+                }
+            }
+            index.removeAll(ids);
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+        compactIfWasteful();
+        return deleted;
+    }
+
+    @Override
+    public long deadBytes() {
+        return deadBytes.get();
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    /**
+     * Copy the live records into a fresh store and drop the current one. A
+     * compaction that fails part way leaves every record readable where it is.
+     */
+    void compact() {
+        compactionLock.writeLock().lock();
+        try {
+            ByteStore previous = store;
+            ByteStore compacted = stores.get();
+            AtomicLong live = new AtomicLong();
+            index.relocateAll(location -> {
+                byte[] record = location.store().read(location.address(), location.length());
+                live.addAndGet(record.length);
+                return new Location(compacted, compacted.append(record), record.length);
+            });
+            store = compacted;
+            storedBytes.set(live.get());
+            deadBytes.set(0);
+            previous.close();
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
+    }
+
+    private void compactIfWasteful() {
+        if (!wasteful()) {
+            return;
+        }
+        compactionLock.writeLock().lock();
+        try {
+            // Another writer may have compacted while this one waited
+            if (wasteful()) {
+                compact();
+            }
+        } catch (RuntimeException e) {
+            // The write that got here has already succeeded; the next one tries again
+            LOG.warn("Compacting a byte store failed", e);
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
+    }
+
+    private boolean wasteful() {
+        long dead = deadBytes.get();
+        return dead >= minCompactionBytes && 2 * dead >= storedBytes.get();
+    }
+
+    private void discard(OrderedIndex.Entry<Location> entry) {
+        if (entry != null) {
+            deadBytes.addAndGet(entry.value().length());
+        }
+    }
+
+    private Location write(T entity) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            codec.write(entity, new DataOutputStream(bytes));
+            byte[] record = bytes.toByteArray();
+            ByteStore target = store;
+            Location location = new Location(target, target.append(record), record.length);
+            storedBytes.addAndGet(record.length);
+            return location;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private T read(Location location) {
+        try {
+            byte[] record = location.store().read(location.address(), location.length());
+            return codec.read(new DataInputStream(new ByteArrayInputStream(record)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<T> readAll(List<OrderedIndex.Entry<Location>> entries) {
+        List<T> values = new ArrayList<>(entries.size());
+        for (OrderedIndex.Entry<Location> entry : entries) {
+            values.add(read(entry.value()));
+        }
+        return values;
+    }
+
+    private final class DecodingList extends AbstractList<T> implements RandomAccess {
+        private final List<Location> locations;
+
+        private DecodingList(List<Location> locations) {
+            this.locations = locations;
+        }
+
+        @Override
+        public T get(int index) {
+            return read(locations.get(index));
+        }
+
+        @Override
+        public int size() {
+            return locations.size();
+        }
+    }
+
+    /**
+     * Where a record lives; the store is kept so compaction never invalidates a location
+     */
+    private record Location(ByteStore store, long address, int length) {
+    }
+}
@@ -0,0 +1,74 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class CarCodec implements EntityCodec<Car>, CompactLayout<Car> {
+
+    public static final CarCodec INSTANCE = new CarCodec();
+
+    static final int NAME_COLUMN = 0;
+    static final int COLOR_COLUMN = 1;
+    static final int QUANTITY_COLUMN = 0;
+
+    @Override
+    public String idOf(Car car) {
+        return car.getCarId();
+    }
+
+    @Override
+    public Car copyOf(Car car, String id) {
+        Car copy = new Car();
+        copy.setCarId(id);
+        copy.setCarName(car.getCarName());
+        copy.setCarColor(car.getCarColor());
+        copy.setCarQuantity(car.getCarQuantity());
+        return copy;
+    }
+
+    @Override
+    public void write(Car car, DataOutput out) throws IOException {
+        EntityCodec.writeString(out, car.getCarId());
+        EntityCodec.writeString(out, car.getCarName());
+        EntityCodec.writeString(out, car.getCarColor());
+        out.writeInt(car.getCarQuantity());
+    }
+
+    @Override
+    public Car read(DataInput in) throws IOException {
+        Car car = new Car();
+        car.setCarId(EntityCodec.readString(in));
+        car.setCarName(EntityCodec.readString(in));
+        car.setCarColor(EntityCodec.readString(in));
+        car.setCarQuantity(in.readInt());
+        return car;
+    }
+
+    @Override
+    public int stringColumns() {
+        return 2;
+    }
+
+    @Override
+    public int intColumns() {
+        return 1;
+    }
+
+    @Override
+    public String stringColumn(Car car, int column) {
+        return column == NAME_COLUMN ? car.getCarName() : car.getCarColor();
+    }
+
+    @Override
+    public int intColumn(Car car, int column) {
+        return car.getCarQuantity();
+    }
+
+    @Override
+    public Car view(Columns columns, int row) {
+        return new CarView(columns, row);
+    }
+}
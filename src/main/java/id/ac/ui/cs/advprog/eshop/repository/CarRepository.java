@@ -1,53 +1,158 @@
 package id.ac.ui.cs.advprog.eshop.repository;
 import id.ac.ui.cs.advprog.eshop.model.Car;
-import org.springframework.stereotype.Repository;
-import java.util.ArrayList;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 
-@Repository
-public class CarRepository {
-    private List <Car> carData = new ArrayList<>();
+/**
+ * Car repository backed by a pluggable storage engine, see
+ * {@link StorageConfiguration}, with hash indexes on car color and name.
+ */
+public class CarRepository implements CrudRepository <Car, String> {
+    private final HashIndex <Car> colorIndex = new HashIndex<>(Car::getCarColor);
+    private final HashIndex <Car> nameIndex = new HashIndex<>(Car::getCarName);
+    private final IndexedRepository <Car> storage;
+    private final IdGenerator idGenerator;
 
+    public CarRepository () {
+        this(new ConcurrentHeapRepository<>(CarCodec.INSTANCE));
+    }
+
+    public CarRepository (CrudRepository <Car, String> storage) {
+        this(storage, new TimeOrderedIdGenerator());
+    }
+
+    public CarRepository (CrudRepository <Car, String> storage, IdGenerator idGenerator) {
+        this(storage, idGenerator, Metrics.globalRegistry);
+    }
+
+    public CarRepository (CrudRepository <Car, String> storage, IdGenerator idGenerator, MeterRegistry registry) {
+        this.storage = new IndexedRepository<>("car", storage, CarCodec.INSTANCE, List.of(colorIndex, nameIndex), registry);
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Cars of the given color, ignoring case
+     */
+    public List <Car> findByColor (String color) {
+        return storage.find(() -> colorIndex.idsEqualTo(color), car -> colorIndex.matches(car, color));
+    }
+
+    /**
+     * Cars with the given name, ignoring case
+     */
+    public List <Car> findByName (String carName) {
+        return storage.find(() -> nameIndex.idsEqualTo(carName), car -> nameIndex.matches(car, carName));
+    }
+
+    /**
+     * Tell a listener about every later write, in commit order per car
+     */
+    public void addChangeListener (ChangeListener <Car> listener) {
+        storage.addChangeListener(listener);
+    }
+
+    /**
+     * Atomically add {@code delta} to the car's quantity, which may not drop below zero
+     *
+     * @return the updated car, or {@code null} when it does not exist
+     * @throws IllegalStateException when there is not enough stock
+     */
+    public Car adjustQuantity (String carId, int delta) {
+        return storage.modify(carId, car -> {
+            car.setCarQuantity(Quantities.adjust(car.getCarQuantity(), delta, carId));
+            return car;
+        });
+    }
+
+    @Override
     public Car create (Car car) {
         if (car.getCarId() == null) {
-            UUID uuid = UUID.randomUUID();
-            car.setCarId(uuid.toString());
+            car.setCarId(idGenerator.nextId());
         }
-
-        carData.add(car);
-        return car;
+        return storage.create(car);
     }
 
+    @Override
     public Iterator <Car> findAll() {
-        return carData.iterator();
+        return storage.findAll();
+    }
+
+    @Override
+    public List <Car> snapshot() {
+        return storage.snapshot();
+    }
+
+    @Override
+    public List <Car> findPage (long offset, int limit) {
+        return storage.findPage(offset, limit);
     }
 
+    @Override
+    public List <Car> findAfter (String id, int limit) {
+        return storage.findAfter(id, limit);
+    }
+
+    @Override
+    public long count() {
+        return storage.count();
+    }
+
+    @Override
+    public long deadBytes() {
+        return storage.deadBytes();
+    }
+
+    @Override
+    public long version() {
+        return storage.version();
+    }
+
+    @Override
+    public long versionOf (String id) {
+        return storage.versionOf(id);
+    }
+
+    @Override
     public Car findById (String id) {
-        for (Car car : carData) {
-            if (car.getCarId().equals(id)) {
-                return car;
-            }
-        }
-        return null;
+        return storage.findById(id);
     }
 
+    @Override
     public Car update (String id, Car updatedCar) {
-        for (int i = 0; i < carData.size(); i++) {
-            Car car = carData.get(i);
-            if (car.getCarId().equals(id)) {
-                // Update the existing car with the new information
-                car.setCarName(updatedCar.getCarName());
-                car.setCarColor(updatedCar.getCarColor());
-                car.setCarQuantity(updatedCar.getCarQuantity());
-                return car;
+        return storage.update(id, updatedCar);
+    }
+
+    @Override
+    public void deleteById (String id) {
+        storage.deleteById(id);
+    }
+
+    @Override
+    public List <Car> createAll (List <Car> cars) {
+        for (Car car : cars) {
+            if (car.getCarId() == null) {
+                car.setCarId(idGenerator.nextId());
             }
         }
-        return null; // Handle the case where the car is not found
+        return storage.createAll(cars);
+    }
+
+    @Override
+    public List <Car> updateAll (Map <String, Car> cars) {
+        return storage.updateAll(cars);
+    }
+
+    @Override
+    public int deleteAllById (Collection <String> carIds) {
+        return storage.deleteAllById(carIds);
     }
 
-    public void delete (String id) {
-        carData.removeIf(car -> car.getCarId().equals(id));
+    @Override
+    public void close() {
+        storage.close();
     }
-}
\ No newline at end of file
+}
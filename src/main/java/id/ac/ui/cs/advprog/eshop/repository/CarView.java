@@ -0,0 +1,69 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+
+/**
+ * Car that reads its strings straight out of a {@link CompactRepository} row.
+ * The quantity is read once when the view is made, since the row may be
+ * rewritten in place later. Nothing else is copied unless a setter is called,
+ * which first detaches the view into a plain car so the stored row never
+ * changes.
+ */
+final class CarView extends Car {
+    private CompactLayout.Columns columns;
+    private final int row;
+
+    CarView(CompactLayout.Columns columns, int row) {
+        this.columns = columns;
+        this.row = row;
+        super.setCarQuantity(columns.integer(row, CarCodec.QUANTITY_COLUMN));
+    }
+
+    @Override
+    public String getCarId() {
+        return columns == null ? super.getCarId() : columns.id(row);
+    }
+
+    @Override
+    public String getCarName() {
+        return columns == null ? super.getCarName() : columns.string(row, CarCodec.NAME_COLUMN);
+    }
+
+    @Override
+    public String getCarColor() {
+        return columns == null ? super.getCarColor() : columns.string(row, CarCodec.COLOR_COLUMN);
+    }
+
+    @Override
+    public void setCarId(String carId) {
+        detach();
+        super.setCarId(carId);
+    }
+
+    @Override
+    public void setCarName(String carName) {
+        detach();
+        super.setCarName(carName);
+    }
+
+    @Override
+    public void setCarColor(String carColor) {
+        detach();
+        super.setCarColor(carColor);
+    }
+
+    @Override
+    public void setCarQuantity(int carQuantity) {
+        detach();
+        super.setCarQuantity(carQuantity);
+    }
+
+    private void detach() {
+        if (columns != null) {
+            super.setCarId(columns.id(row));
+            super.setCarName(columns.string(row, CarCodec.NAME_COLUMN));
+            super.setCarColor(columns.string(row, CarCodec.COLOR_COLUMN));
+            columns = null;
+        }
+    }
+}
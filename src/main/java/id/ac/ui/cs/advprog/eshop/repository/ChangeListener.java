@@ -0,0 +1,27 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+/**
+ * Told about every write that takes effect in a repository. Calls run inside
+ * the write's critical section, under the entity's stripe lock, so a listener
+ * sees the writes to one entity in the order they were committed. Listeners
+ * must therefore be quick and must not write to the repository.
+ *
+ * @param <T> The entity type stored by the repository
+ */
+public interface ChangeListener<T> {
+
+    /**
+     * An entity was stored by a create; the entity may still be changed by the caller
+     */
+    void created(T entity);
+
+    /**
+     * An entity was replaced; the argument is its stored state
+     */
+    void updated(T entity);
+
+    /**
+     * An existing entity was deleted
+     */
+    void deleted(String id);
+}
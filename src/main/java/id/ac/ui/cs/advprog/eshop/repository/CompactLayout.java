@@ -0,0 +1,36 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+/**
+ * Splits an entity into the columns of a {@link CompactRepository}: its ID,
+ * a fixed number of dictionary-encoded string columns and a fixed number of
+ * int columns.
+ *
+ * @param <T> The entity type laid out in columns
+ */
+interface CompactLayout<T> {
+
+    int stringColumns();
+
+    int intColumns();
+
+    String stringColumn(T entity, int column);
+
+    int intColumn(T entity, int column);
+
+    /**
+     * Create a flyweight entity that reads the given row instead of copying it
+     */
+    T view(Columns columns, int row);
+
+    /**
+     * Read access to the stored rows, handed to the views
+     */
+    interface Columns {
+
+        String id(int row);
+
+        String string(int row, int column);
+
+        int integer(int row, int column);
+    }
+}
@@ -0,0 +1,702 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Columnar storage engine. Each stored version of an entity is one row of a
+ * {@link RowStore}: a UUID ID as two longs plus its string and int fields.
+ * Reads return flyweight views over a row rather than decoded copies, so a
+ * stored entity costs a few dozen bytes and no objects of its own. IDs that
+ * are not lowercase UUIDs are kept as strings on the side.
+ * <p>
+ * An update appends a new row and points the entity's position in insertion
+ * order at it, so views and snapshots stay consistent while readers go
+ * lock-free; writers take one lock. Stores that can rewrite a row in place do
+ * so for updates that only change int fields, but only for rows written since
+ * the latest snapshot was built, which no snapshot can hold. Views read the
+ * int fields when they are made, so a rewrite never shows through a view
+ * handed out before it.
+ * <p>
+ * Replaced and deleted rows, and strings no live row uses, stay in the store
+ * as dead bytes. Once they make up half of it, the writer that crossed the
+ * line copies the live rows in insertion order into a fresh store and swaps
+ * it in together with a rebuilt ID table. Views and snapshots keep reading
+ * the store they were made from, which the garbage collector reclaims once
+ * the last of them is gone.
+ *
+ * @param <T> The entity type stored by this engine
+ */
+public class CompactRepository<T> implements CrudRepository<T, String> {
+    private static final Logger LOG = LoggerFactory.getLogger(CompactRepository.class);
+
+    /**
+     * Dead bytes below this never trigger a compaction, so small stores are not copied over and over
+     */
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+
+    private static final int ORDER_CHUNK_SHIFT = 10;
+    private static final int DELETED = -1;
+    private static final int EMPTY_SLOT = 0;
+    private static final int REMOVED_SLOT = -1;
+
+    private final EntityCodec<T> codec;
+    private final CompactLayout<T> layout;
+    private final Supplier<RowStore> stores;
+    private final long minCompactionBytes;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Rows rows;
+
+    private volatile int size;
+    private volatile long version;
+
+    // Row versions handed out so far, and the last one any snapshot may hold
+    private long rowVersion;
+    private long snapshotRowVersion;
+
+    // Live rows per order chunk, rebuilt for dirty chunks under the write lock
+    private final List<int[]> liveRows = new ArrayList<>();
+    private final BitSet dirtyChunks = new BitSet();
+    private volatile RowSnapshot snapshot;
+
+    /**
+     * @param stores Opens an empty row store; called on startup and again for every compaction
+     */
+    CompactRepository(EntityCodec<T> codec, CompactLayout<T> layout, Supplier<RowStore> stores) {
+        this(codec, layout, stores, MIN_COMPACTION_BYTES);
+    }
+
+    CompactRepository(EntityCodec<T> codec, CompactLayout<T> layout, Supplier<RowStore> stores,
+                      long minCompactionBytes) {
+        this.codec = codec;
+        this.layout = layout;
+        this.stores = stores;
+        this.minCompactionBytes = minCompactionBytes;
+        this.rows = new Rows(stores.get());
+        this.snapshot = new RowSnapshot(0, rows.columns, new int[0][]);
+    }
+
+    @Override
+    public T create(T entity) {
+        writeLock.lock();
+        try {
+            put(entity);
+            version++;
+            compactIfWasteful();
+        } finally {
+            writeLock.unlock();
+        }
+        return entity;
+    }
+
+    @Override
+    public List<T> createAll(List<T> entities) {
+        writeLock.lock();
+        try {
+            for (T entity : entities) {
+                put(entity);
+            }
+            version++;
+            compactIfWasteful();
+        } finally {
+            writeLock.unlock();
+        }
+        return entities;
+    }
+
+    @Override
+    public Iterator<T> findAll() {
+        return snapshot().iterator();
+    }
+
+    @Override
+    public List<T> snapshot() {
+        RowSnapshot current = snapshot;
+        if (current.version == version) {
+            return current;
+        }
+        writeLock.lock();
+        try {
+            current = snapshot;
+            if (current.version == version) {
+                return current;
+            }
+            for (int chunk = dirtyChunks.nextSetBit(0); chunk >= 0; chunk = dirtyChunks.nextSetBit(chunk + 1)) {
+                rebuildChunk(chunk);
+            }
+            dirtyChunks.clear();
+            snapshotRowVersion = rowVersion;
+            current = new RowSnapshot(version, rows.columns,
+                    liveRows.stream().filter(live -> live.length > 0).toArray(int[][]::new));
+            snapshot = current;
+            return current;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<T> findPage(long offset, int limit) {
+        return CrudRepository.page(snapshot(), offset, limit);
+    }
+
+    @Override
+    public List<T> findAfter(String id, int limit) {
+        Rows current = rows;
+        int cursor = current.positionOf(id);
+        if (cursor < 0) {
+            return Collections.emptyList();
+        }
+        List<T> page = new ArrayList<>(Math.min(limit, 256));
+        int end = current.positionCount;
+        for (int position = cursor + 1; position < end && page.size() < limit; position++) {
+            int row = current.rowAt(position);
+            if (row != DELETED) {
+                page.add(layout.view(current.columns, row));
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public long count() {
+        return size;
+    }
+
+    @Override
+    public long deadBytes() {
+        return rows.store.deadBytes();
+    }
+
+    @Override
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public long versionOf(String id) {
+        Rows current = rows;
+        int position = current.positionOf(id);
+        int row = position < 0 ? DELETED : current.rowAt(position);
+        return row == DELETED ? -1 : current.store.version(row);
+    }
+
+    @Override
+    public T findById(String id) {
+        Rows current = rows;
+        int position = current.positionOf(id);
+        int row = position < 0 ? DELETED : current.rowAt(position);
+        return row == DELETED ? null : layout.view(current.columns, row);
+    }
+
+    @Override
+    public T update(String id, T entity) {
+        writeLock.lock();
+        try {
+            T updated = replace(id, entity);
+            if (updated != null) {
+                version++;
+                compactIfWasteful();
+            }
+            return updated;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<T> updateAll(Map<String, T> entities) {
+        List<T> updated = new ArrayList<>(entities.size());
+        writeLock.lock();
+        try {
+            for (Map.Entry<String, T> entity : entities.entrySet()) {
+                T result = replace(entity.getKey(), entity.getValue());
+                if (result != null) {
+                    updated.add(result);
+                }
+            }
+            version++;
+            compactIfWasteful();
+        } finally {
+            writeLock.unlock();
+        }
+        return updated;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        writeLock.lock();
+        try {
+            if (remove(id)) {
+                version++;
+                compactIfWasteful();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int deleteAllById(Collection<String> ids) {
+        int deleted = 0;
+        writeLock.lock();
+        try {
+            for (String id : ids) {
+                if (remove(id)) {
+                    deleted++;
+                }
+            }
+            version++;
+            compactIfWasteful();
+        } finally {
+            writeLock.unlock();
+        }
+        return deleted;
+    }
+
+    @Override
+    public void close() {
+        rows.store.close();
+    }
+
+    /**
+     * Number of strings the row store holds a copy of
+     */
+    int storedStrings() {
+        return rows.store.strings();
+    }
+
+    /**
+     * Copy the live rows into a fresh store and swap it in. A compaction that
+     * fails part way leaves the current store in place.
+     */
+    void compact() {
+        writeLock.lock();
+        try {
+            Rows previous = rows;
+            Rows compacted = new Rows(stores.get());
+            for (int position = 0; position < previous.positionCount; position++) {
+                int row = previous.rowAt(position);
+                if (row != DELETED) {
+                    compacted.appendPosition(compacted.copy(previous, row));
+                }
+            }
+            compacted.rehash();
+            // The previous store is left to the views and snapshots still reading it
+            rows = compacted;
+            liveRows.clear();
+            dirtyChunks.clear();
+            dirtyChunks.set(0, compacted.order.length);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void compactIfWasteful() {
+        long dead = rows.store.deadBytes();
+        if (dead < minCompactionBytes || 2 * dead < rows.store.storedBytes()) {
+            return;
+        }
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            // The write that got here has already succeeded; the next one tries again
+            LOG.warn("Compacting a row store failed", e);
+        }
+    }
+
+    private void put(T entity) {
+        Rows current = rows;
+        String id = codec.idOf(entity);
+        int position = current.appendPosition(current.append(entity, id, ++rowVersion));
+        size++;
+        if (id == null) {
+            return;
+        }
+        Key key = Key.of(id);
+        int slot = current.slotOf(key);
+        if (slot < 0) {
+            current.claimSlot(key, position);
+        } else {
+            // Same ID created again: it moves to the end of the insertion order
+            current.kill(current.slots.get(slot) - 1);
+            current.slots.set(slot, position + 1);
+        }
+    }
+
+    private T replace(String id, T entity) {
+        Rows current = rows;
+        int slot = id == null ? -1 : current.slotOf(Key.of(id));
+        if (slot < 0) {
+            return null;
+        }
+        int position = current.slots.get(slot) - 1;
+        int previous = current.rowAt(position);
+        if (current.store.version(previous) > snapshotRowVersion
+                && current.store.rewrite(previous, strings(entity), ints(entity), ++rowVersion)) {
+            return layout.view(current.columns, previous);
+        }
+        int row = current.append(entity, id, ++rowVersion);
+        current.setRow(position, row);
+        current.store.release(previous);
+        return layout.view(current.columns, row);
+    }
+
+    private boolean remove(String id) {
+        Rows current = rows;
+        int slot = id == null ? -1 : current.slotOf(Key.of(id));
+        if (slot < 0) {
+            return false;
+        }
+        current.kill(current.slots.get(slot) - 1);
+        current.slots.set(slot, REMOVED_SLOT);
+        return true;
+    }
+
+    private String[] strings(T entity) {
+        String[] strings = new String[layout.stringColumns()];
+        for (int column = 0; column < strings.length; column++) {
+            strings[column] = layout.stringColumn(entity, column);
+        }
+        return strings;
+    }
+
+    private int[] ints(T entity) {
+        int[] ints = new int[layout.intColumns()];
+        for (int column = 0; column < ints.length; column++) {
+            ints[column] = layout.intColumn(entity, column);
+        }
+        return ints;
+    }
+
+    private void rebuildChunk(int chunk) {
+        Rows current = rows;
+        int from = chunk << ORDER_CHUNK_SHIFT;
+        int to = Math.min(current.positionCount, from + (1 << ORDER_CHUNK_SHIFT));
+        int[] live = new int[to - from];
+        int count = 0;
+        for (int position = from; position < to; position++) {
+            int row = current.rowAt(position);
+            if (row != DELETED) {
+                live[count++] = row;
+            }
+        }
+        while (liveRows.size() <= chunk) {
+            liveRows.add(new int[0]);
+        }
+        liveRows.set(chunk, Arrays.copyOf(live, count));
+    }
+
+    /**
+     * One row store with the insertion order and ID table over its rows.
+     * Compaction replaces all of it at once, so a reader that takes the
+     * current rows once never mixes row numbers of two stores.
+     */
+    private final class Rows {
+        private final RowStore store;
+        private final Map<Integer, String> otherIds = new ConcurrentHashMap<>();
+        private final CompactLayout.Columns columns = new RowColumns(this);
+
+        // Insertion order: position to current row, or DELETED
+        private volatile AtomicIntegerArray[] order = new AtomicIntegerArray[0];
+        private volatile int positionCount;
+
+        // Open-addressing ID table: slot to position + 1
+        private volatile AtomicIntegerArray slots = new AtomicIntegerArray(16);
+        private int usedSlots;
+
+        private Rows(RowStore store) {
+            this.store = store;
+        }
+
+        private int append(T entity, String id, long rowVersion) {
+            Key key = id == null ? null : Key.of(id);
+            int row = key == null || key.other != null
+                    ? store.append(0, 0, strings(entity), ints(entity), rowVersion)
+                    : store.append(key.high, key.low, strings(entity), ints(entity), rowVersion);
+            if (key != null && key.other != null) {
+                otherIds.put(row, id);
+            }
+            return row;
+        }
+
+        /**
+         * Append a copy of another store's row, keeping its version
+         */
+        private int copy(Rows from, int row) {
+            String[] strings = new String[layout.stringColumns()];
+            for (int column = 0; column < strings.length; column++) {
+                strings[column] = from.store.string(row, column);
+            }
+            int[] ints = new int[layout.intColumns()];
+            for (int column = 0; column < ints.length; column++) {
+                ints[column] = from.store.integer(row, column);
+            }
+            int copy = store.append(from.store.idHigh(row), from.store.idLow(row), strings, ints,
+                    from.store.version(row));
+            String other = from.otherIds.get(row);
+            if (other != null) {
+                otherIds.put(copy, other);
+            }
+            return copy;
+        }
+
+        private void kill(int position) {
+            int row = rowAt(position);
+            setRow(position, DELETED);
+            store.release(row);
+            size--;
+        }
+
+        private int appendPosition(int row) {
+            int position = positionCount;
+            AtomicIntegerArray[] chunks = order;
+            if ((position >>> ORDER_CHUNK_SHIFT) == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunks.length + 1);
+                chunks[chunks.length - 1] = new AtomicIntegerArray(1 << ORDER_CHUNK_SHIFT);
+                order = chunks;
+            }
+            setRow(position, row);
+            positionCount = position + 1;
+            return position;
+        }
+
+        private void setRow(int position, int row) {
+            order[position >>> ORDER_CHUNK_SHIFT].set(position & ((1 << ORDER_CHUNK_SHIFT) - 1), row);
+            dirtyChunks.set(position >>> ORDER_CHUNK_SHIFT);
+        }
+
+        private int rowAt(int position) {
+            return order[position >>> ORDER_CHUNK_SHIFT].get(position & ((1 << ORDER_CHUNK_SHIFT) - 1));
+        }
+
+        /**
+         * Find the position of a live entity without locking, or -1
+         */
+        private int positionOf(String id) {
+            if (id == null) {
+                return -1;
+            }
+            Key key = Key.of(id);
+            AtomicIntegerArray table = slots;
+            int mask = table.length() - 1;
+            for (int slot = key.hash & mask; ; slot = (slot + 1) & mask) {
+                int entry = table.get(slot);
+                if (entry == EMPTY_SLOT) {
+                    return -1;
+                }
+                if (entry != REMOVED_SLOT && matches(key, rowAt(entry - 1))) {
+                    return entry - 1;
+                }
+            }
+        }
+
+        /**
+         * Find the table slot of a live entity under the write lock, or -1
+         */
+        private int slotOf(Key key) {
+            int mask = slots.length() - 1;
+            for (int slot = key.hash & mask; ; slot = (slot + 1) & mask) {
+                int entry = slots.get(slot);
+                if (entry == EMPTY_SLOT) {
+                    return -1;
+                }
+                if (entry != REMOVED_SLOT && matches(key, rowAt(entry - 1))) {
+                    return slot;
+                }
+            }
+        }
+
+        private void claimSlot(Key key, int position) {
+            int mask = slots.length() - 1;
+            int slot = key.hash & mask;
+            while (slots.get(slot) > 0) {
+                slot = (slot + 1) & mask;
+            }
+            if (slots.get(slot) == EMPTY_SLOT) {
+                usedSlots++;
+            }
+            slots.set(slot, position + 1);
+            if (usedSlots * 2 > slots.length()) {
+                rehash();
+            }
+        }
+
+        /**
+         * Rebuild the ID table without removed slots, sized for the live entities
+         */
+        private void rehash() {
+            int capacity = Integer.highestOneBit(Math.max(16, size * 4) - 1) << 1;
+            AtomicIntegerArray table = new AtomicIntegerArray(capacity);
+            int used = 0;
+            for (int position = 0; position < positionCount; position++) {
+                int row = rowAt(position);
+                Key key = row == DELETED ? null : keyOf(row);
+                if (key == null) {
+                    continue;
+                }
+                int slot = key.hash & (capacity - 1);
+                while (table.get(slot) != EMPTY_SLOT) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                table.set(slot, position + 1);
+                used++;
+            }
+            usedSlots = used;
+            slots = table;
+        }
+
+        private boolean matches(Key key, int row) {
+            if (row == DELETED) {
+                return false;
+            }
+            long high = store.idHigh(row);
+            long low = store.idLow(row);
+            if (key.other == null) {
+                return high == key.high && low == key.low;
+            }
+            return high == 0 && low == 0 && key.other.equals(otherIds.get(row));
+        }
+
+        private Key keyOf(int row) {
+            long high = store.idHigh(row);
+            long low = store.idLow(row);
+            if ((high | low) != 0) {
+                return new Key(high, low, null);
+            }
+            String id = otherIds.get(row);
+            return id == null ? null : Key.of(id);
+        }
+    }
+
+    /**
+     * An ID parsed for lookup: a UUID as two non-zero longs, or any other string
+     */
+    private record Key(long high, long low, String other, int hash) {
+
+        private Key(long high, long low, String other) {
+            this(high, low, other, spread(other == null ? high ^ low : other.hashCode()));
+        }
+
+        static Key of(String id) {
+            if (id.length() == 36 && id.charAt(8) == '-' && id.charAt(13) == '-'
+                    && id.charAt(18) == '-' && id.charAt(23) == '-') {
+                long timeLow = hex(id, 0, 8);
+                long timeMid = hex(id, 9, 13);
+                long timeHigh = hex(id, 14, 18);
+                long clock = hex(id, 19, 23);
+                long node = hex(id, 24, 36);
+                long high = timeLow << 32 | timeMid << 16 | timeHigh;
+                long low = clock << 48 | node;
+                // A malformed group parses as -1, which makes the combined check negative
+                if ((timeLow | timeMid | timeHigh | clock | node) >= 0 && (high | low) != 0) {
+                    return new Key(high, low, null);
+                }
+            }
+            return new Key(0, 0, id);
+        }
+
+        /**
+         * Parse lowercase hex digits, or return -1 so the ID round-trips through {@link UUID#toString()}
+         */
+        private static long hex(String id, int from, int to) {
+            long value = 0;
+            for (int i = from; i < to; i++) {
+                char c = id.charAt(i);
+                int digit = c >= '0' && c <= '9' ? c - '0' : c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+                if (digit < 0) {
+                    return -1;
+                }
+                value = value << 4 | digit;
+            }
+            return value;
+        }
+
+        private static int spread(long hash) {
+            hash *= 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+
+    private final class RowColumns implements CompactLayout.Columns {
+        private final Rows rows;
+
+        private RowColumns(Rows rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public String id(int row) {
+            long high = rows.store.idHigh(row);
+            long low = rows.store.idLow(row);
+            return (high | low) != 0 ? new UUID(high, low).toString() : rows.otherIds.get(row);
+        }
+
+        @Override
+        public String string(int row, int column) {
+            return rows.store.string(row, column);
+        }
+
+        @Override
+        public int integer(int row, int column) {
+            return rows.store.integer(row, column);
+        }
+    }
+
+    /**
+     * Live rows in insertion order at one version, viewed as entities on access
+     */
+    private final class RowSnapshot extends AbstractList<T> implements RandomAccess {
+        private final long version;
+        private final CompactLayout.Columns columns;
+        private final int[][] chunks;
+        private final int[] chunkStarts;
+        private final int size;
+
+        private RowSnapshot(long version, CompactLayout.Columns columns, int[][] chunks) {
+            this.version = version;
+            this.columns = columns;
+            this.chunks = chunks;
+            this.chunkStarts = new int[chunks.length];
+            int total = 0;
+            for (int i = 0; i < chunks.length; i++) {
+                chunkStarts[i] = total;
+                total += chunks[i].length;
+            }
+            this.size = total;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            int chunk = Arrays.binarySearch(chunkStarts, index);
+            if (chunk < 0) {
+                chunk = -chunk - 2;
+            }
+            return layout.view(columns, chunks[chunk][index - chunkStarts[chunk]]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
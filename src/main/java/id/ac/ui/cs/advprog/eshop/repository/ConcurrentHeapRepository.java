@@ -0,0 +1,178 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Heap storage engine. Stored entities are private snapshots that are never
+ * modified after they are published, so an update is a single volatile write
+ * and readers never block or observe a half-applied update. Readers get
+ * copies, so a caller that changes an entity it was handed never changes the
+ * stored one behind the locks, versions and indexes above this engine.
+ *
+ * @param <T> The entity type stored by this engine
+ */
+public class ConcurrentHeapRepository<T> implements CrudRepository<T, String> {
+    private final EntityCodec<T> codec;
+    private final OrderedIndex<T> index = new OrderedIndex<>();
+    private volatile Copies snapshotCopies = new Copies(List.of());
+
+    public ConcurrentHeapRepository(EntityCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public T create(T entity) {
+        String id = codec.idOf(entity);
+        index.insert(id, codec.copyOf(entity, id));
+        return entity;
+    }
+
+    @Override
+    public List<T> createAll(List<T> entities) {
+        List<String> ids = new ArrayList<>(entities.size());
+        List<T> copies = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            String id = codec.idOf(entity);
+            ids.add(id);
+            copies.add(codec.copyOf(entity, id));
+        }
+        index.insertAll(ids, copies);
+        return entities;
+    }
+
+    @Override
+    public Iterator<T> findAll() {
+        Iterator<OrderedIndex.Entry<T>> entries = index.entries().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return copyOf(entries.next().value());
+            }
+        };
+    }
+
+    @Override
+    public List<T> snapshot() {
+        List<T> stored = index.snapshot();
+        Copies current = snapshotCopies;
+        if (current.stored != stored) {
+            current = new Copies(stored);
+            snapshotCopies = current;
+        }
+        return current;
+    }
+
+    @Override
+    public List<T> findPage(long offset, int limit) {
+        return CrudRepository.page(snapshot(), offset, limit);
+    }
+
+    @Override
+    public List<T> findAfter(String id, int limit) {
+        return values(index.after(id, limit));
+    }
+
+    @Override
+    public long count() {
+        return index.size();
+    }
+
+    @Override
+    public long version() {
+        return index.version();
+    }
+
+    @Override
+    public long versionOf(String id) {
+        OrderedIndex.Entry<?> entry = index.get(id);
+        return entry == null ? -1 : entry.stamp();
+    }
+
+    @Override
+    public T findById(String id) {
+        OrderedIndex.Entry<T> entry = index.get(id);
+        return entry == null ? null : copyOf(entry.value());
+    }
+
+    @Override
+    public T update(String id, T entity) {
+        if (index.get(id) == null) {
+            return null;
+        }
+        // Build the complete new state first, then publish it in one write
+        T snapshot = codec.copyOf(entity, id);
+        return index.update(id, snapshot) == null ? null : copyOf(snapshot);
+    }
+
+    @Override
+    public List<T> updateAll(Map<String, T> entities) {
+        List<String> ids = new ArrayList<>(entities.size());
+        List<T> copies = new ArrayList<>(entities.size());
+        for (Map.Entry<String, T> entity : entities.entrySet()) {
+            ids.add(entity.getKey());
+            copies.add(codec.copyOf(entity.getValue(), entity.getKey()));
+        }
+        List<OrderedIndex.Entry<T>> updated = index.updateAll(ids, copies);
+        List<T> values = new ArrayList<>(updated.size());
+        for (int i = 0; i < updated.size(); i++) {
+            if (updated.get(i) != null) {
+                values.add(copyOf(copies.get(i)));
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        index.remove(id);
+    }
+
+    @Override
+    public int deleteAllById(Collection<String> ids) {
+        return index.removeAll(ids);
+    }
+
+    private List<T> values(List<OrderedIndex.Entry<T>> entries) {
+        List<T> values = new ArrayList<>(entries.size());
+        for (OrderedIndex.Entry<T> entry : entries) {
+            values.add(copyOf(entry.value()));
+        }
+        return values;
+    }
+
+    private T copyOf(T stored) {
+        return codec.copyOf(stored, codec.idOf(stored));
+    }
+
+    /**
+     * One index snapshot handed out as copies of its entities, made on access
+     */
+    private final class Copies extends AbstractList<T> implements RandomAccess {
+        private final List<T> stored;
+
+        private Copies(List<T> stored) {
+            this.stored = stored;
+        }
+
+        @Override
+        public T get(int index) {
+            return copyOf(stored.get(index));
+        }
+
+        @Override
+        public int size() {
+            return stored.size();
+        }
+    }
+}
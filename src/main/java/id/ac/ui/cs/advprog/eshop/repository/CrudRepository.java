@@ -0,0 +1,138 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage SPI shared by every entity repository. Implementations decide where
+ * the entities live (heap, off-heap, memory-mapped file) but must keep
+ * insertion order for {@link #findAll()} and be safe under concurrent writers.
+ *
+ * @param <T>  The entity type stored by the repository
+ * @param <ID> The type of the entity identifier
+ */
+public interface CrudRepository<T, ID> extends AutoCloseable {
+
+    /**
+     * Store a new entity, replacing any entity that already has the same ID
+     */
+    T create(T entity);
+
+    /**
+     * Iterate over all entities in insertion order
+     */
+    Iterator<T> findAll();
+
+    /**
+     * Get an immutable, consistent view of all entities in insertion order. The
+     * view is shared by readers until the next write and must not be copied by callers.
+     */
+    List<T> snapshot();
+
+    /**
+     * Get up to {@code limit} entities starting at {@code offset} in insertion order
+     */
+    List<T> findPage(long offset, int limit);
+
+    /**
+     * Get up to {@code limit} entities inserted after the entity with the given ID,
+     * or an empty list when that entity does not exist
+     */
+    List<T> findAfter(ID id, int limit);
+
+    /**
+     * Count the stored entities
+     */
+    long count();
+
+    /**
+     * Modification version of the whole collection. It grows after every write,
+     * so reading it before the data it describes never yields a stale pairing.
+     */
+    long version();
+
+    /**
+     * Modification version of one entity, or -1 when it does not exist
+     */
+    long versionOf(ID id);
+
+    /**
+     * Find an entity by ID, or {@code null} when it does not exist
+     */
+    T findById(ID id);
+
+    /**
+     * Replace the entity with the given ID, or return {@code null} when it does not exist
+     */
+    T update(ID id, T entity);
+
+    /**
+     * Delete the entity with the given ID if it exists
+     */
+    void deleteById(ID id);
+
+    /**
+     * Store several entities in order, as if {@link #create(Object)} were called for each
+     */
+    default List<T> createAll(List<T> entities) {
+        for (T entity : entities) {
+            create(entity);
+        }
+        return entities;
+    }
+
+    /**
+     * Replace several entities keyed by ID, returning the updated entities for the IDs that exist
+     */
+    default List<T> updateAll(Map<ID, T> entities) {
+        List<T> updated = new ArrayList<>(entities.size());
+        for (Map.Entry<ID, T> entity : entities.entrySet()) {
+            T result = update(entity.getKey(), entity.getValue());
+            if (result != null) {
+                updated.add(result);
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Delete the entities with the given IDs, returning how many of them existed
+     */
+    default int deleteAllById(Collection<ID> ids) {
+        int deleted = 0;
+        for (ID id : ids) {
+            if (findById(id) != null) {
+                deleteById(id);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Bytes still held by replaced and deleted entities that the engine has not
+     * reclaimed yet; zero for engines that never hold on to them
+     */
+    default long deadBytes() {
+        return 0;
+    }
+
+    /**
+     * Slice a page out of a snapshot without copying it
+     */
+    static <T> List<T> page(List<T> snapshot, long offset, int limit) {
+        int from = (int) Math.min(offset, snapshot.size());
+        int to = (int) Math.min((long) from + limit, snapshot.size());
+        return snapshot.subList(from, to);
+    }
+
+    /**
+     * Release any resources held by the storage engine
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,101 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes of a storage engine that makes them durable only after applying
+ * them. A decorator that holds its own locks around a write logs and applies
+ * it through these methods, releases its locks and only then waits in
+ * {@link #awaitCommit(long)}, so writers queued behind those locks join the
+ * same group commit instead of each waiting out the one before.
+ *
+ * @param <T> The entity type stored by the engine
+ */
+interface DeferredCommits<T> {
+
+    /**
+     * Log and apply a {@link CrudRepository#create create}
+     */
+    Logged<T> logCreate(T entity);
+
+    /**
+     * Log and apply an {@link CrudRepository#update update}
+     */
+    Logged<T> logUpdate(String id, T entity);
+
+    /**
+     * Log and apply a {@link CrudRepository#deleteById delete}
+     */
+    Logged<Void> logDelete(String id);
+
+    /**
+     * Log and apply a {@link CrudRepository#createAll batch create}
+     */
+    Logged<List<T>> logCreateAll(List<T> entities);
+
+    /**
+     * Log and apply a {@link CrudRepository#updateAll batch update}
+     */
+    Logged<List<T>> logUpdateAll(Map<String, T> entities);
+
+    /**
+     * Log and apply a {@link CrudRepository#deleteAllById batch delete}
+     */
+    Logged<Integer> logDeleteAll(Collection<String> ids);
+
+    /**
+     * Block until every record up to the given log position is durable
+     */
+    void awaitCommit(long lsn);
+
+    /**
+     * Result of an applied write and the log position its commit waits for, zero when nothing was logged
+     */
+    record Logged<R>(R result, long lsn) {
+    }
+
+    /**
+     * Writes of an engine that keeps nothing to commit, applied directly
+     */
+    static <T> DeferredCommits<T> applying(CrudRepository<T, String> engine) {
+        return new DeferredCommits<>() {
+            @Override
+            public Logged<T> logCreate(T entity) {
+                return new Logged<>(engine.create(entity), 0);
+            }
+
+            @Override
+            public Logged<T> logUpdate(String id, T entity) {
+                return new Logged<>(engine.update(id, entity), 0);
+            }
+
+            @Override
+            public Logged<Void> logDelete(String id) {
+                engine.deleteById(id);
+                return new Logged<>(null, 0);
+            }
+
+            @Override
+            public Logged<List<T>> logCreateAll(List<T> entities) {
+                return new Logged<>(engine.createAll(entities), 0);
+            }
+
+            @Override
+            public Logged<List<T>> logUpdateAll(Map<String, T> entities) {
+                return new Logged<>(engine.updateAll(entities), 0);
+            }
+
+            @Override
+            public Logged<Integer> logDeleteAll(Collection<String> ids) {
+                return new Logged<>(engine.deleteAllById(ids), 0);
+            }
+
+            @Override
+            public void awaitCommit(long lsn) {
+                // Applied writes are already as durable as this engine makes them
+            }
+        };
+    }
+}
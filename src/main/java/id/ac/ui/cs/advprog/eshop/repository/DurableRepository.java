@@ -0,0 +1,451 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Makes any storage engine durable. Every mutation is applied to the wrapped
+ * engine and recorded in a {@link WriteAheadLog}; a periodic checkpoint
+ * rotates the log, writes a compacted snapshot of the engine and deletes the
+ * log segments the snapshot covers. On startup the latest snapshot is mapped
+ * rather than loaded (see {@link MappedSnapshot}) and only the log tail is
+ * replayed, so recovery time follows the write rate, not the catalog size.
+ * After each checkpoint the repository rebases the same way onto the snapshot
+ * it just wrote and a fresh engine, so the overrides and tombstones kept on
+ * top of a snapshot never outlive one checkpoint interval.
+ * <p>
+ * Writes to the same ID are serialized by a striped lock around "log, then
+ * apply", so the log order for an entity always matches the order in which
+ * its changes became visible, and a write whose record cannot be logged never
+ * becomes visible. Batch writes take every stripe they touch in index order,
+ * log every record, apply the whole batch in one engine call and wait for a
+ * single commit.
+ * <p>
+ * Every write waits for its commit only after releasing its stripes, so
+ * writers queued behind it share the next group commit. Decorators with locks
+ * of their own do the same through {@link DeferredCommits}.
+ *
+ * @param <T> The entity type stored by the wrapped engine
+ */
+public class DurableRepository<T> implements CrudRepository<T, String>, DeferredCommits<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(DurableRepository.class);
+    private static final byte CREATE = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+
+    private final Supplier<CrudRepository<T, String>> engines;
+    private final EntityCodec<T> codec;
+    private final Path snapshotFile;
+    private final WriteAheadLog log;
+    private final StripedLocks stripes;
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private final AtomicLong writesSinceCheckpoint = new AtomicLong();
+    private final ScheduledExecutorService checkpointer;
+    private volatile CrudRepository<T, String> delegate;
+
+    /**
+     * @param engines Opens an empty storage engine; called on startup and again after every checkpoint
+     */
+    public DurableRepository(Supplier<CrudRepository<T, String>> engines, EntityCodec<T> codec, Path directory,
+                             String name, boolean syncOnCommit, Duration flushInterval,
+                             Duration checkpointInterval) {
+        this(engines, codec, directory, name, syncOnCommit, flushInterval, checkpointInterval, () -> { });
+    }
+
+    DurableRepository(Supplier<CrudRepository<T, String>> engines, EntityCodec<T> codec, Path directory,
+                      String name, boolean syncOnCommit, Duration flushInterval, Duration checkpointInterval,
+                      Runnable beforeFlush) {
+        this.engines = engines;
+        this.codec = codec;
+        this.snapshotFile = directory.resolve(name + ".snapshot");
+        this.stripes = new StripedLocks(name, "log");
+
+        this.log = new WriteAheadLog(directory, name, syncOnCommit, flushInterval, beforeFlush);
+        try {
+            this.delegate = recover(engines.get());
+        } catch (IOException e) {
+            log.close();
+            throw new UncheckedIOException("Cannot recover " + name + " from " + directory, e);
+        }
+
+        this.checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = checkpointInterval.toMillis();
+        checkpointer.scheduleWithFixedDelay(this::checkpointIfDirty, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public T create(T entity) {
+        return committed(logCreate(entity));
+    }
+
+    @Override
+    public T update(String id, T entity) {
+        return committed(logUpdate(id, entity));
+    }
+
+    @Override
+    public void deleteById(String id) {
+        committed(logDelete(id));
+    }
+
+    @Override
+    public List<T> createAll(List<T> entities) {
+        return committed(logCreateAll(entities));
+    }
+
+    @Override
+    public List<T> updateAll(Map<String, T> entities) {
+        return committed(logUpdateAll(entities));
+    }
+
+    @Override
+    public int deleteAllById(Collection<String> ids) {
+        return committed(logDeleteAll(ids));
+    }
+
+    @Override
+    public Logged<T> logCreate(T entity) {
+        String id = codec.idOf(entity);
+        ReentrantLock stripe = stripes.lock(id);
+        try {
+            long lsn = log.append(CREATE, encode(entity));
+            delegate.create(entity);
+            return logged(entity, lsn);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public Logged<T> logUpdate(String id, T entity) {
+        if (id == null) {
+            return new Logged<>(null, 0);
+        }
+        ReentrantLock stripe = stripes.lock(id);
+        try {
+            if (delegate.versionOf(id) < 0) {
+                return new Logged<>(null, 0);
+            }
+            long lsn = log.append(UPDATE, encode(codec.copyOf(entity, id)));
+            return logged(delegate.update(id, entity), lsn);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public Logged<Void> logDelete(String id) {
+        if (id == null) {
+            return new Logged<>(null, 0);
+        }
+        ReentrantLock stripe = stripes.lock(id);
+        try {
+            if (delegate.versionOf(id) < 0) {
+                return new Logged<>(null, 0);
+            }
+            long lsn = log.append(DELETE, encodeId(id));
+            delegate.deleteById(id);
+            return logged(null, lsn);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public Logged<List<T>> logCreateAll(List<T> entities) {
+        List<String> ids = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            ids.add(codec.idOf(entity));
+        }
+        long lsn = 0;
+        int[] locked = stripes.lockAll(ids);
+        try {
+            for (T entity : entities) {
+                lsn = log.append(CREATE, encode(entity));
+            }
+            delegate.createAll(entities);
+            return logged(entities, lsn);
+        } finally {
+            stripes.unlockAll(locked);
+        }
+    }
+
+    @Override
+    public Logged<List<T>> logUpdateAll(Map<String, T> entities) {
+        long lsn = 0;
+        int[] locked = stripes.lockAll(entities.keySet());
+        try {
+            for (Map.Entry<String, T> entity : entities.entrySet()) {
+                if (delegate.versionOf(entity.getKey()) >= 0) {
+                    lsn = log.append(UPDATE, encode(codec.copyOf(entity.getValue(), entity.getKey())));
+                }
+            }
+            return logged(delegate.updateAll(entities), lsn);
+        } finally {
+            stripes.unlockAll(locked);
+        }
+    }
+
+    @Override
+    public Logged<Integer> logDeleteAll(Collection<String> ids) {
+        List<String> existing = new ArrayList<>(ids.size());
+        long lsn = 0;
+        int[] locked = stripes.lockAll(ids);
+        try {
+            for (String id : ids) {
+                if (delegate.versionOf(id) >= 0) {
+                    existing.add(id);
+                    lsn = log.append(DELETE, encodeId(id));
+                }
+            }
+            delegate.deleteAllById(existing);
+            return logged(existing.size(), lsn);
+        } finally {
+            stripes.unlockAll(locked);
+        }
+    }
+
+    @Override
+    public void awaitCommit(long lsn) {
+        log.commit(lsn);
+    }
+
+    @Override
+    public Iterator<T> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<T> snapshot() {
+        return delegate.snapshot();
+    }
+
+    @Override
+    public List<T> findPage(long offset, int limit) {
+        return delegate.findPage(offset, limit);
+    }
+
+    @Override
+    public List<T> findAfter(String id, int limit) {
+        return delegate.findAfter(id, limit);
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public long deadBytes() {
+        return delegate.deadBytes();
+    }
+
+    @Override
+    public long version() {
+        return delegate.version();
+    }
+
+    @Override
+    public long versionOf(String id) {
+        return delegate.versionOf(id);
+    }
+
+    @Override
+    public T findById(String id) {
+        return delegate.findById(id);
+    }
+
+    /**
+     * Write a compacted snapshot, drop the log segments it covers and rebase
+     * onto it.
+     * <p>
+     * The log is rotated and the engine snapshot taken together while holding
+     * every stripe, so the snapshot holds exactly the records of the older
+     * segments. The old segments are deleted only once the snapshot's rename
+     * is on disk, and the dirty count is only cleared once all of that
+     * succeeded.
+     * <p>
+     * Writes go on while the snapshot is written, and land in the log segments
+     * that are kept. The rebase holds every stripe again, replays those
+     * segments onto the new snapshot and a fresh engine, and swaps the result
+     * in, so writers wait only while the writes made during the checkpoint are
+     * replayed. A failed rebase keeps the current engine, which still holds
+     * everything.
+     */
+    public void checkpoint() {
+        checkpoint(true);
+    }
+
+    private void checkpoint(boolean rebase) {
+        checkpointLock.lock();
+        try {
+            long writes = writesSinceCheckpoint.get();
+            int firstKept;
+            long snapshotLsn;
+            List<T> entities;
+            int[] locked = stripes.lockEverything();
+            try {
+                firstKept = log.rotate();
+                snapshotLsn = log.appended();
+                entities = delegate.snapshot();
+            } finally {
+                stripes.unlockAll(locked);
+            }
+            writeSnapshot(entities);
+            log.deleteSegmentsBefore(firstKept);
+            writesSinceCheckpoint.addAndGet(-writes);
+            if (rebase) {
+                rebase(firstKept, snapshotLsn);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot checkpoint " + snapshotFile, e);
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        checkpointer.shutdown();
+        try {
+            checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            // Nothing reads the repository after closing, so the engine is kept as it is
+            checkpoint(false);
+        } finally {
+            log.close();
+            delegate.close();
+        }
+    }
+
+    private void checkpointIfDirty() {
+        if (writesSinceCheckpoint.get() == 0) {
+            return;
+        }
+        // An exception escaping a scheduled task would cancel every later checkpoint
+        try {
+            checkpoint();
+        } catch (RuntimeException e) {
+            LOG.error("Checkpoint of {} failed; retrying at the next interval", snapshotFile, e);
+        }
+    }
+
+    private <R> Logged<R> logged(R result, long lsn) {
+        if (lsn > 0) {
+            writesSinceCheckpoint.incrementAndGet();
+        }
+        return new Logged<>(result, lsn);
+    }
+
+    private <R> R committed(Logged<R> write) {
+        awaitCommit(write.lsn());
+        return write.result();
+    }
+
+    /**
+     * Swap in the snapshot just written, with an empty engine on top of it
+     * that catches up on the writes logged since the snapshot was taken
+     */
+    private void rebase(int firstKept, long snapshotLsn) throws IOException {
+        CrudRepository<T, String> previous;
+        MappedSnapshot<T> snapshot = MappedSnapshot.open(snapshotFile, codec);
+        CrudRepository<T, String> engine = engines.get();
+        int[] locked = stripes.lockEverything();
+        try {
+            CrudRepository<T, String> rebased =
+                    new SnapshotOverlayRepository<>(snapshot, codec, engine, delegate.version());
+            // Only writes logged since the snapshot need replaying, and replay reads closed segments
+            if (log.appended() != snapshotLsn) {
+                log.rotate();
+                log.replay(firstKept, replayer(rebased));
+            }
+            previous = delegate;
+            delegate = rebased;
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Rebasing {} onto its new snapshot failed; keeping the current engine", snapshotFile, e);
+            engine.close();
+            return;
+        } finally {
+            stripes.unlockAll(locked);
+        }
+        previous.close();
+    }
+
+    private CrudRepository<T, String> recover(CrudRepository<T, String> engine) throws IOException {
+        CrudRepository<T, String> recovered = Files.exists(snapshotFile)
+                ? new SnapshotOverlayRepository<>(MappedSnapshot.open(snapshotFile, codec), codec, engine)
+                : engine;
+        log.replay(0, replayer(recovered));
+        return recovered;
+    }
+
+    private WriteAheadLog.RecordHandler replayer(CrudRepository<T, String> target) {
+        // The snapshot holds exactly the records before the segments that are
+        // kept, so each record is applied as it originally was
+        return (type, payload) -> {
+            switch (type) {
+                case CREATE -> target.create(codec.read(payload));
+                case UPDATE -> {
+                    T entity = codec.read(payload);
+                    target.update(codec.idOf(entity), entity);
+                }
+                case DELETE -> target.deleteById(payload.readUTF());
+                default -> throw new IOException("Unknown log record type " + type);
+            }
+        };
+    }
+
+    private void writeSnapshot(List<T> entities) throws IOException {
+        Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        MappedSnapshot.write(temporary, entities, codec);
+        Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        WriteAheadLog.syncDirectory(snapshotFile.getParent());
+    }
+
+    private byte[] encode(T entity) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            codec.write(entity, new DataOutputStream(bytes));
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] encodeId(String id) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(40);
+            new DataOutputStream(bytes).writeUTF(id);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Describes how a storage engine copies, identifies and serializes an entity.
+ *
+ * @param <T> The entity type handled by this codec
+ */
+public interface EntityCodec<T> {
+
+    /**
+     * Get the ID of an entity, which may be {@code null}
+     */
+    String idOf(T entity);
+
+    /**
+     * Create a detached copy of an entity carrying the given ID
+     */
+    T copyOf(T entity, String id);
+
+    /**
+     * Write an entity in the engine's binary record format
+     */
+    void write(T entity, DataOutput out) throws IOException;
+
+    /**
+     * Read an entity written by {@link #write(Object, DataOutput)}
+     */
+    T read(DataInput in) throws IOException;
+
+    /**
+     * Longest string, in modified UTF-8 bytes, that a record field can hold
+     */
+    int MAX_STRING_BYTES = 65535;
+
+    /**
+     * Check that a string fits in a record field, so callers can reject it
+     * before it reaches a storage engine
+     */
+    static boolean fitsString(String value) {
+        if (value == null || value.length() <= MAX_STRING_BYTES / 3) {
+            return true;
+        }
+        if (value.length() > MAX_STRING_BYTES) {
+            return false;
+        }
+        long bytes = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            bytes += c >= 1 && c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+        }
+        return bytes <= MAX_STRING_BYTES;
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,36 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Exact-match secondary index; a lookup costs O(1 + k) for k matches.
+ *
+ * @param <T> The entity type being indexed
+ */
+final class HashIndex<T> extends AttributeIndex<T> {
+    private final ConcurrentHashMap<String, Set<String>> entries;
+
+    HashIndex(Function<T, String> attribute) {
+        this(attribute, new ConcurrentHashMap<>());
+    }
+
+    private HashIndex(Function<T, String> attribute, ConcurrentHashMap<String, Set<String>> entries) {
+        super(attribute, entries);
+        this.entries = entries;
+    }
+
+    /**
+     * IDs of the entities whose attribute equals the value, ignoring case
+     */
+    Set<String> idsEqualTo(String value) {
+        String key = normalize(value);
+        return key == null ? Set.of() : entries.getOrDefault(key, Set.of());
+    }
+
+    boolean matches(T entity, String value) {
+        String key = keyOf(entity);
+        return key != null && key.equals(normalize(value));
+    }
+}
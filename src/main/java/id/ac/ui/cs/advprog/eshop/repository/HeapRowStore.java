@@ -0,0 +1,132 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * {@link RowStore} of primitive arrays on the Java heap, with strings stored
+ * as {@link StringDictionary} codes. Rows are grouped into chunks so growing
+ * the store never copies them. An update that keeps every string overwrites
+ * the ints of its row in place.
+ */
+final class HeapRowStore implements RowStore {
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    private final int stringColumns;
+    private final int intColumns;
+    private final int rowBytes;
+    private final StringDictionary dictionary = new StringDictionary();
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile int rowCount;
+    private volatile int releasedRows;
+
+    HeapRowStore(int stringColumns, int intColumns) {
+        this.stringColumns = stringColumns;
+        this.intColumns = intColumns;
+        // The ID, the version and one int per string code and int column
+        this.rowBytes = 24 + 4 * (stringColumns + intColumns);
+    }
+
+    @Override
+    public int append(long idHigh, long idLow, String[] strings, int[] ints, long version) {
+        int row = rowCount;
+        Chunk[] current = chunks;
+        if ((row >>> CHUNK_SHIFT) == current.length) {
+            current = Arrays.copyOf(current, current.length + 1);
+            current[current.length - 1] = new Chunk(stringColumns, intColumns);
+            chunks = current;
+        }
+        Chunk chunk = current[row >>> CHUNK_SHIFT];
+        int offset = row & CHUNK_MASK;
+        chunk.idHigh[offset] = idHigh;
+        chunk.idLow[offset] = idLow;
+        chunk.versions[offset] = version;
+        for (int column = 0; column < stringColumns; column++) {
+            chunk.strings[column][offset] = dictionary.encode(strings[column]);
+        }
+        for (int column = 0; column < intColumns; column++) {
+            chunk.ints[column][offset] = ints[column];
+        }
+        rowCount++;
+        return row;
+    }
+
+    @Override
+    public long idHigh(int row) {
+        return chunks[row >>> CHUNK_SHIFT].idHigh[row & CHUNK_MASK];
+    }
+
+    @Override
+    public long idLow(int row) {
+        return chunks[row >>> CHUNK_SHIFT].idLow[row & CHUNK_MASK];
+    }
+
+    @Override
+    public String string(int row, int column) {
+        return dictionary.decode(chunks[row >>> CHUNK_SHIFT].strings[column][row & CHUNK_MASK]);
+    }
+
+    @Override
+    public int integer(int row, int column) {
+        return chunks[row >>> CHUNK_SHIFT].ints[column][row & CHUNK_MASK];
+    }
+
+    @Override
+    public long version(int row) {
+        return chunks[row >>> CHUNK_SHIFT].versions[row & CHUNK_MASK];
+    }
+
+    @Override
+    public boolean rewrite(int row, String[] strings, int[] ints, long version) {
+        Chunk chunk = chunks[row >>> CHUNK_SHIFT];
+        int offset = row & CHUNK_MASK;
+        for (int column = 0; column < stringColumns; column++) {
+            if (!Objects.equals(dictionary.decode(chunk.strings[column][offset]), strings[column])) {
+                return false;
+            }
+        }
+        for (int column = 0; column < intColumns; column++) {
+            chunk.ints[column][offset] = ints[column];
+        }
+        chunk.versions[offset] = version;
+        return true;
+    }
+
+    @Override
+    public int strings() {
+        return dictionary.size();
+    }
+
+    @Override
+    public void release(int row) {
+        Chunk chunk = chunks[row >>> CHUNK_SHIFT];
+        for (int column = 0; column < stringColumns; column++) {
+            dictionary.release(chunk.strings[column][row & CHUNK_MASK]);
+        }
+        releasedRows++;
+    }
+
+    @Override
+    public long storedBytes() {
+        return (long) rowCount * rowBytes + dictionary.storedBytes();
+    }
+
+    @Override
+    public long deadBytes() {
+        return (long) releasedRows * rowBytes + dictionary.deadBytes();
+    }
+
+    private static final class Chunk {
+        private final long[] idHigh = new long[1 << CHUNK_SHIFT];
+        private final long[] idLow = new long[1 << CHUNK_SHIFT];
+        private final long[] versions = new long[1 << CHUNK_SHIFT];
+        private final int[][] strings;
+        private final int[][] ints;
+
+        private Chunk(int stringColumns, int intColumns) {
+            this.strings = new int[stringColumns][1 << CHUNK_SHIFT];
+            this.ints = new int[intColumns][1 << CHUNK_SHIFT];
+        }
+    }
+}
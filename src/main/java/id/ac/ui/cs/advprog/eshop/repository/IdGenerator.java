@@ -0,0 +1,13 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+/**
+ * Source of IDs for new entities, chosen through {@code eshop.storage.id-strategy}.
+ */
+@FunctionalInterface
+public interface IdGenerator {
+
+    /**
+     * Generate a new unique ID
+     */
+    String nextId();
+}
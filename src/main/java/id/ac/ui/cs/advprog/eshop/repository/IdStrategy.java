@@ -0,0 +1,31 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.UUID;
+
+/**
+ * Ways of generating entity IDs, selected through {@code eshop.storage.id-strategy}.
+ */
+public enum IdStrategy {
+
+    /**
+     * Version 7 UUIDs that sort by creation time, generated without shared state
+     */
+    TIME_ORDERED {
+        @Override
+        public IdGenerator create() {
+            return new TimeOrderedIdGenerator();
+        }
+    },
+
+    /**
+     * Version 4 UUIDs from {@link UUID#randomUUID()}, drawn from one shared {@code SecureRandom}
+     */
+    RANDOM {
+        @Override
+        public IdGenerator create() {
+            return () -> UUID.randomUUID().toString();
+        }
+    };
+
+    public abstract IdGenerator create();
+}
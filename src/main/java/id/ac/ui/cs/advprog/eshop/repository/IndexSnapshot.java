@@ -0,0 +1,87 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Immutable view of an {@link OrderedIndex} at one version. The values are
+ * held in chunks that are shared with later snapshots for as long as no write
+ * touches them, so publishing a new snapshot only copies the changed chunks.
+ *
+ * @param <V> The value kept per index entry
+ */
+final class IndexSnapshot<V> extends AbstractList<V> implements RandomAccess {
+    private static final Object[][] NO_CHUNKS = new Object[0][];
+
+    private final long version;
+    private final Object[][] chunks;
+    private final int[] chunkStarts;
+    private final int size;
+
+    IndexSnapshot(long version, Object[][] chunks) {
+        this.version = version;
+        this.chunks = chunks;
+        this.chunkStarts = new int[chunks.length];
+        int total = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            chunkStarts[i] = total;
+            total += chunks[i].length;
+        }
+        this.size = total;
+    }
+
+    static <V> IndexSnapshot<V> empty() {
+        return new IndexSnapshot<>(0, NO_CHUNKS);
+    }
+
+    long version() {
+        return version;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        int chunk = Arrays.binarySearch(chunkStarts, index);
+        if (chunk < 0) {
+            chunk = -chunk - 2;
+        }
+        return (V) chunks[chunk][index - chunkStarts[chunk]];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<>() {
+            private int chunk;
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                while (chunk < chunks.length && position >= chunks[chunk].length) {
+                    chunk++;
+                    position = 0;
+                }
+                return chunk < chunks.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return (V) chunks[chunk][position++];
+            }
+        };
+    }
+}
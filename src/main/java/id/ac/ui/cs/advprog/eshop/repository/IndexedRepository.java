@@ -0,0 +1,367 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.repository.DeferredCommits.Logged;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps secondary {@link AttributeIndex indexes} in step with a storage
+ * engine. Each write and its index changes run under the entity's stripe
+ * lock, so once a write returns the entity is indexed under exactly its
+ * stored attributes.
+ * <p>
+ * The indexes are built on the first query rather than when the repository
+ * opens, so a mapped snapshot is not decoded just to start up. The build
+ * holds every stripe; writes before it skip index maintenance.
+ * <p>
+ * Because every write takes its entity's stripe, {@link #modify} can run a
+ * read-modify-write without losing a concurrent update to the same entity,
+ * while writers to other stripes proceed in parallel.
+ * <p>
+ * Registered {@link ChangeListener listeners} are told about each write
+ * before its stripe is released, so they see one entity's writes in commit
+ * order. A durable engine's commit is waited for only after the stripes are
+ * released (see {@link DeferredCommits}), so writers sharing a stripe share
+ * a group commit rather than queueing one fsync each.
+ * <p>
+ * Publishes the collection size as {@code eshop.repository.size}, the bytes
+ * the engine has yet to reclaim as {@code eshop.repository.dead.bytes} and the
+ * number of entities each index lookup resolves as {@code eshop.repository.scan.length}.
+ *
+ * @param <T> The entity type stored by this repository
+ */
+class IndexedRepository<T> implements CrudRepository<T, String> {
+    private final CrudRepository<T, String> storage;
+    private final DeferredCommits<T> writes;
+    private final EntityCodec<T> codec;
+    private final List<AttributeIndex<T>> indexes;
+    private final StripedLocks stripes;
+    private final DistributionSummary scanLength;
+    private final List<ChangeListener<T>> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean built;
+
+    IndexedRepository(String name, CrudRepository<T, String> storage, EntityCodec<T> codec,
+                      List<AttributeIndex<T>> indexes) {
+        this(name, storage, codec, indexes, Metrics.globalRegistry);
+    }
+
+    IndexedRepository(String name, CrudRepository<T, String> storage, EntityCodec<T> codec,
+                      List<AttributeIndex<T>> indexes, MeterRegistry registry) {
+        this.storage = storage;
+        this.writes = storage instanceof DurableRepository<T> durable ? durable : DeferredCommits.applying(storage);
+        this.codec = codec;
+        this.indexes = indexes;
+        this.stripes = new StripedLocks(name, "index", registry);
+        this.scanLength = DistributionSummary.builder("eshop.repository.scan.length")
+                .description("Entities resolved per index lookup")
+                .baseUnit("entities")
+                .tag("repository", name)
+                .register(registry);
+        Gauge.builder("eshop.repository.size", storage, CrudRepository::count)
+                .description("Entities stored")
+                .baseUnit("entities")
+                .tag("repository", name)
+                .register(registry);
+        Gauge.builder("eshop.repository.dead.bytes", storage, CrudRepository::deadBytes)
+                .description("Bytes held by replaced and deleted entities and not yet reclaimed")
+                .baseUnit("bytes")
+                .tag("repository", name)
+                .register(registry);
+    }
+
+    /**
+     * Tell a listener about every later write, inside the write's critical section
+     */
+    void addChangeListener(ChangeListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Resolve the IDs produced by an index lookup, keeping the entities that still match
+     */
+    List<T> find(Supplier<? extends Collection<String>> lookup, Predicate<T> stillMatches) {
+        ensureBuilt();
+        Collection<String> ids = lookup.get();
+        scanLength.record(ids.size());
+        List<T> entities = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            T entity = storage.findById(id);
+            // A write may be running on this entity; its index entries are final once it returns
+            if (entity != null && stillMatches.test(entity)) {
+                entities.add(entity);
+            }
+        }
+        return entities;
+    }
+
+    @Override
+    public T create(T entity) {
+        String id = codec.idOf(entity);
+        Logged<T> created;
+        ReentrantLock stripe = stripes.lock(id);
+        try {
+            T previous = built ? storage.findById(id) : null;
+            created = writes.logCreate(entity);
+            if (built) {
+                unindex(id, previous);
+                index(id, entity);
+            }
+            for (ChangeListener<T> listener : listeners) {
+                listener.created(entity);
+            }
+        } finally {
+            stripe.unlock();
+        }
+        return committed(created);
+    }
+
+    /**
+     * Atomically replace an entity with {@code change} applied to a detached copy of it.
+     * Nothing is written when {@code change} throws.
+     *
+     * @return the stored result, or {@code null} when the entity does not exist
+     */
+    T modify(String id, UnaryOperator<T> change) {
+        Logged<T> updated;
+        ReentrantLock stripe = stripes.lock(id);
+        try {
+            T previous = storage.findById(id);
+            if (previous == null) {
+                return null;
+            }
+            updated = writes.logUpdate(id, change.apply(codec.copyOf(previous, id)));
+            indexUpdated(id, previous, updated.result());
+        } finally {
+            stripe.unlock();
+        }
+        return committed(updated);
+    }
+
+    @Override
+    public T update(String id, T entity) {
+        Logged<T> updated;
+        ReentrantLock stripe = stripes.lock(id);
+        try {
+            T previous = built ? storage.findById(id) : null;
+            updated = writes.logUpdate(id, entity);
+            indexUpdated(id, previous, updated.result());
+        } finally {
+            stripe.unlock();
+        }
+        return committed(updated);
+    }
+
+    @Override
+    public void deleteById(String id) {
+        Logged<Void> deleted;
+        ReentrantLock stripe = stripes.lock(id);
+        try {
+            T previous = built ? storage.findById(id) : null;
+            boolean existed = previous != null || (!listeners.isEmpty() && storage.versionOf(id) >= 0);
+            deleted = writes.logDelete(id);
+            unindex(id, previous);
+            if (existed) {
+                for (ChangeListener<T> listener : listeners) {
+                    listener.deleted(id);
+                }
+            }
+        } finally {
+            stripe.unlock();
+        }
+        committed(deleted);
+    }
+
+    @Override
+    public List<T> createAll(List<T> entities) {
+        Map<String, T> latest = new LinkedHashMap<>();
+        for (T entity : entities) {
+            latest.put(codec.idOf(entity), entity);
+        }
+        Logged<List<T>> created;
+        int[] locked = stripes.lockAll(latest.keySet());
+        try {
+            Map<String, T> previous = built ? current(latest.keySet()) : Map.of();
+            created = writes.logCreateAll(entities);
+            if (built) {
+                previous.forEach(this::unindex);
+                latest.forEach(this::index);
+            }
+            for (ChangeListener<T> listener : listeners) {
+                entities.forEach(listener::created);
+            }
+        } finally {
+            stripes.unlockAll(locked);
+        }
+        return committed(created);
+    }
+
+    @Override
+    public List<T> updateAll(Map<String, T> entities) {
+        Logged<List<T>> updated;
+        int[] locked = stripes.lockAll(entities.keySet());
+        try {
+            Map<String, T> previous = built ? current(entities.keySet()) : Map.of();
+            updated = writes.logUpdateAll(entities);
+            if (built) {
+                for (T entity : updated.result()) {
+                    String id = codec.idOf(entity);
+                    unindex(id, previous.get(id));
+                    index(id, entity);
+                }
+            }
+            for (ChangeListener<T> listener : listeners) {
+                updated.result().forEach(listener::updated);
+            }
+        } finally {
+            stripes.unlockAll(locked);
+        }
+        return committed(updated);
+    }
+
+    @Override
+    public int deleteAllById(Collection<String> ids) {
+        Logged<Integer> deleted;
+        int[] locked = stripes.lockAll(ids);
+        try {
+            Map<String, T> previous = built || !listeners.isEmpty() ? current(ids) : Map.of();
+            deleted = writes.logDeleteAll(ids);
+            previous.forEach(this::unindex);
+            for (ChangeListener<T> listener : listeners) {
+                previous.keySet().forEach(listener::deleted);
+            }
+        } finally {
+            stripes.unlockAll(locked);
+        }
+        return committed(deleted);
+    }
+
+    @Override
+    public Iterator<T> findAll() {
+        return storage.findAll();
+    }
+
+    @Override
+    public List<T> snapshot() {
+        return storage.snapshot();
+    }
+
+    @Override
+    public List<T> findPage(long offset, int limit) {
+        return storage.findPage(offset, limit);
+    }
+
+    @Override
+    public List<T> findAfter(String id, int limit) {
+        return storage.findAfter(id, limit);
+    }
+
+    @Override
+    public long count() {
+        return storage.count();
+    }
+
+    @Override
+    public long deadBytes() {
+        return storage.deadBytes();
+    }
+
+    @Override
+    public long version() {
+        return storage.version();
+    }
+
+    @Override
+    public long versionOf(String id) {
+        return storage.versionOf(id);
+    }
+
+    @Override
+    public T findById(String id) {
+        return storage.findById(id);
+    }
+
+    @Override
+    public void close() {
+        storage.close();
+    }
+
+    private void ensureBuilt() {
+        if (built) {
+            return;
+        }
+        int[] locked = stripes.lockEverything();
+        try {
+            if (!built) {
+                Iterator<T> entities = storage.findAll();
+                while (entities.hasNext()) {
+                    T entity = entities.next();
+                    index(codec.idOf(entity), entity);
+                }
+                built = true;
+            }
+        } finally {
+            stripes.unlockAll(locked);
+        }
+    }
+
+    private void indexUpdated(String id, T previous, T updated) {
+        if (updated == null) {
+            return;
+        }
+        if (built) {
+            unindex(id, previous);
+            index(id, updated);
+        }
+        for (ChangeListener<T> listener : listeners) {
+            listener.updated(updated);
+        }
+    }
+
+    /**
+     * Wait for a write to become durable, once its stripes are released
+     */
+    private <R> R committed(Logged<R> write) {
+        writes.awaitCommit(write.lsn());
+        return write.result();
+    }
+
+    private Map<String, T> current(Collection<String> ids) {
+        Map<String, T> entities = new LinkedHashMap<>();
+        for (String id : ids) {
+            T entity = storage.findById(id);
+            if (entity != null) {
+                entities.put(id, entity);
+            }
+        }
+        return entities;
+    }
+
+    private void index(String id, T entity) {
+        for (AttributeIndex<T> index : indexes) {
+            index.add(id, entity);
+        }
+    }
+
+    private void unindex(String id, T entity) {
+        if (entity == null) {
+            return;
+        }
+        for (AttributeIndex<T> index : indexes) {
+            index.remove(id, entity);
+        }
+    }
+}
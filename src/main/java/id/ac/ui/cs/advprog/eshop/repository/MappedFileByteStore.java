@@ -0,0 +1,55 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link SegmentedByteStore} backed by a memory-mapped file, so the records
+ * live in the page cache and the operating system decides what stays
+ * resident. The file is scratch space: it is truncated when the store opens
+ * and deleted when it closes. Buffers already handed out stay readable after
+ * closing, since a mapping outlives its channel and its file name.
+ */
+public class MappedFileByteStore extends SegmentedByteStore {
+    private final Path file;
+    private final FileChannel channel;
+
+    public MappedFileByteStore(Path file, int segmentSize) {
+        super(segmentSize);
+        this.file = file;
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open storage file " + file, e);
+        }
+    }
+
+    @Override
+    protected ByteBuffer allocateSegment(int segmentIndex, int segmentSize) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, (long) segmentIndex * segmentSize, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map storage segment " + segmentIndex, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Read-only, memory-mapped snapshot of an entity repository.
+ * <p>
+ * The file starts with a fixed header, a table of record offsets and an
+ * open-addressing hash table of IDs, followed by the encoded records. Opening
+ * a snapshot only maps the file and checks the header, so it takes the same
+ * time for ten entities as for ten million; records are decoded when they are
+ * first read and pages are faulted in by the operating system on demand.
+ *
+ * @param <T> The entity type stored in the snapshot
+ */
+final class MappedSnapshot<T> {
+    private static final int MAGIC = 0x45534e50;
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+
+    private final EntityCodec<T> codec;
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int slotMask;
+    private final int slotsStart;
+
+    private MappedSnapshot(EntityCodec<T> codec, MappedByteBuffer buffer, int count, int capacity) {
+        this.codec = codec;
+        this.buffer = buffer;
+        this.count = count;
+        this.slotMask = capacity - 1;
+        this.slotsStart = HEADER_SIZE + 4 * (count + 1);
+    }
+
+    /**
+     * Map an existing snapshot file
+     */
+    static <T> MappedSnapshot<T> open(Path file, EntityCodec<T> codec) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format: " + file);
+            }
+            return new MappedSnapshot<>(codec, buffer, buffer.getInt(8), buffer.getInt(12));
+        }
+    }
+
+    /**
+     * Write entities in snapshot format, forcing the file to disk before returning
+     */
+    static <T> void write(Path file, List<T> entities, EntityCodec<T> codec) throws IOException {
+        int count = entities.size();
+        int capacity = 2;
+        while (capacity < count * 2) {
+            capacity <<= 1;
+        }
+        int[] slots = new int[capacity * 2];
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + 4 * (count + 1) + 8 * capacity);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(count).putInt(capacity);
+        int dataStart = header.capacity();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(dataStart);
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            for (int position = 0; position < count; position++) {
+                T entity = entities.get(position);
+                header.putInt(offset(file, dataStart, out));
+                codec.write(entity, out);
+                String id = codec.idOf(entity);
+                if (id != null) {
+                    insertSlot(slots, capacity - 1, id, position);
+                }
+            }
+            out.flush();
+            header.putInt(offset(file, dataStart, out));
+            for (int slot : slots) {
+                header.putInt(slot);
+            }
+            header.flip();
+            long offset = 0;
+            while (header.hasRemaining()) {
+                offset += channel.write(header, offset);
+            }
+            channel.force(true);
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Decode the entity at the given position
+     */
+    T get(int position) {
+        int start = buffer.getInt(HEADER_SIZE + 4 * position);
+        int end = buffer.getInt(HEADER_SIZE + 4 * (position + 1));
+        byte[] record = new byte[end - start];
+        buffer.get(start, record);
+        try {
+            return codec.read(new DataInputStream(new ByteArrayInputStream(record)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Find the position of the entity with the given ID, or -1 when it is not in the snapshot
+     */
+    int positionOf(String id) {
+        if (id == null) {
+            return -1;
+        }
+        int hash = hash(id);
+        for (int slot = hash & slotMask; ; slot = (slot + 1) & slotMask) {
+            int address = slotsStart + 8 * slot;
+            int position = buffer.getInt(address + 4) - 1;
+            if (position < 0) {
+                return -1;
+            }
+            if (buffer.getInt(address) == hash && id.equals(codec.idOf(get(position)))) {
+                return position;
+            }
+        }
+    }
+
+    private static int offset(Path file, int dataStart, DataOutputStream out) throws IOException {
+        long offset = (long) dataStart + out.size();
+        if (offset >= Integer.MAX_VALUE) {
+            throw new IOException("Snapshot is too large to map: " + file);
+        }
+        return (int) offset;
+    }
+
+    private static void insertSlot(int[] slots, int mask, String id, int position) {
+        int hash = hash(id);
+        int slot = hash & mask;
+        while (slots[2 * slot + 1] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[2 * slot] = hash;
+        slots[2 * slot + 1] = position + 1;
+    }
+
+    private static int hash(String id) {
+        int hash = id.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,23 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link SegmentedByteStore} backed by direct buffers outside the Java heap.
+ */
+public class OffHeapByteStore extends SegmentedByteStore {
+
+    public OffHeapByteStore(int segmentSize) {
+        super(segmentSize);
+    }
+
+    @Override
+    protected ByteBuffer allocateSegment(int segmentIndex, int segmentSize) {
+        return ByteBuffer.allocateDirect(segmentSize);
+    }
+
+    @Override
+    public void close() {
+        // Direct buffers are released by the garbage collector
+    }
+}
@@ -0,0 +1,176 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * {@link RowStore} kept entirely outside the Java heap. Rows are fixed-width
+ * records in direct buffers: the ID, a version, then a reference per string
+ * column into a variable-length string heap and the int columns. The string
+ * heap is an {@link OffHeapByteStore} of UTF-8 bytes, so all the garbage
+ * collector sees of a catalog is a handful of buffers.
+ * <p>
+ * An update that keeps every string may overwrite the ints of the row in
+ * place with volatile writes and then its version, so quantity changes cost
+ * no new row and no string copies.
+ */
+final class OffHeapRowStore implements RowStore {
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private static final int ID_HIGH = 0;
+    private static final int ID_LOW = 8;
+    private static final int VERSION = 16;
+    private static final int STRING_ADDRESSES = 24;
+    private static final int NULL_LENGTH = -1;
+
+    private final int stringColumns;
+    private final int intColumns;
+    private final int stringLengths;
+    private final int intValues;
+    private final int rowWidth;
+    private final int rowsPerSegment;
+    private final ByteStore stringHeap;
+    private volatile ByteBuffer[] segments = new ByteBuffer[0];
+    private int rowCount;
+    private int stringCount;
+    private volatile long storedBytes;
+    private volatile long deadBytes;
+
+    OffHeapRowStore(int stringColumns, int intColumns, int segmentSize) {
+        this.stringColumns = stringColumns;
+        this.intColumns = intColumns;
+        this.stringLengths = STRING_ADDRESSES + 8 * stringColumns;
+        this.intValues = stringLengths + 4 * stringColumns;
+        // Keep every row 8-byte aligned so the long columns can be read atomically
+        this.rowWidth = (intValues + 4 * intColumns + 7) & ~7;
+        this.rowsPerSegment = Math.max(1, segmentSize / rowWidth);
+        this.stringHeap = new OffHeapByteStore(segmentSize);
+    }
+
+    @Override
+    public int append(long idHigh, long idLow, String[] values, int[] ints, long version) {
+        int row = rowCount;
+        ByteBuffer[] current = segments;
+        if (row / rowsPerSegment == current.length) {
+            current = Arrays.copyOf(current, current.length + 1);
+            current[current.length - 1] = ByteBuffer.allocateDirect(rowsPerSegment * rowWidth + 7).alignedSlice(8);
+            segments = current;
+        }
+        ByteBuffer segment = current[row / rowsPerSegment];
+        int offset = (row % rowsPerSegment) * rowWidth;
+        LONGS.set(segment, offset + ID_HIGH, idHigh);
+        LONGS.set(segment, offset + ID_LOW, idLow);
+        LONGS.set(segment, offset + VERSION, version);
+        for (int column = 0; column < stringColumns; column++) {
+            String value = values[column];
+            byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+            LONGS.set(segment, offset + STRING_ADDRESSES + 8 * column, bytes == null ? 0 : stringHeap.append(bytes));
+            INTS.set(segment, offset + stringLengths + 4 * column, bytes == null ? NULL_LENGTH : bytes.length);
+            stringCount += bytes == null ? 0 : 1;
+            storedBytes += bytes == null ? 0 : bytes.length;
+        }
+        for (int column = 0; column < intColumns; column++) {
+            INTS.set(segment, offset + intValues + 4 * column, ints[column]);
+        }
+        rowCount++;
+        storedBytes += rowWidth;
+        return row;
+    }
+
+    @Override
+    public long idHigh(int row) {
+        return (long) LONGS.get(segment(row), offset(row) + ID_HIGH);
+    }
+
+    @Override
+    public long idLow(int row) {
+        return (long) LONGS.get(segment(row), offset(row) + ID_LOW);
+    }
+
+    @Override
+    public String string(int row, int column) {
+        byte[] bytes = bytes(segment(row), offset(row), column);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int integer(int row, int column) {
+        return (int) INTS.getVolatile(segment(row), offset(row) + intValues + 4 * column);
+    }
+
+    @Override
+    public long version(int row) {
+        return (long) LONGS.getVolatile(segment(row), offset(row) + VERSION);
+    }
+
+    @Override
+    public boolean rewrite(int row, String[] values, int[] ints, long version) {
+        ByteBuffer segment = segment(row);
+        int offset = offset(row);
+        for (int column = 0; column < stringColumns; column++) {
+            byte[] stored = bytes(segment, offset, column);
+            String value = values[column];
+            if (value == null ? stored != null
+                    : stored == null || !Arrays.equals(stored, value.getBytes(StandardCharsets.UTF_8))) {
+                return false;
+            }
+        }
+        for (int column = 0; column < intColumns; column++) {
+            INTS.setVolatile(segment, offset + intValues + 4 * column, ints[column]);
+        }
+        LONGS.setVolatile(segment, offset + VERSION, version);
+        return true;
+    }
+
+    @Override
+    public int strings() {
+        return stringCount;
+    }
+
+    @Override
+    public void release(int row) {
+        ByteBuffer segment = segment(row);
+        int offset = offset(row);
+        long released = rowWidth;
+        for (int column = 0; column < stringColumns; column++) {
+            released += Math.max(0, (int) INTS.get(segment, offset + stringLengths + 4 * column));
+        }
+        deadBytes += released;
+    }
+
+    @Override
+    public long storedBytes() {
+        return storedBytes;
+    }
+
+    @Override
+    public long deadBytes() {
+        return deadBytes;
+    }
+
+    @Override
+    public void close() {
+        stringHeap.close();
+    }
+
+    private byte[] bytes(ByteBuffer segment, int offset, int column) {
+        int length = (int) INTS.get(segment, offset + stringLengths + 4 * column);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        return stringHeap.read((long) LONGS.get(segment, offset + STRING_ADDRESSES + 8 * column), length);
+    }
+
+    private ByteBuffer segment(int row) {
+        return segments[row / rowsPerSegment];
+    }
+
+    private int offset(int row) {
+        return (row % rowsPerSegment) * rowWidth;
+    }
+}
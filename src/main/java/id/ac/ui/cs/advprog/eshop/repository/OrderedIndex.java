@@ -0,0 +1,284 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Concurrent primary-key index shared by the storage engines. Entries are
+ * reachable by ID through a hash index and in insertion order through a skip
+ * list keyed by a monotonic sequence, which also serves as the keyset cursor
+ * for paging. Neither structure takes a global lock.
+ * <p>
+ * Every write bumps a version counter and marks the chunk of sequences it
+ * touched as dirty. {@link #snapshot()} hands out an immutable
+ * {@link IndexSnapshot} that is reused until the next write, and rebuilding
+ * it only re-reads the dirty chunks.
+ * <p>
+ * Each entry also carries a stamp taken from a separate counter on every
+ * write to it, which callers use as a per-entity modification version.
+ *
+ * @param <V> The value kept per entry, e.g. the entity or its record location
+ */
+final class OrderedIndex<V> {
+    private static final int CHUNK_SHIFT = 10;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong stamps = new AtomicLong();
+    private final AtomicInteger size = new AtomicInteger();
+    private final ConcurrentMap<String, Entry<V>> index = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Long, Entry<V>> data = new ConcurrentSkipListMap<>();
+    private final Set<Long> dirtyChunks = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final NavigableMap<Long, Object[]> chunks = new TreeMap<>();
+    private volatile IndexSnapshot<V> snapshot = IndexSnapshot.empty();
+
+    /**
+     * Append a new entry, replacing any entry that already has the same ID
+     */
+    Entry<V> insert(String id, V value) {
+        Entry<V> entry = link(id, value, sequence.incrementAndGet());
+        version.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Append several entries in one block of sequences, publishing them with a
+     * single version bump
+     */
+    void insertAll(List<String> ids, List<V> values) {
+        long first = sequence.getAndAdd(values.size()) + 1;
+        for (int i = 0; i < values.size(); i++) {
+            link(ids.get(i), values.get(i), first + i);
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * Replace the value of the entry with the given ID, or return {@code null} when it does not exist
+     */
+    Entry<V> update(String id, V value) {
+        Entry<V> entry = replace(id, value);
+        if (entry != null) {
+            version.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Replace the values of several entries with a single version bump. The
+     * result holds {@code null} for every ID that does not exist.
+     */
+    List<Entry<V>> updateAll(List<String> ids, List<V> values) {
+        List<Entry<V>> entries = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            entries.add(replace(ids.get(i), values.get(i)));
+        }
+        version.incrementAndGet();
+        return entries;
+    }
+
+    /**
+     * Replace every value with an equivalent one, such as the same record copied
+     * elsewhere, keeping each entry's stamp. Must not run concurrently with
+     * writes. The single version bump lets the next snapshot drop the old values.
+     */
+    void relocateAll(UnaryOperator<V> relocate) {
+        for (Entry<V> entry : data.values()) {
+            entry.value = relocate.apply(entry.value);
+            markDirty(entry);
+        }
+        version.incrementAndGet();
+    }
+
+    Entry<V> get(String id) {
+        return id == null ? null : index.get(id);
+    }
+
+    Entry<V> remove(String id) {
+        Entry<V> entry = unindex(id);
+        if (entry != null) {
+            version.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Remove several entries with a single version bump, returning how many existed
+     */
+    int removeAll(Collection<String> ids) {
+        int removed = 0;
+        for (String id : ids) {
+            if (unindex(id) != null) {
+                removed++;
+            }
+        }
+        version.incrementAndGet();
+        return removed;
+    }
+
+    /**
+     * Version of the whole index; grows after every write
+     */
+    long version() {
+        return version.get();
+    }
+
+    Collection<Entry<V>> entries() {
+        return data.values();
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Get an immutable view of all values in insertion order. Readers share the
+     * same view until a write happens; the next reader after a write rebuilds
+     * only the chunks that the write touched.
+     */
+    IndexSnapshot<V> snapshot() {
+        IndexSnapshot<V> current = snapshot;
+        if (current.version() == version.get()) {
+            return current;
+        }
+
+        snapshotLock.lock();
+        try {
+            current = snapshot;
+            long target = version.get();
+            if (current.version() == target) {
+                return current;
+            }
+            // Writers mark a chunk dirty after changing it and before bumping the
+            // version, so every write counted in target is either drained here or
+            // was already folded into an earlier snapshot.
+            for (Iterator<Long> dirty = dirtyChunks.iterator(); dirty.hasNext(); ) {
+                long chunk = dirty.next();
+                dirty.remove();
+                rebuildChunk(chunk);
+            }
+            current = new IndexSnapshot<>(target, chunks.values().toArray(new Object[0][]));
+            snapshot = current;
+            return current;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Entries inserted after the entry with the given ID; costs O(log n + limit)
+     */
+    List<Entry<V>> after(String id, int limit) {
+        Entry<V> cursor = get(id);
+        if (cursor == null) {
+            return Collections.emptyList();
+        }
+        List<Entry<V>> page = new ArrayList<>(Math.min(limit, 256));
+        Iterator<Entry<V>> entries = data.tailMap(cursor.sequence, false).values().iterator();
+        while (page.size() < limit && entries.hasNext()) {
+            page.add(entries.next());
+        }
+        return page;
+    }
+
+    private Entry<V> link(String id, V value, long sequence) {
+        Entry<V> entry = new Entry<>(sequence, value, stamps.incrementAndGet());
+        // Publish in insertion order first so a concurrent delete that finds the
+        // index entry can always remove it from the ordered view as well.
+        data.put(entry.sequence, entry);
+        size.incrementAndGet();
+        markDirty(entry);
+
+        if (id != null) {
+            Entry<V> previous = index.put(id, entry);
+            if (previous != null) {
+                unlink(previous);
+            }
+        }
+        return entry;
+    }
+
+    private Entry<V> replace(String id, V value) {
+        Entry<V> entry = get(id);
+        if (entry == null) {
+            return null;
+        }
+        entry.value = value;
+        // Stamp after the value, so whoever sees the new stamp also sees the new value
+        entry.stamp = stamps.incrementAndGet();
+        markDirty(entry);
+        return entry;
+    }
+
+    private Entry<V> unindex(String id) {
+        if (id == null) {
+            return null;
+        }
+        Entry<V> entry = index.remove(id);
+        if (entry != null) {
+            unlink(entry);
+        }
+        return entry;
+    }
+
+    private void unlink(Entry<V> entry) {
+        if (data.remove(entry.sequence, entry)) {
+            size.decrementAndGet();
+            markDirty(entry);
+        }
+    }
+
+    private void markDirty(Entry<V> entry) {
+        dirtyChunks.add(entry.sequence >>> CHUNK_SHIFT);
+    }
+
+    private void rebuildChunk(long chunk) {
+        long from = chunk << CHUNK_SHIFT;
+        long to = (chunk + 1) << CHUNK_SHIFT;
+        Collection<Entry<V>> entries = data.subMap(from, true, to, false).values();
+        List<Object> values = new ArrayList<>(1 << CHUNK_SHIFT);
+        for (Entry<V> entry : entries) {
+            values.add(entry.value);
+        }
+        if (values.isEmpty()) {
+            chunks.remove(chunk);
+        } else {
+            chunks.put(chunk, values.toArray());
+        }
+    }
+
+    static final class Entry<V> {
+        private final long sequence;
+        private volatile V value;
+        private volatile long stamp;
+
+        private Entry(long sequence, V value, long stamp) {
+            this.sequence = sequence;
+            this.value = value;
+            this.stamp = stamp;
+        }
+
+        V value() {
+            return value;
+        }
+
+        long stamp() {
+            return stamp;
+        }
+    }
+}
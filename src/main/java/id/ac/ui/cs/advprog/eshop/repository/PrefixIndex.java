@@ -0,0 +1,51 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * Sorted secondary index answering prefix queries in O(log n + k) for k
+ * matches, returned in attribute order.
+ *
+ * @param <T> The entity type being indexed
+ */
+final class PrefixIndex<T> extends AttributeIndex<T> {
+    private final ConcurrentSkipListMap<String, Set<String>> entries;
+
+    PrefixIndex(Function<T, String> attribute) {
+        this(attribute, new ConcurrentSkipListMap<>());
+    }
+
+    private PrefixIndex(Function<T, String> attribute, ConcurrentSkipListMap<String, Set<String>> entries) {
+        super(attribute, entries);
+        this.entries = entries;
+    }
+
+    /**
+     * Up to {@code limit} IDs of the entities whose attribute starts with the prefix, ignoring case
+     */
+    List<String> idsStartingWith(String prefix, int limit) {
+        String from = normalize(prefix);
+        List<String> ids = new ArrayList<>(Math.min(limit, 256));
+        if (from == null) {
+            return ids;
+        }
+        for (Set<String> matches : entries.subMap(from, true, from + Character.MAX_VALUE, false).values()) {
+            for (String id : matches) {
+                if (ids.size() == limit) {
+                    return ids;
+                }
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    boolean matches(T entity, String prefix) {
+        String key = keyOf(entity);
+        return key != null && key.startsWith(normalize(prefix));
+    }
+}
@@ -0,0 +1,70 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class ProductCodec implements EntityCodec<Product>, CompactLayout<Product> {
+
+    public static final ProductCodec INSTANCE = new ProductCodec();
+
+    static final int NAME_COLUMN = 0;
+    static final int QUANTITY_COLUMN = 0;
+
+    @Override
+    public String idOf(Product product) {
+        return product.getProductId();
+    }
+
+    @Override
+    public Product copyOf(Product product, String id) {
+        Product copy = new Product();
+        copy.setProductId(id);
+        copy.setProductName(product.getProductName());
+        copy.setProductQuantity(product.getProductQuantity());
+        return copy;
+    }
+
+    @Override
+    public void write(Product product, DataOutput out) throws IOException {
+        EntityCodec.writeString(out, product.getProductId());
+        EntityCodec.writeString(out, product.getProductName());
+        out.writeInt(product.getProductQuantity());
+    }
+
+    @Override
+    public Product read(DataInput in) throws IOException {
+        Product product = new Product();
+        product.setProductId(EntityCodec.readString(in));
+        product.setProductName(EntityCodec.readString(in));
+        product.setProductQuantity(in.readInt());
+        return product;
+    }
+
+    @Override
+    public int stringColumns() {
+        return 1;
+    }
+
+    @Override
+    public int intColumns() {
+        return 1;
+    }
+
+    @Override
+    public String stringColumn(Product product, int column) {
+        return product.getProductName();
+    }
+
+    @Override
+    public int intColumn(Product product, int column) {
+        return product.getProductQuantity();
+    }
+
+    @Override
+    public Product view(Columns columns, int row) {
+        return new ProductView(columns, row);
+    }
+}
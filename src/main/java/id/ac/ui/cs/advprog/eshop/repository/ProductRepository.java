@@ -1,55 +1,157 @@
 package id.ac.ui.cs.advprog.eshop.repository;
 
 import id.ac.ui.cs.advprog.eshop.model.Product;
-import org.springframework.stereotype.Repository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
-@Repository
-public class ProductRepository {
-    private final List<Product> productData = new ArrayList<>();
+/**
+ * Product repository backed by a pluggable storage engine, see
+ * {@link StorageConfiguration}, with a prefix index and a full-text index
+ * on product name.
+ */
+public class ProductRepository implements CrudRepository<Product, String> {
+    private final PrefixIndex<Product> nameIndex = new PrefixIndex<>(Product::getProductName);
+    private final TokenIndex<Product> searchIndex = new TokenIndex<>(Product::getProductName);
+    private final IndexedRepository<Product> storage;
 
+    public ProductRepository() {
+        this(new ConcurrentHeapRepository<>(ProductCodec.INSTANCE));
+    }
+
+    public ProductRepository(CrudRepository<Product, String> storage) {
+        this(storage, Metrics.globalRegistry);
+    }
+
+    public ProductRepository(CrudRepository<Product, String> storage, MeterRegistry registry) {
+        this.storage = new IndexedRepository<>("product", storage, ProductCodec.INSTANCE,
+                List.of(nameIndex, searchIndex), registry);
+    }
+
+    /**
+     * Up to {@code limit} products whose name starts with the prefix, ignoring case, in name order
+     */
+    public List<Product> findByNamePrefix(String prefix, int limit) {
+        return storage.find(() -> nameIndex.idsStartingWith(prefix, limit),
+                product -> nameIndex.matches(product, prefix));
+    }
+
+    /**
+     * Up to {@code limit} products whose name has every query word as a word or word prefix, best match first
+     */
+    public List<Product> search(String query, int limit) {
+        return storage.find(() -> searchIndex.search(query, limit),
+                product -> searchIndex.matches(product, query));
+    }
+
+    /**
+     * Tell a listener about every later write, in commit order per product
+     */
+    public void addChangeListener(ChangeListener<Product> listener) {
+        storage.addChangeListener(listener);
+    }
+
+    /**
+     * Atomically add {@code delta} to the product's quantity, which may not drop below zero
+     *
+     * @return the updated product, or {@code null} when it does not exist
+     * @throws IllegalStateException when there is not enough stock
+     */
+    public Product adjustQuantity(String productId, int delta) {
+        return storage.modify(productId, product -> {
+            product.setProductQuantity(Quantities.adjust(product.getProductQuantity(), delta, productId));
+            return product;
+        });
+    }
+
+    @Override
     public Product create(Product product) {
-        productData.add(product);
-        return product;
+        return storage.create(product);
     }
 
+    @Override
     public Iterator<Product> findAll() {
-        return productData.iterator();
+        return storage.findAll();
     }
 
-    public Product findById(String productId) {
-        if (productId == null) {
-            return null;
-        }
+    @Override
+    public List<Product> snapshot() {
+        return storage.snapshot();
+    }
 
-        for (Product product : productData) {
-            if (product.getProductId() != null && product.getProductId().equals(productId)) {
-                return product;
-            }
-        }
-        return null;
+    @Override
+    public List<Product> findPage(long offset, int limit) {
+        return storage.findPage(offset, limit);
+    }
+
+    @Override
+    public List<Product> findAfter(String productId, int limit) {
+        return storage.findAfter(productId, limit);
+    }
+
+    @Override
+    public long count() {
+        return storage.count();
+    }
+
+    @Override
+    public long deadBytes() {
+        return storage.deadBytes();
+    }
+
+    @Override
+    public long version() {
+        return storage.version();
+    }
+
+    @Override
+    public long versionOf(String productId) {
+        return storage.versionOf(productId);
+    }
+
+    @Override
+    public Product findById(String productId) {
+        return storage.findById(productId);
     }
 
     public Product update(Product updatedProduct) {
         if (updatedProduct == null || updatedProduct.getProductId() == null) {
             return null;
         }
+        return storage.update(updatedProduct.getProductId(), updatedProduct);
+    }
 
-        for (int i = 0; i < productData.size(); i++) {
-            Product currentProduct = productData.get(i);
-            if (currentProduct.getProductId() != null &&
-                    currentProduct.getProductId().equals(updatedProduct.getProductId())) {
-                productData.set(i, updatedProduct);
-                return updatedProduct;
-            }
-        }
-        return null;
+    @Override
+    public Product update(String productId, Product updatedProduct) {
+        return storage.update(productId, updatedProduct);
     }
 
+    @Override
     public void deleteById(String productId) {
-        productData.removeIf(product -> product.getProductId().equals(productId));
+        storage.deleteById(productId);
+    }
+
+    @Override
+    public List<Product> createAll(List<Product> products) {
+        return storage.createAll(products);
+    }
+
+    @Override
+    public List<Product> updateAll(Map<String, Product> products) {
+        return storage.updateAll(products);
+    }
+
+    @Override
+    public int deleteAllById(Collection<String> productIds) {
+        return storage.deleteAllById(productIds);
+    }
+
+    @Override
+    public void close() {
+        storage.close();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+
+/**
+ * Product that reads its strings straight out of a {@link CompactRepository}
+ * row. The quantity is read once when the view is made, since the row may be
+ * rewritten in place later. Nothing else is copied unless a setter is called,
+ * which first detaches the view into a plain product so the stored row never
+ * changes.
+ */
+final class ProductView extends Product {
+    private CompactLayout.Columns columns;
+    private final int row;
+
+    ProductView(CompactLayout.Columns columns, int row) {
+        this.columns = columns;
+        this.row = row;
+        super.setProductQuantity(columns.integer(row, ProductCodec.QUANTITY_COLUMN));
+    }
+
+    @Override
+    public String getProductId() {
+        return columns == null ? super.getProductId() : columns.id(row);
+    }
+
+    @Override
+    public String getProductName() {
+        return columns == null ? super.getProductName() : columns.string(row, ProductCodec.NAME_COLUMN);
+    }
+
+    @Override
+    public void setProductId(String productId) {
+        detach();
+        super.setProductId(productId);
+    }
+
+    @Override
+    public void setProductName(String productName) {
+        detach();
+        super.setProductName(productName);
+    }
+
+    @Override
+    public void setProductQuantity(int productQuantity) {
+        detach();
+        super.setProductQuantity(productQuantity);
+    }
+
+    private void detach() {
+        if (columns != null) {
+            super.setProductId(columns.id(row));
+            super.setProductName(columns.string(row, ProductCodec.NAME_COLUMN));
+            columns = null;
+        }
+    }
+}
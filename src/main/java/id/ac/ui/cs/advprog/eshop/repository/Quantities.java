@@ -0,0 +1,27 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+/**
+ * Arithmetic for stock quantities, which may never drop below zero.
+ */
+final class Quantities {
+
+    private Quantities() {
+    }
+
+    /**
+     * The quantity after applying {@code delta}
+     *
+     * @throws IllegalStateException when there is not enough stock to take {@code -delta}
+     */
+    static int adjust(int quantity, int delta, String id) {
+        long adjusted = (long) quantity + delta;
+        if (adjusted < 0) {
+            throw new IllegalStateException("Insufficient quantity for " + id + ": "
+                    + quantity + " available, " + -(long) delta + " requested");
+        }
+        if (adjusted > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Quantity for " + id + " would exceed " + Integer.MAX_VALUE);
+        }
+        return (int) adjusted;
+    }
+}
@@ -0,0 +1,59 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+/**
+ * Column storage behind a {@link CompactRepository}: one row per stored entity
+ * version, holding the ID as two longs, a fixed number of string columns and
+ * a fixed number of int columns. Rows are appended and rewritten by one writer
+ * at a time; any thread may read a row once the repository has published it.
+ */
+interface RowStore extends AutoCloseable {
+
+    /**
+     * Append a row with the given version and return its number. An ID that is not a UUID is passed as two zeros.
+     */
+    int append(long idHigh, long idLow, String[] strings, int[] ints, long version);
+
+    long idHigh(int row);
+
+    long idLow(int row);
+
+    String string(int row, int column);
+
+    int integer(int row, int column);
+
+    /**
+     * Version given to the row by its latest append or rewrite
+     */
+    long version(int row);
+
+    /**
+     * Overwrite the int columns and version of a row in place when its strings are
+     * unchanged, or return {@code false} so the caller appends a new row instead
+     */
+    boolean rewrite(int row, String[] strings, int[] ints, long version);
+
+    /**
+     * Number of strings the store holds a copy of
+     */
+    int strings();
+
+    /**
+     * Mark a row as replaced or deleted. Its bytes, and any string no other row
+     * uses, count as dead until the store is replaced by a compacted copy.
+     */
+    void release(int row);
+
+    /**
+     * Estimated bytes held by every row and string stored so far
+     */
+    long storedBytes();
+
+    /**
+     * Estimated bytes held by released rows and the strings only they used
+     */
+    long deadBytes();
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,89 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link ByteStore} made of fixed-size {@link ByteBuffer} segments. Writers
+ * reserve space with a CAS on a shared cursor and then copy their record with
+ * absolute puts, so appends never take a lock except when a new segment has
+ * to be allocated.
+ */
+public abstract class SegmentedByteStore implements ByteStore {
+    private final int segmentSize;
+    private final AtomicLong cursor = new AtomicLong();
+    private final ReentrantLock growLock = new ReentrantLock();
+    private volatile ByteBuffer[] segments = new ByteBuffer[0];
+
+    protected SegmentedByteStore(int segmentSize) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive");
+        }
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Allocate the backing buffer for a segment
+     */
+    protected abstract ByteBuffer allocateSegment(int segmentIndex, int segmentSize);
+
+    @Override
+    public long append(byte[] record) {
+        if (record.length > segmentSize) {
+            throw new IllegalArgumentException("Record of " + record.length
+                    + " bytes exceeds the segment size of " + segmentSize + " bytes");
+        }
+
+        long current;
+        long address;
+        do {
+            current = cursor.get();
+            address = current;
+            long offset = current % segmentSize;
+            if (offset + record.length > segmentSize) {
+                // Skip the tail of the current segment rather than splitting the record
+                address += segmentSize - offset;
+            }
+        } while (!cursor.compareAndSet(current, address + record.length));
+
+        segment(address).put(offsetOf(address), record);
+        return address;
+    }
+
+    @Override
+    public byte[] read(long address, int length) {
+        byte[] record = new byte[length];
+        segment(address).get(offsetOf(address), record);
+        return record;
+    }
+
+    private int offsetOf(long address) {
+        return (int) (address % segmentSize);
+    }
+
+    private ByteBuffer segment(long address) {
+        int segmentIndex = (int) (address / segmentSize);
+        ByteBuffer[] current = segments;
+        if (segmentIndex < current.length) {
+            return current[segmentIndex];
+        }
+
+        growLock.lock();
+        try {
+            current = segments;
+            if (segmentIndex >= current.length) {
+                ByteBuffer[] grown = Arrays.copyOf(current, segmentIndex + 1);
+                for (int i = current.length; i < grown.length; i++) {
+                    grown[i] = allocateSegment(i, segmentSize);
+                }
+                segments = grown;
+                current = grown;
+            }
+            return current[segmentIndex];
+        } finally {
+            growLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves a {@link MappedSnapshot} as the oldest part of a repository without
+ * loading it. Entities created after the snapshot live in a regular storage
+ * engine; updates and deletes of snapshot entities are kept as small
+ * per-position overrides and tombstones until the next checkpoint writes a
+ * fresh snapshot. Modification versions are kept per ID for every entity
+ * written since the snapshot was opened; untouched snapshot entities are at
+ * the version the repository was opened at.
+ * <p>
+ * {@link #snapshot()} builds its view once per version, and the view finds
+ * a position past the tombstones with a binary search over their sorted
+ * positions, so reads stay cheap however many deletes have piled up.
+ * <p>
+ * Writes to the same ID must not run concurrently; {@link DurableRepository}
+ * serializes them.
+ *
+ * @param <T> The entity type stored by this repository
+ */
+class SnapshotOverlayRepository<T> implements CrudRepository<T, String> {
+    private final MappedSnapshot<T> base;
+    private final EntityCodec<T> codec;
+    private final CrudRepository<T, String> overlay;
+    private final Map<Integer, T> overrides = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Integer> removed = new ConcurrentSkipListSet<>();
+    private final AtomicInteger removedCount = new AtomicInteger();
+    private final long initialVersion;
+    private final AtomicLong versions;
+    private final Map<String, Long> stamps = new ConcurrentHashMap<>();
+    private volatile SnapshotView view;
+
+    SnapshotOverlayRepository(MappedSnapshot<T> base, EntityCodec<T> codec, CrudRepository<T, String> overlay) {
+        this(base, codec, overlay, 0);
+    }
+
+    /**
+     * Open a snapshot whose versions continue from the given one, so a repository
+     * rebased onto a new snapshot never reports a version it has already reported
+     */
+    SnapshotOverlayRepository(MappedSnapshot<T> base, EntityCodec<T> codec, CrudRepository<T, String> overlay,
+                              long initialVersion) {
+        this.base = base;
+        this.codec = codec;
+        this.overlay = overlay;
+        this.initialVersion = initialVersion;
+        this.versions = new AtomicLong(initialVersion);
+    }
+
+    @Override
+    public T create(T entity) {
+        // Creating an existing ID replaces it at the end, as the engines do
+        int position = livePosition(codec.idOf(entity));
+        if (position >= 0) {
+            remove(position);
+        }
+        T created = overlay.create(entity);
+        stamp(codec.idOf(entity));
+        return created;
+    }
+
+    @Override
+    public Iterator<T> findAll() {
+        Iterator<T> created = overlay.findAll();
+        return new Iterator<>() {
+            private int position = nextLive(0);
+
+            @Override
+            public boolean hasNext() {
+                return position < base.size() || created.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (position < base.size()) {
+                    T entity = resolve(position);
+                    position = nextLive(position + 1);
+                    return entity;
+                }
+                if (!created.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return created.next();
+            }
+        };
+    }
+
+    @Override
+    public List<T> snapshot() {
+        // Read the version first: a write bumps it only after applying, so the view holds at least that version
+        long version = versions.get();
+        SnapshotView current = view;
+        if (current != null && current.version == version) {
+            return current;
+        }
+        int[] gone = removed.stream().mapToInt(Integer::intValue).toArray();
+        current = new SnapshotView(version, gone, new HashMap<>(overrides), overlay.snapshot());
+        view = current;
+        return current;
+    }
+
+    @Override
+    public List<T> findPage(long offset, int limit) {
+        return CrudRepository.page(snapshot(), offset, limit);
+    }
+
+    @Override
+    public List<T> findAfter(String id, int limit) {
+        if (overlay.findById(id) != null) {
+            return overlay.findAfter(id, limit);
+        }
+        int position = livePosition(id);
+        if (position < 0) {
+            return Collections.emptyList();
+        }
+        List<T> page = new ArrayList<>(Math.min(limit, 256));
+        for (position = nextLive(position + 1); position < base.size() && page.size() < limit;
+             position = nextLive(position + 1)) {
+            page.add(resolve(position));
+        }
+        if (page.size() < limit) {
+            page.addAll(overlay.findPage(0, limit - page.size()));
+        }
+        return page;
+    }
+
+    @Override
+    public long count() {
+        return base.size() - removedCount.get() + overlay.count();
+    }
+
+    @Override
+    public long deadBytes() {
+        return overlay.deadBytes();
+    }
+
+    @Override
+    public long version() {
+        return versions.get();
+    }
+
+    @Override
+    public long versionOf(String id) {
+        if (overlay.versionOf(id) < 0 && livePosition(id) < 0) {
+            return -1;
+        }
+        Long stamp = stamps.get(id);
+        return stamp == null ? initialVersion : stamp;
+    }
+
+    @Override
+    public T findById(String id) {
+        T created = overlay.findById(id);
+        if (created != null) {
+            return created;
+        }
+        int position = livePosition(id);
+        return position < 0 ? null : resolve(position);
+    }
+
+    @Override
+    public T update(String id, T entity) {
+        int position = livePosition(id);
+        T updated;
+        if (position < 0) {
+            updated = overlay.update(id, entity);
+        } else {
+            updated = codec.copyOf(entity, id);
+            overrides.put(position, updated);
+        }
+        if (updated != null) {
+            stamp(id);
+        }
+        return updated;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        int position = livePosition(id);
+        if (position < 0) {
+            overlay.deleteById(id);
+        } else {
+            remove(position);
+        }
+        if (id != null) {
+            stamps.remove(id);
+        }
+        versions.incrementAndGet();
+    }
+
+    @Override
+    public void close() {
+        overlay.close();
+    }
+
+    private void stamp(String id) {
+        long version = versions.incrementAndGet();
+        if (id != null) {
+            stamps.put(id, version);
+        }
+    }
+
+    private int livePosition(String id) {
+        int position = base.positionOf(id);
+        return position < 0 || removed.contains(position) ? -1 : position;
+    }
+
+    private int nextLive(int position) {
+        while (position < base.size() && removed.contains(position)) {
+            position++;
+        }
+        return position;
+    }
+
+    private void remove(int position) {
+        if (removed.add(position)) {
+            removedCount.incrementAndGet();
+        }
+        overrides.remove(position);
+    }
+
+    private T resolve(int position) {
+        T override = overrides.get(position);
+        return override != null ? override : base.get(position);
+    }
+
+    private final class SnapshotView extends AbstractList<T> implements RandomAccess {
+        private final long version;
+        private final int[] gone;
+        private final Map<Integer, T> changed;
+        private final List<T> created;
+
+        private SnapshotView(long version, int[] gone, Map<Integer, T> changed, List<T> created) {
+            this.version = version;
+            this.gone = gone;
+            this.changed = changed;
+            this.created = created;
+        }
+
+        @Override
+        public T get(int index) {
+            int live = base.size() - gone.length;
+            if (index >= live) {
+                return created.get(index - live);
+            }
+            if (index < 0) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            int position = index + tombstonesBefore(index);
+            T override = changed.get(position);
+            return override != null ? override : base.get(position);
+        }
+
+        @Override
+        public int size() {
+            return base.size() - gone.length + created.size();
+        }
+
+        /**
+         * Count the tombstones that come before the live entity at the given index.
+         * The j-th tombstone hides {@code gone[j] - j} live entities before it, which
+         * never decreases with j, so the count is found by binary search.
+         */
+        private int tombstonesBefore(int index) {
+            int low = 0;
+            int high = gone.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (gone[middle] - middle <= index) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Wires each entity repository to the storage engine configured for it,
+ * made durable when {@code eshop.storage.persistence.enabled} is set.
+ */
+@Configuration
+@EnableConfigurationProperties(StorageProperties.class)
+public class StorageConfiguration {
+
+    @Bean
+    public IdGenerator idGenerator(StorageProperties properties) {
+        return properties.getIdStrategy().create();
+    }
+
+    @Bean
+    public ProductRepository productRepository(StorageProperties properties, ObjectProvider<MeterRegistry> registry) {
+        StorageEngine engine = properties.getProduct().getEngine();
+        return new ProductRepository(open(engine, "product", ProductCodec.INSTANCE, properties),
+                registry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    public CarRepository carRepository(StorageProperties properties, IdGenerator idGenerator,
+                                       ObjectProvider<MeterRegistry> registry) {
+        StorageEngine engine = properties.getCar().getEngine();
+        return new CarRepository(open(engine, "car", CarCodec.INSTANCE, properties), idGenerator,
+                registry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    private static <T> CrudRepository<T, String> open(StorageEngine engine, String name, EntityCodec<T> codec,
+                                                      StorageProperties properties) {
+        StorageProperties.Persistence persistence = properties.getPersistence();
+        if (!persistence.isEnabled()) {
+            return engine.open(name, codec, properties);
+        }
+        // Every checkpoint opens a fresh engine; numbering them keeps file-backed engines apart
+        AtomicInteger generations = new AtomicInteger();
+        Supplier<CrudRepository<T, String>> engines =
+                () -> engine.open(name + "-" + generations.getAndIncrement(), codec, properties);
+        return new DurableRepository<>(engines, codec, properties.getDirectory(), name,
+                persistence.isSyncOnCommit(), persistence.getFlushInterval(), persistence.getSnapshotInterval());
+    }
+}
@@ -0,0 +1,85 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Storage engines that can back an entity repository, selected per entity
+ * through {@code eshop.storage.<entity>.engine}.
+ */
+public enum StorageEngine {
+
+    /**
+     * Entities live on the Java heap; fastest reads, largest heap footprint
+     */
+    HEAP {
+        @Override
+        public <T> CrudRepository<T, String> open(String name, EntityCodec<T> codec, StorageProperties properties) {
+            return new ConcurrentHeapRepository<>(codec);
+        }
+    },
+
+    /**
+     * Entities are split into primitive and dictionary-encoded columns and read through flyweight views
+     */
+    COMPACT {
+        @Override
+        public <T> CrudRepository<T, String> open(String name, EntityCodec<T> codec, StorageProperties properties) {
+            CompactLayout<T> layout = layoutOf(name, codec);
+            return new CompactRepository<>(codec, layout,
+                    () -> new HeapRowStore(layout.stringColumns(), layout.intColumns()));
+        }
+    },
+
+    /**
+     * Entities are serialized into direct buffers; only the index stays on the heap
+     */
+    OFF_HEAP {
+        @Override
+        public <T> CrudRepository<T, String> open(String name, EntityCodec<T> codec, StorageProperties properties) {
+            return new ByteStoreRepository<>(codec, () -> new OffHeapByteStore(properties.getSegmentSize()));
+        }
+    },
+
+    /**
+     * Entities are split into fixed-width columns and a string heap in direct buffers, with quantities
+     * updated in place; the garbage collector sees only the buffers and the primitive ID index
+     */
+    OFF_HEAP_COLUMNS {
+        @Override
+        public <T> CrudRepository<T, String> open(String name, EntityCodec<T> codec, StorageProperties properties) {
+            CompactLayout<T> layout = layoutOf(name, codec);
+            return new CompactRepository<>(codec, layout, () -> new OffHeapRowStore(layout.stringColumns(),
+                    layout.intColumns(), properties.getSegmentSize()));
+        }
+    },
+
+    /**
+     * Entities are serialized into a memory-mapped file under the storage directory
+     */
+    MAPPED_FILE {
+        @Override
+        public <T> CrudRepository<T, String> open(String name, EntityCodec<T> codec, StorageProperties properties) {
+            // Each compaction maps a new file, so numbering them keeps the live one apart from the last
+            AtomicInteger files = new AtomicInteger();
+            return new ByteStoreRepository<>(codec, () -> {
+                int file = files.getAndIncrement();
+                String fileName = file == 0 ? name + ".dat" : name + "." + file + ".dat";
+                return new MappedFileByteStore(properties.getDirectory().resolve(fileName),
+                        properties.getSegmentSize());
+            });
+        }
+    };
+
+    /**
+     * Open a storage engine instance for one entity type
+     */
+    public abstract <T> CrudRepository<T, String> open(String name, EntityCodec<T> codec, StorageProperties properties);
+
+    @SuppressWarnings("unchecked")
+    private static <T> CompactLayout<T> layoutOf(String name, EntityCodec<T> codec) {
+        if (!(codec instanceof CompactLayout<?>)) {
+            throw new IllegalArgumentException("No compact layout for " + name + " entities");
+        }
+        return (CompactLayout<T>) codec;
+    }
+}
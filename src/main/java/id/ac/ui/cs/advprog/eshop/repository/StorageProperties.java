@@ -0,0 +1,40 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "eshop.storage")
+public class StorageProperties {
+    private Path directory = Path.of("data");
+
+    private int segmentSize = 1 << 20;
+
+    private IdStrategy idStrategy = IdStrategy.TIME_ORDERED;
+
+    private EntityStorage product = new EntityStorage();
+
+    private EntityStorage car = new EntityStorage();
+
+    private Persistence persistence = new Persistence();
+
+    @Getter @Setter
+    public static class EntityStorage {
+        private StorageEngine engine = StorageEngine.HEAP;
+    }
+
+    @Getter @Setter
+    public static class Persistence {
+        private boolean enabled = false;
+
+        private boolean syncOnCommit = false;
+
+        private Duration flushInterval = Duration.ofMillis(10);
+
+        private Duration snapshotInterval = Duration.ofMinutes(5);
+    }
+}
@@ -0,0 +1,116 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.Arrays;
+
+/**
+ * Append-only dictionary that gives each distinct string a dense int code, so
+ * a column of repeated values stores ints and holds every value once. Codes
+ * are found through an open-addressing table of ints rather than a map, so an
+ * entry costs its string and a few bytes.
+ * <p>
+ * Each entry counts the references encoding it and releasing it leave. An
+ * entry nothing references any more stays until the dictionary is dropped,
+ * and its estimated bytes count as dead meanwhile.
+ * <p>
+ * Only one thread may encode and release at a time. Any thread may decode a
+ * code it obtained through a happens-before edge from the write that encoded
+ * it.
+ */
+final class StringDictionary {
+    static final int NULL = -1;
+
+    /**
+     * Estimated heap cost of an entry besides its characters: the string and array headers and its slots
+     */
+    private static final int ENTRY_BYTES = 48;
+
+    private volatile String[] values = new String[16];
+    private int[] references = new int[16];
+    private int[] slots = new int[32];
+    private int size;
+    private volatile long storedBytes;
+    private volatile long deadBytes;
+
+    /**
+     * Get the code of a value, adding it when it is new
+     */
+    int encode(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        String[] current = values;
+        int mask = slots.length - 1;
+        int slot = spread(value.hashCode()) & mask;
+        for (int entry = slots[slot]; entry != 0; entry = slots[slot]) {
+            if (current[entry - 1].equals(value)) {
+                if (references[entry - 1]++ == 0) {
+                    deadBytes -= bytesOf(value);
+                }
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int code = size;
+        if (code == current.length) {
+            current = Arrays.copyOf(current, code * 2);
+            values = current;
+            references = Arrays.copyOf(references, code * 2);
+        }
+        current[code] = value;
+        references[code] = 1;
+        storedBytes += bytesOf(value);
+        slots[slot] = code + 1;
+        size++;
+        if (size * 2 > slots.length) {
+            rehash(current);
+        }
+        return code;
+    }
+
+    String decode(int code) {
+        return code == NULL ? null : values[code];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Drop one reference to a code, as taken by {@link #encode(String)}
+     */
+    void release(int code) {
+        if (code != NULL && --references[code] == 0) {
+            deadBytes += bytesOf(values[code]);
+        }
+    }
+
+    long storedBytes() {
+        return storedBytes;
+    }
+
+    long deadBytes() {
+        return deadBytes;
+    }
+
+    private void rehash(String[] current) {
+        int[] grown = new int[slots.length * 2];
+        int mask = grown.length - 1;
+        for (int code = 0; code < size; code++) {
+            int slot = spread(current[code].hashCode()) & mask;
+            while (grown[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = code + 1;
+        }
+        slots = grown;
+    }
+
+    private static long bytesOf(String value) {
+        return ENTRY_BYTES + 2L * value.length();
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,100 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks that serializes writes per entity ID without a lock
+ * object per entity. Batches take every stripe they touch in index order,
+ * so two batches can never deadlock.
+ * <p>
+ * Time spent waiting for a held stripe is recorded as
+ * {@code eshop.repository.lock.wait}; uncontended acquisitions skip the clock.
+ */
+final class StripedLocks {
+    private static final int STRIPES = 64;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final Timer waits;
+
+    /**
+     * @param repository the repository the locks belong to, e.g. "product"
+     * @param guarding   what the locks guard, e.g. "index"
+     */
+    StripedLocks(String repository, String guarding) {
+        this(repository, guarding, Metrics.globalRegistry);
+    }
+
+    /**
+     * @param repository the repository the locks belong to, e.g. "product"
+     * @param guarding   what the locks guard, e.g. "index"
+     * @param registry   where the wait timer is registered
+     */
+    StripedLocks(String repository, String guarding, MeterRegistry registry) {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.waits = Timer.builder("eshop.repository.lock.wait")
+                .description("Time writers waited for a contended stripe lock")
+                .tag("repository", repository)
+                .tag("lock", guarding)
+                .register(registry);
+    }
+
+    /**
+     * Acquire the lock guarding the given ID and return it for unlocking
+     */
+    ReentrantLock lock(String id) {
+        ReentrantLock stripe = stripes[stripeIndex(id)];
+        acquire(stripe);
+        return stripe;
+    }
+
+    /**
+     * Lock every stripe the given IDs map to, returning a token for {@link #unlockAll(int[])}
+     */
+    int[] lockAll(Collection<String> ids) {
+        int[] indexes = ids.stream().mapToInt(StripedLocks::stripeIndex).distinct().sorted().toArray();
+        for (int index : indexes) {
+            acquire(stripes[index]);
+        }
+        return indexes;
+    }
+
+    /**
+     * Lock every stripe, excluding all writers
+     */
+    int[] lockEverything() {
+        int[] indexes = new int[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            indexes[i] = i;
+            acquire(stripes[i]);
+        }
+        return indexes;
+    }
+
+    void unlockAll(int[] indexes) {
+        for (int index : indexes) {
+            stripes[index].unlock();
+        }
+    }
+
+    private void acquire(ReentrantLock stripe) {
+        if (stripe.tryLock()) {
+            return;
+        }
+        long start = System.nanoTime();
+        stripe.lock();
+        waits.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    static int stripeIndex(String id) {
+        int hash = id == null ? 0 : id.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+}
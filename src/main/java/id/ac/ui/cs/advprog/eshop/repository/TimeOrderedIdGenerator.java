@@ -0,0 +1,61 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates version 7 UUIDs: a 48-bit millisecond timestamp, a 12-bit counter
+ * and 62 random bits. IDs therefore sort by creation time as strings too,
+ * which keeps ordered indexes appending at their end.
+ * <p>
+ * Every thread keeps its own last timestamp and counter and draws from
+ * {@link ThreadLocalRandom}, so generating never contends the way the shared
+ * {@code SecureRandom} behind {@link UUID#randomUUID()} does. IDs from one
+ * thread strictly increase: when the counter runs out within a millisecond the
+ * thread borrows the next one. Across threads the random bits keep IDs unique.
+ * They are not unguessable and must not be used as secrets.
+ */
+public class TimeOrderedIdGenerator implements IdGenerator {
+    private static final int COUNTER_BITS = 12;
+    private static final long VERSION = 7L << 12;
+    private static final long VARIANT = 1L << 63;
+
+    private final LongSupplier clock;
+    private final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+
+    public TimeOrderedIdGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    TimeOrderedIdGenerator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public String nextId() {
+        return nextUuid().toString();
+    }
+
+    UUID nextUuid() {
+        State state = states.get();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now = clock.getAsLong();
+        if (now > state.millis) {
+            state.millis = now;
+            // Start low in the counter range so a burst in the same millisecond has room to count up
+            state.counter = random.nextInt(1 << (COUNTER_BITS - 1));
+        } else if (++state.counter == 1 << COUNTER_BITS) {
+            state.millis++;
+            state.counter = 0;
+        }
+        long high = (state.millis & 0xFFFF_FFFF_FFFFL) << 16 | VERSION | state.counter;
+        long low = VARIANT | (random.nextLong() >>> 2);
+        return new UUID(high, low);
+    }
+
+    private static final class State {
+        private long millis = Long.MIN_VALUE;
+        private int counter;
+    }
+}
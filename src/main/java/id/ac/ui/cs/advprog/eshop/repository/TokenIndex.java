@@ -0,0 +1,115 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index from the words of an attribute to the IDs containing them.
+ * A query matches entities having every query term as a word or word prefix;
+ * whole-word hits rank above prefix hits. Each term costs O(log n + p) for
+ * p postings under it.
+ *
+ * @param <T> The entity type being indexed
+ */
+final class TokenIndex<T> extends AttributeIndex<T> {
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int EXACT = 2;
+    private static final int PREFIX = 1;
+
+    private final ConcurrentSkipListMap<String, Set<String>> entries;
+
+    TokenIndex(Function<T, String> attribute) {
+        this(attribute, new ConcurrentSkipListMap<>());
+    }
+
+    private TokenIndex(Function<T, String> attribute, ConcurrentSkipListMap<String, Set<String>> entries) {
+        super(attribute, entries);
+        this.entries = entries;
+    }
+
+    @Override
+    Collection<String> keysOf(T entity) {
+        return tokenize(keyOf(entity));
+    }
+
+    /**
+     * Up to {@code limit} IDs of the entities matching every query term, best ranked first
+     */
+    List<String> search(String query, int limit) {
+        Map<String, Integer> scores = null;
+        for (String term : tokenize(normalize(query))) {
+            Map<String, Integer> termScores = new HashMap<>();
+            for (Map.Entry<String, Set<String>> entry
+                    : entries.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+                int score = entry.getKey().equals(term) ? EXACT : PREFIX;
+                for (String id : entry.getValue()) {
+                    if (scores == null || scores.containsKey(id)) {
+                        termScores.merge(id, score, Math::max);
+                    }
+                }
+            }
+            if (scores != null) {
+                Map<String, Integer> previous = scores;
+                termScores.replaceAll((id, score) -> score + previous.get(id));
+            }
+            scores = termScores;
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        return scores == null ? List.of() : best(scores, limit);
+    }
+
+    boolean matches(T entity, String query) {
+        Set<String> words = tokenize(keyOf(entity));
+        for (String term : tokenize(normalize(query))) {
+            if (words.stream().noneMatch(word -> word.startsWith(term))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text != null) {
+            for (String token : SEPARATORS.split(text)) {
+                if (!token.isEmpty()) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private static List<String> best(Map<String, Integer> scores, int limit) {
+        Comparator<Map.Entry<String, Integer>> ranking = Map.Entry.<String, Integer>comparingByValue()
+                .reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        // Min-heap of the best k, so picking the top k costs O(m log k) rather than a full sort
+        PriorityQueue<Map.Entry<String, Integer>> top = new PriorityQueue<>(ranking.reversed());
+        for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+            top.offer(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(top);
+        ranked.sort(ranking);
+        List<String> ids = new ArrayList<>(ranked.size());
+        for (Map.Entry<String, Integer> entry : ranked) {
+            ids.add(entry.getKey());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,402 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, segmented log of repository mutations with group commit.
+ * <p>
+ * Appends only copy the framed record into an in-memory buffer, so they cost
+ * microseconds. A single flusher thread writes the buffer to the current
+ * segment and fsyncs it, either every flush interval (batch mode) or as soon
+ * as a committer is waiting (sync-on-commit mode). In both modes one fsync
+ * covers every record appended since the previous one.
+ * <p>
+ * Each record is framed as {@code [length][type][payload][crc32c]}; replay
+ * stops at the first incomplete or corrupt record of a segment, which is
+ * where a crash tore the tail.
+ */
+final class WriteAheadLog implements AutoCloseable {
+    private static final String SUFFIX = ".wal";
+    /**
+     * Largest record replay accepts; a bigger length can only come from a torn or corrupt frame
+     */
+    private static final int MAX_RECORD_LENGTH = 64 << 20;
+
+    private final Path directory;
+    private final String name;
+    private final boolean syncOnCommit;
+    private final long flushIntervalNanos;
+    private final Runnable beforeFlush;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition pendingWrites = appendLock.newCondition();
+    private final Condition durable = appendLock.newCondition();
+    private final ReentrantLock channelLock = new ReentrantLock();
+    private final Thread flusher;
+
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 16);
+    private long appendedLsn;
+    private long durableLsn;
+    private int segment;
+    private FileChannel channel;
+    private IOException failure;
+    private boolean closed;
+
+    WriteAheadLog(Path directory, String name, boolean syncOnCommit, Duration flushInterval) {
+        this(directory, name, syncOnCommit, flushInterval, () -> { });
+    }
+
+    /**
+     * @param beforeFlush Runs on the flusher thread before each flush, so tests can hold a commit back
+     */
+    WriteAheadLog(Path directory, String name, boolean syncOnCommit, Duration flushInterval, Runnable beforeFlush) {
+        this.directory = directory;
+        this.name = name;
+        this.syncOnCommit = syncOnCommit;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.beforeFlush = beforeFlush;
+        try {
+            Files.createDirectories(directory);
+            List<Integer> segments = segments();
+            this.segment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1;
+            this.channel = openSegment(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open write-ahead log " + name, e);
+        }
+        this.flusher = new Thread(this::flushLoop, name + "-wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Frame and buffer a record, returning the log sequence number that marks its end
+     */
+    long append(byte type, byte[] payload) {
+        if (payload.length >= MAX_RECORD_LENGTH) {
+            throw new IllegalArgumentException("Log record of " + payload.length + " bytes is too large");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(type);
+        crc.update(payload);
+
+        appendLock.lock();
+        try {
+            checkUsable();
+            writeInt(buffer, payload.length + 1);
+            buffer.write(type);
+            buffer.write(payload, 0, payload.length);
+            writeInt(buffer, (int) crc.getValue());
+            appendedLsn += payload.length + 9L;
+            if (syncOnCommit) {
+                pendingWrites.signal();
+            }
+            return appendedLsn;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Log sequence number of the last record appended so far
+     */
+    long appended() {
+        appendLock.lock();
+        try {
+            return appendedLsn;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Block until the record ending at the given sequence number is on disk.
+     * Does nothing unless the log runs in sync-on-commit mode.
+     */
+    void commit(long lsn) {
+        if (!syncOnCommit) {
+            return;
+        }
+        appendLock.lock();
+        try {
+            while (durableLsn < lsn) {
+                checkUsable();
+                durable.awaitUninterruptibly();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Flush everything appended so far and start a new segment. Returns the
+     * new segment number; every earlier segment is complete on disk.
+     */
+    int rotate() {
+        channelLock.lock();
+        try {
+            byte[] pending;
+            long lsn;
+            appendLock.lock();
+            try {
+                checkUsable();
+                pending = drain();
+                lsn = appendedLsn;
+            } finally {
+                appendLock.unlock();
+            }
+            write(pending);
+            channel.close();
+            segment++;
+            channel = openSegment(segment);
+            syncDirectory(directory);
+            markDurable(lsn);
+            return segment;
+        } catch (IOException e) {
+            fail(e);
+            throw new UncheckedIOException("Cannot rotate write-ahead log " + name, e);
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    /**
+     * Delete the segments that a snapshot has made redundant
+     */
+    void deleteSegmentsBefore(int firstKept) throws IOException {
+        for (int existing : segments()) {
+            if (existing < firstKept) {
+                Files.deleteIfExists(segmentPath(existing));
+            }
+        }
+    }
+
+    /**
+     * Force a directory's entries to disk, so files created, renamed or
+     * deleted in it survive a crash. File systems that cannot open a
+     * directory for syncing, such as those on Windows, are skipped.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (AccessDeniedException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Read every intact record of the closed segments from the given one on, oldest first
+     */
+    void replay(int firstSegment, RecordHandler handler) throws IOException {
+        for (int existing : segments()) {
+            if (existing < firstSegment || existing >= segment) {
+                continue;
+            }
+            try (InputStream file = Files.newInputStream(segmentPath(existing));
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+                while (replayRecord(in, handler)) {
+                    // keep reading until the end of the segment or a torn record
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pendingWrites.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channelLock.lock();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        boolean stopping = false;
+        while (!stopping) {
+            appendLock.lock();
+            try {
+                if (syncOnCommit) {
+                    while (buffer.size() == 0 && !closed) {
+                        pendingWrites.await();
+                    }
+                } else if (!closed) {
+                    pendingWrites.awaitNanos(flushIntervalNanos);
+                }
+                stopping = closed;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                appendLock.unlock();
+            }
+            beforeFlush.run();
+
+            // Drain and write under the channel lock so a concurrent rotation
+            // cannot move these records into the next segment.
+            channelLock.lock();
+            try {
+                byte[] pending;
+                long lsn;
+                appendLock.lock();
+                try {
+                    pending = drain();
+                    lsn = appendedLsn;
+                } finally {
+                    appendLock.unlock();
+                }
+                write(pending);
+                markDurable(lsn);
+            } catch (IOException e) {
+                fail(e);
+                return;
+            } finally {
+                channelLock.unlock();
+            }
+        }
+    }
+
+    private void write(byte[] pending) throws IOException {
+        if (pending.length == 0) {
+            return;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(pending);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        channel.force(false);
+    }
+
+    private byte[] drain() {
+        if (buffer.size() == 0) {
+            return new byte[0];
+        }
+        byte[] pending = buffer.toByteArray();
+        buffer.reset();
+        return pending;
+    }
+
+    private void markDurable(long lsn) {
+        appendLock.lock();
+        try {
+            durableLsn = Math.max(durableLsn, lsn);
+            durable.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void fail(IOException e) {
+        appendLock.lock();
+        try {
+            failure = e;
+            durable.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void checkUsable() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log " + name + " failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log " + name + " is closed");
+        }
+    }
+
+    private boolean replayRecord(DataInputStream in, RecordHandler handler) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length < 1 || length > MAX_RECORD_LENGTH) {
+                return false;
+            }
+            byte[] record = new byte[length];
+            in.readFully(record);
+            int expected = in.readInt();
+            CRC32C crc = new CRC32C();
+            crc.update(record);
+            if ((int) crc.getValue() != expected) {
+                return false;
+            }
+            handler.handle(record[0], new DataInputStream(
+                    new ByteArrayInputStream(record, 1, record.length - 1)));
+            return true;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    private List<Integer> segments() throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        String prefix = name + "-";
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(file -> file.startsWith(prefix) && file.endsWith(SUFFIX))
+                    .forEach(file -> segments.add(Integer.parseInt(
+                            file.substring(prefix.length(), file.length() - SUFFIX.length()))));
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("%s-%010d%s", name, number, SUFFIX));
+    }
+
+    private FileChannel openSegment(int number) throws IOException {
+        return FileChannel.open(segmentPath(number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    @FunctionalInterface
+    interface RecordHandler {
+        void handle(byte type, DataInputStream payload) throws IOException;
+    }
+}
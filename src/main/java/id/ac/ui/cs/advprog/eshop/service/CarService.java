@@ -1,12 +1,25 @@
 package id.ac.ui.cs.advprog.eshop.service;
 
 import id.ac.ui.cs.advprog.eshop.model.Car;
+import java.util.Iterator;
 import java.util.List;
 
 public interface CarService {
     Car create (Car car);
     List <Car> findAll();
+    Iterator <Car> iterateAll();
+    List <Car> findPage (int page, int size);
+    List <Car> findAfter (String carId, int size);
+    List <Car> findByColor (String color);
+    List <Car> findByName (String carName);
+    long version();
+    long versionOf (String carId);
     Car findById (String carId);
-    void update (String carId, Car car);
+    Car update (String carId, Car car);
+    Car increaseQuantity (String carId, int amount);
+    Car decreaseQuantity (String carId, int amount);
     void deleteCarById (String carId);
+    List <Car> createAll (List <Car> cars);
+    List <Car> updateAll (List <Car> cars);
+    int deleteAllById (List <String> carIds);
 }
\ No newline at end of file
@@ -1,51 +1,198 @@
 package id.ac.ui.cs.advprog.eshop.service;
 import id.ac.ui.cs.advprog.eshop.model.Car;
-import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.model.ChangeEvent;
+import id.ac.ui.cs.advprog.eshop.repository.CarCodec;
 import id.ac.ui.cs.advprog.eshop.repository.CarRepository;
+import id.ac.ui.cs.advprog.eshop.repository.EntityCodec;
+import id.ac.ui.cs.advprog.eshop.repository.IdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 
 @Service
 public class CarServiceImpl implements CarService {
 
+    private final CarRepository carRepository;
+
+    private final IdGenerator idGenerator;
+
+    private final ServiceMetrics metrics = new ServiceMetrics("car");
+    private final ServiceMetrics.Operation createCalls = metrics.operation("create");
+    private final ServiceMetrics.Operation findAllCalls = metrics.returningEntities("findAll");
+    private final ServiceMetrics.Operation findPageCalls = metrics.returningEntities("findPage");
+    private final ServiceMetrics.Operation findAfterCalls = metrics.returningEntities("findAfter");
+    private final ServiceMetrics.Operation findByColorCalls = metrics.returningEntities("findByColor");
+    private final ServiceMetrics.Operation findByNameCalls = metrics.returningEntities("findByName");
+    private final ServiceMetrics.Operation findByIdCalls = metrics.operation("findById");
+    private final ServiceMetrics.Operation updateCalls = metrics.operation("update");
+    private final ServiceMetrics.Operation adjustQuantityCalls = metrics.operation("adjustQuantity");
+    private final ServiceMetrics.Operation deleteCalls = metrics.operation("delete");
+    private final ServiceMetrics.Operation createAllCalls = metrics.returningEntities("createAll");
+    private final ServiceMetrics.Operation updateAllCalls = metrics.returningEntities("updateAll");
+    private final ServiceMetrics.Operation deleteAllCalls = metrics.operation("deleteAll");
+
     @Autowired
-    private CarRepository carRepository;
+    public CarServiceImpl(CarRepository carRepository, IdGenerator idGenerator, ChangeFeed changeFeed) {
+        this.carRepository = carRepository;
+        this.idGenerator = idGenerator;
+        carRepository.addChangeListener(changeFeed.publisher(ChangeEvent.EntityType.CAR,
+                Car::getCarId, car -> CarCodec.INSTANCE.copyOf(car, car.getCarId())));
+    }
 
     @Override
     public Car create (Car car) {
-        if (car.getCarId() == null || car.getCarId().isEmpty()) {
-            car.setCarId(UUID.randomUUID().toString());
-        }
-        validateCar(car);
-        return carRepository.create(car);
+        return createCalls.call(() -> {
+            if (car.getCarId() == null || car.getCarId().isEmpty()) {
+                car.setCarId(idGenerator.nextId());
+            }
+            validateCar(car);
+            return carRepository.create(car);
+        });
     }
 
     @Override
     public List <Car> findAll() {
-        Iterator <Car> carIterator = carRepository.findAll();
-        List <Car> allCar = new ArrayList<>();
-        carIterator.forEachRemaining(allCar::add);
-        return allCar;
+        return findAllCalls.call(() -> carRepository.snapshot());
+    }
+
+    @Override
+    public Iterator <Car> iterateAll() {
+        return carRepository.findAll();
+    }
+
+    @Override
+    public List <Car> findPage (int page, int size) {
+        return findPageCalls.call(() -> {
+            validatePage(page, size);
+            return carRepository.findPage((long) page * size, size);
+        });
+    }
+
+    @Override
+    public List <Car> findAfter (String carId, int size) {
+        return findAfterCalls.call(() -> {
+            validatePage(0, size);
+            return carRepository.findAfter(carId, size);
+        });
+    }
+
+    @Override
+    public List <Car> findByColor (String color) {
+        return findByColorCalls.call(() -> carRepository.findByColor(color));
+    }
+
+    @Override
+    public List <Car> findByName (String carName) {
+        return findByNameCalls.call(() -> carRepository.findByName(carName));
+    }
+
+    @Override
+    public long version() {
+        return carRepository.version();
+    }
+
+    @Override
+    public long versionOf (String carId) {
+        return carRepository.versionOf(carId);
     }
 
     @Override
     public Car findById (String carId) {
-        Car car = carRepository.findById(carId);
-        return car;
+        return findByIdCalls.call(() -> carRepository.findById(carId));
     }
 
     @Override
-    public void update (String carId, Car car) {
-        carRepository.update(carId, car);
+    public Car update (String carId, Car car) {
+        return updateCalls.call(() -> {
+            validateCar(car);
+            return carRepository.update(carId, car);
+        });
+    }
+
+    @Override
+    public Car increaseQuantity (String carId, int amount) {
+        return adjustQuantityCalls.call(() -> {
+            validateAmount(amount);
+            return carRepository.adjustQuantity(carId, amount);
+        });
+    }
+
+    @Override
+    public Car decreaseQuantity (String carId, int amount) {
+        return adjustQuantityCalls.call(() -> {
+            validateAmount(amount);
+            return carRepository.adjustQuantity(carId, -amount);
+        });
     }
 
     @Override
     public void deleteCarById (String carId) {
-        carRepository.delete(carId);
+        deleteCalls.run(() -> carRepository.deleteById(carId));
+    }
+
+    @Override
+    public List <Car> createAll (List <Car> cars) {
+        return createAllCalls.call(() -> {
+            for (Car car : cars) {
+                if (car != null && (car.getCarId() == null || car.getCarId().isEmpty())) {
+                    car.setCarId(idGenerator.nextId());
+                }
+            }
+            validateCars(cars);
+            return carRepository.createAll(cars);
+        });
+    }
+
+    @Override
+    public List <Car> updateAll (List <Car> cars) {
+        return updateAllCalls.call(() -> {
+            validateCars(cars);
+            Map <String, Car> updates = new LinkedHashMap<>();
+            for (int i = 0; i < cars.size(); i++) {
+                Car car = cars.get(i);
+                if (car.getCarId() == null || car.getCarId().isEmpty()) {
+                    throw new IllegalArgumentException("Car at index " + i + ": Car ID cannot be empty");
+                }
+                updates.put(car.getCarId(), car);
+            }
+            return carRepository.updateAll(updates);
+        });
+    }
+
+    @Override
+    public int deleteAllById (List <String> carIds) {
+        return deleteAllCalls.call(() -> carRepository.deleteAllById(carIds));
+    }
+
+    private void validatePage(int page, int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("Page cannot be negative");
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+    }
+
+    private void validateAmount(int amount) {
+        if (amount < 1) {
+            throw new IllegalArgumentException("Amount must be at least 1");
+        }
+    }
+
+    private void validateCars(List <Car> cars) {
+        for (int i = 0; i < cars.size(); i++) {
+            if (cars.get(i) == null) {
+                throw new IllegalArgumentException("Car at index " + i + " cannot be null");
+            }
+            try {
+                validateCar(cars.get(i));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Car at index " + i + ": " + e.getMessage(), e);
+            }
+        }
     }
 
     private void validateCar(Car car) {
@@ -55,5 +202,8 @@ public class CarServiceImpl implements CarService {
         if (car.getCarQuantity() < 0) {
             throw new IllegalArgumentException("Car quantity cannot be negative");
         }
+        if (!EntityCodec.fitsString(car.getCarId()) || !EntityCodec.fitsString(car.getCarName()) || !EntityCodec.fitsString(car.getCarColor())) {
+            throw new IllegalArgumentException("Car ID, name and color cannot be longer than 64 KB");
+        }
     }
 }
\ No newline at end of file
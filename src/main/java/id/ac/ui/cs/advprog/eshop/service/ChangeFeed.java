@@ -0,0 +1,231 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import id.ac.ui.cs.advprog.eshop.model.ChangeEvent;
+import id.ac.ui.cs.advprog.eshop.repository.ChangeListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded, lock-free ring of the latest product and car changes. Publishers
+ * claim a sequence with one atomic increment and store the event in its slot;
+ * they never wait for consumers.
+ * <p>
+ * Each consumer pulls through its own {@link Cursor} at its own pace, which
+ * is the backpressure: a slow consumer only falls behind. One that falls more
+ * than the capacity behind finds its next events overwritten, skips to the
+ * oldest retained event and is told how many it lost, so it can resync from
+ * the full lists.
+ * <p>
+ * Publishers run inside the repositories' write locks, so waking consumers is
+ * kept off that path: a publish only checks a counter of parked consumers, and
+ * each parked consumer is woken by exactly one publish, whoever clears its
+ * flag first.
+ */
+@Component
+@EnableConfigurationProperties(ChangeFeedProperties.class)
+public class ChangeFeed {
+    private final AtomicReferenceArray<ChangeEvent> slots;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong(1);
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger parked = new AtomicInteger();
+
+    @Autowired
+    public ChangeFeed(ChangeFeedProperties properties) {
+        this(properties.getCapacity());
+    }
+
+    public ChangeFeed(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Change feed capacity must be a power of two");
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Publish a change and return its sequence
+     */
+    public long publish(ChangeEvent.EntityType entityType, ChangeEvent.Type type, String entityId, Object entity) {
+        ChangeEvent event = new ChangeEvent();
+        event.setSequence(nextSequence.getAndIncrement());
+        event.setEntityType(entityType);
+        event.setType(type);
+        event.setEntityId(entityId);
+        event.setEntity(entity);
+        event.setTimestamp(Instant.now());
+
+        int slot = (int) (event.getSequence() & mask);
+        while (true) {
+            ChangeEvent previous = slots.get(slot);
+            // A publisher that stalled for a whole lap must not overwrite a newer event
+            if (previous != null && previous.getSequence() > event.getSequence()) {
+                break;
+            }
+            if (slots.compareAndSet(slot, previous, event)) {
+                break;
+            }
+        }
+        if (parked.get() > 0) {
+            wakeWaiters();
+        }
+        return event.getSequence();
+    }
+
+    /**
+     * Repository listener that publishes each write as it commits. Repositories
+     * call it under the entity's lock, so the feed holds the changes to one
+     * entity in commit order; {@code detach} copies the entity so later changes
+     * to the caller's object do not leak into the event.
+     */
+    public <T> ChangeListener<T> publisher(ChangeEvent.EntityType entityType, Function<T, String> idOf,
+                                           UnaryOperator<T> detach) {
+        return new ChangeListener<>() {
+            @Override
+            public void created(T entity) {
+                publish(entityType, ChangeEvent.Type.CREATED, idOf.apply(entity), detach.apply(entity));
+            }
+
+            @Override
+            public void updated(T entity) {
+                publish(entityType, ChangeEvent.Type.UPDATED, idOf.apply(entity), detach.apply(entity));
+            }
+
+            @Override
+            public void deleted(String id) {
+                publish(entityType, ChangeEvent.Type.DELETED, id, null);
+            }
+        };
+    }
+
+    /**
+     * Sequence the next published event will get
+     */
+    public long nextSequence() {
+        return nextSequence.get();
+    }
+
+    /**
+     * Follow the feed from the given sequence, clamped to the next one to be published
+     */
+    public Cursor subscribe(long fromSequence) {
+        return new Cursor(Math.max(1, Math.min(fromSequence, nextSequence.get())));
+    }
+
+    private void wakeWaiters() {
+        for (Waiter waiter : waiters) {
+            if (waiter.parked.compareAndSet(true, false)) {
+                parked.decrementAndGet();
+                LockSupport.unpark(waiter.thread);
+            }
+        }
+    }
+
+    /**
+     * A consumer thread about to park, until a publish clears its flag
+     */
+    private record Waiter(Thread thread, AtomicBoolean parked) {
+    }
+
+    /**
+     * Events read by one poll, and how many events were overwritten before the cursor reached them
+     */
+    public record Batch(List<ChangeEvent> events, long lost) {
+
+        public boolean isEmpty() {
+            return events.isEmpty() && lost == 0;
+        }
+    }
+
+    /**
+     * One consumer's position in the feed; not safe for use by several threads
+     */
+    public final class Cursor {
+        private long next;
+
+        private Cursor(long next) {
+            this.next = next;
+        }
+
+        /**
+         * Sequence of the next event this cursor will read
+         */
+        public long position() {
+            return next;
+        }
+
+        /**
+         * Read up to {@code max} published events without waiting
+         */
+        public Batch poll(int max) {
+            List<ChangeEvent> events = new ArrayList<>(Math.min(max, 64));
+            long lost = 0;
+            while (events.size() < max) {
+                ChangeEvent event = slots.get((int) (next & mask));
+                if (event == null || event.getSequence() < next) {
+                    // Not yet published
+                    break;
+                }
+                if (event.getSequence() > next) {
+                    // Overwritten: resume at the oldest event the ring still holds
+                    long oldest = Math.max(next, nextSequence.get() - slots.length());
+                    lost += oldest - next;
+                    next = oldest;
+                    continue;
+                }
+                events.add(event);
+                next++;
+            }
+            return new Batch(events, lost);
+        }
+
+        /**
+         * Read up to {@code max} events, waiting up to {@code timeout} for the first one
+         */
+        public Batch await(int max, Duration timeout) throws InterruptedException {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            Waiter waiter = new Waiter(Thread.currentThread(), new AtomicBoolean());
+            while (true) {
+                Batch batch = poll(max);
+                long remaining = deadline - System.nanoTime();
+                if (!batch.isEmpty() || remaining <= 0) {
+                    return batch;
+                }
+                waiter.parked.set(true);
+                parked.incrementAndGet();
+                waiters.add(waiter);
+                try {
+                    // Re-check after registering so a publish in between is not missed
+                    batch = poll(max);
+                    if (!batch.isEmpty()) {
+                        return batch;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                } finally {
+                    waiters.remove(waiter);
+                    if (waiter.parked.compareAndSet(true, false)) {
+                        parked.decrementAndGet();
+                    }
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "eshop.change-feed")
+public class ChangeFeedProperties {
+    private int capacity = 1 << 16;
+
+    private int batchSize = 256;
+
+    private Duration heartbeat = Duration.ofSeconds(15);
+
+    private Duration streamTimeout = Duration.ofMinutes(30);
+}
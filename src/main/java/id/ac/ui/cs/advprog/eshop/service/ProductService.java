@@ -1,14 +1,29 @@
 package id.ac.ui.cs.advprog.eshop.service;
 
 import id.ac.ui.cs.advprog.eshop.model.Product;
+import java.util.Iterator;
 import java.util.List;
 
 public interface ProductService {
     Product create(Product product);
     List<Product> findAll();
+    Iterator<Product> iterateAll();
+    List<Product> findPage(int page, int size);
+    List<Product> findAfter(String productId, int size);
+    List<Product> findByNamePrefix(String prefix, int limit);
+    List<Product> search(String query, int limit);
+
+    long version();
+    long versionOf(String productId);
 
     Product findById(String productId);
     Product update(Product product);
+    Product increaseQuantity(String productId, int amount);
+    Product decreaseQuantity(String productId, int amount);
 
     void deleteById(String productId);
+
+    List<Product> createAll(List<Product> products);
+    List<Product> updateAll(List<Product> products);
+    int deleteAllById(List<String> productIds);
 }
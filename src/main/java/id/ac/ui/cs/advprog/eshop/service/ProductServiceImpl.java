@@ -1,52 +1,212 @@
 package id.ac.ui.cs.advprog.eshop.service;
 
+import id.ac.ui.cs.advprog.eshop.model.ChangeEvent;
 import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.repository.EntityCodec;
+import id.ac.ui.cs.advprog.eshop.repository.IdGenerator;
+import id.ac.ui.cs.advprog.eshop.repository.ProductCodec;
 import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 
 @Service
 public class ProductServiceImpl implements ProductService {
 
+    private final ProductRepository productRepository;
+
+    private final IdGenerator idGenerator;
+
+    private final ServiceMetrics metrics = new ServiceMetrics("product");
+    private final ServiceMetrics.Operation createCalls = metrics.operation("create");
+    private final ServiceMetrics.Operation findAllCalls = metrics.returningEntities("findAll");
+    private final ServiceMetrics.Operation findPageCalls = metrics.returningEntities("findPage");
+    private final ServiceMetrics.Operation findAfterCalls = metrics.returningEntities("findAfter");
+    private final ServiceMetrics.Operation findByNamePrefixCalls = metrics.returningEntities("findByNamePrefix");
+    private final ServiceMetrics.Operation searchCalls = metrics.returningEntities("search");
+    private final ServiceMetrics.Operation findByIdCalls = metrics.operation("findById");
+    private final ServiceMetrics.Operation updateCalls = metrics.operation("update");
+    private final ServiceMetrics.Operation adjustQuantityCalls = metrics.operation("adjustQuantity");
+    private final ServiceMetrics.Operation deleteCalls = metrics.operation("delete");
+    private final ServiceMetrics.Operation createAllCalls = metrics.returningEntities("createAll");
+    private final ServiceMetrics.Operation updateAllCalls = metrics.returningEntities("updateAll");
+    private final ServiceMetrics.Operation deleteAllCalls = metrics.operation("deleteAll");
+
     @Autowired
-    private ProductRepository productRepository;
+    public ProductServiceImpl(ProductRepository productRepository, IdGenerator idGenerator, ChangeFeed changeFeed) {
+        this.productRepository = productRepository;
+        this.idGenerator = idGenerator;
+        productRepository.addChangeListener(changeFeed.publisher(ChangeEvent.EntityType.PRODUCT,
+                Product::getProductId, product -> ProductCodec.INSTANCE.copyOf(product, product.getProductId())));
+    }
 
     @Override
     public Product create(Product product) {
-        if (product.getProductId() == null || product.getProductId().isEmpty()) {
-            product.setProductId(UUID.randomUUID().toString());
-        }
-        validateProduct(product);
-        return productRepository.create(product);
+        return createCalls.call(() -> {
+            if (product.getProductId() == null || product.getProductId().isEmpty()) {
+                product.setProductId(idGenerator.nextId());
+            }
+            validateProduct(product);
+            return productRepository.create(product);
+        });
     }
 
     @Override
     public List<Product> findAll() {
-        Iterator<Product> productIterator = productRepository.findAll();
-        List<Product> allProduct = new ArrayList<>();
-        productIterator.forEachRemaining(allProduct::add);
-        return allProduct;
+        return findAllCalls.call(() -> productRepository.snapshot());
+    }
+
+    @Override
+    public Iterator<Product> iterateAll() {
+        return productRepository.findAll();
+    }
+
+    @Override
+    public List<Product> findPage(int page, int size) {
+        return findPageCalls.call(() -> {
+            validatePage(page, size);
+            return productRepository.findPage((long) page * size, size);
+        });
+    }
+
+    @Override
+    public List<Product> findAfter(String productId, int size) {
+        return findAfterCalls.call(() -> {
+            validatePage(0, size);
+            return productRepository.findAfter(productId, size);
+        });
+    }
+
+    @Override
+    public List<Product> findByNamePrefix(String prefix, int limit) {
+        return findByNamePrefixCalls.call(() -> {
+            validatePage(0, limit);
+            if (prefix == null || prefix.isBlank()) {
+                throw new IllegalArgumentException("Name prefix cannot be empty");
+            }
+            return productRepository.findByNamePrefix(prefix, limit);
+        });
+    }
+
+    @Override
+    public List<Product> search(String query, int limit) {
+        return searchCalls.call(() -> {
+            validatePage(0, limit);
+            if (query == null || query.isBlank()) {
+                throw new IllegalArgumentException("Search query cannot be empty");
+            }
+            return productRepository.search(query, limit);
+        });
+    }
+
+    @Override
+    public long version() {
+        return productRepository.version();
+    }
+
+    @Override
+    public long versionOf(String productId) {
+        return productRepository.versionOf(productId);
     }
 
     @Override
     public Product findById(String productId) {
-        return productRepository.findById(productId);
+        return findByIdCalls.call(() -> productRepository.findById(productId));
     }
 
     @Override
     public Product update(Product product) {
-        validateProduct(product);
-        return productRepository.update(product);
+        return updateCalls.call(() -> {
+            validateProduct(product);
+            return productRepository.update(product);
+        });
+    }
+
+    @Override
+    public Product increaseQuantity(String productId, int amount) {
+        return adjustQuantityCalls.call(() -> {
+            validateAmount(amount);
+            return productRepository.adjustQuantity(productId, amount);
+        });
+    }
+
+    @Override
+    public Product decreaseQuantity(String productId, int amount) {
+        return adjustQuantityCalls.call(() -> {
+            validateAmount(amount);
+            return productRepository.adjustQuantity(productId, -amount);
+        });
     }
 
     @Override
     public void deleteById(String productId) {
-        productRepository.deleteById(productId);
+        deleteCalls.run(() -> productRepository.deleteById(productId));
+    }
+
+    @Override
+    public List<Product> createAll(List<Product> products) {
+        return createAllCalls.call(() -> {
+            for (Product product : products) {
+                if (product != null && (product.getProductId() == null || product.getProductId().isEmpty())) {
+                    product.setProductId(idGenerator.nextId());
+                }
+            }
+            validateProducts(products);
+            return productRepository.createAll(products);
+        });
+    }
+
+    @Override
+    public List<Product> updateAll(List<Product> products) {
+        return updateAllCalls.call(() -> {
+            validateProducts(products);
+            Map<String, Product> updates = new LinkedHashMap<>();
+            for (int i = 0; i < products.size(); i++) {
+                Product product = products.get(i);
+                if (product.getProductId() == null || product.getProductId().isEmpty()) {
+                    throw new IllegalArgumentException("Product at index " + i + ": Product ID cannot be empty");
+                }
+                updates.put(product.getProductId(), product);
+            }
+            return productRepository.updateAll(updates);
+        });
+    }
+
+    @Override
+    public int deleteAllById(List<String> productIds) {
+        return deleteAllCalls.call(() -> productRepository.deleteAllById(productIds));
+    }
+
+    private void validatePage(int page, int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("Page cannot be negative");
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+    }
+
+    private void validateAmount(int amount) {
+        if (amount < 1) {
+            throw new IllegalArgumentException("Amount must be at least 1");
+        }
+    }
+
+    private void validateProducts(List<Product> products) {
+        for (int i = 0; i < products.size(); i++) {
+            if (products.get(i) == null) {
+                throw new IllegalArgumentException("Product at index " + i + " cannot be null");
+            }
+            try {
+                validateProduct(products.get(i));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Product at index " + i + ": " + e.getMessage(), e);
+            }
+        }
     }
 
     private void validateProduct(Product product) {
@@ -56,5 +216,8 @@ public class ProductServiceImpl implements ProductService {
         if (product.getProductQuantity() < 0) {
             throw new IllegalArgumentException("Product quantity cannot be negative");
         }
+        if (!EntityCodec.fitsString(product.getProductId()) || !EntityCodec.fitsString(product.getProductName())) {
+            throw new IllegalArgumentException("Product ID and name cannot be longer than 64 KB");
+        }
     }
 }
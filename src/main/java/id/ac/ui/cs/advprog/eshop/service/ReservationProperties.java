@@ -0,0 +1,19 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "eshop.reservation")
+public class ReservationProperties {
+    private Duration defaultTtl = Duration.ofMinutes(15);
+
+    private Duration maxTtl = Duration.ofHours(1);
+
+    private Duration tick = Duration.ofMillis(100);
+
+    private int wheelSize = 1024;
+}
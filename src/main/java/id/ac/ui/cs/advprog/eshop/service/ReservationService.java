@@ -0,0 +1,12 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import id.ac.ui.cs.advprog.eshop.model.Reservation;
+
+import java.time.Duration;
+
+public interface ReservationService {
+    Reservation reserve(Reservation.ItemType itemType, String itemId, int quantity, Duration ttl);
+    Reservation findById(String reservationId);
+    Reservation confirm(String reservationId);
+    Reservation release(String reservationId);
+}
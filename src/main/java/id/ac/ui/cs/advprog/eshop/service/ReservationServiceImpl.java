@@ -0,0 +1,235 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import id.ac.ui.cs.advprog.eshop.model.Reservation;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reservations take their quantity out of stock straight away through the
+ * services' atomic decrements, so two checkouts can never both hold the last
+ * unit and contention stays per item. Confirming keeps the stock taken;
+ * releasing or expiring puts it back. Exactly one of the three wins for
+ * each hold.
+ * <p>
+ * Expiry runs on a {@link TimingWheel} driven by one daemon thread, so
+ * scheduling and cancelling a hold are O(1) however many are pending. The
+ * wheel only hands due holds to a separate executor, which puts their stock
+ * back, so a slow write never holds up the ticks. Settled holds are
+ * forgotten.
+ * <p>
+ * Holds live in memory only. Shutting down releases every pending hold, so
+ * its stock goes back before the repositories write their last checkpoint.
+ * A crash skips that: stock held at the time stays taken until it is
+ * corrected by hand.
+ */
+@Service
+@EnableConfigurationProperties(ReservationProperties.class)
+public class ReservationServiceImpl implements ReservationService, AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(ReservationServiceImpl.class);
+
+    private final ProductService productService;
+    private final CarService carService;
+    private final ReservationProperties properties;
+    private final TimingWheel wheel;
+    private final ScheduledExecutorService ticker;
+    private final Executor expiries;
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReservationServiceImpl(ProductService productService, CarService carService,
+                                  ReservationProperties properties) {
+        this(productService, carService, properties,
+                new TimingWheel(properties.getTick(), properties.getWheelSize()),
+                Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "reservation-release");
+                    thread.setDaemon(true);
+                    return thread;
+                }), true);
+    }
+
+    ReservationServiceImpl(ProductService productService, CarService carService, ReservationProperties properties,
+                           TimingWheel wheel, Executor expiries, boolean startTicker) {
+        this.productService = productService;
+        this.carService = carService;
+        this.properties = properties;
+        this.wheel = wheel;
+        this.expiries = expiries;
+        if (startTicker) {
+            this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "reservation-expiry");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = properties.getTick().toNanos();
+            ticker.scheduleAtFixedRate(wheel::tick, period, period, TimeUnit.NANOSECONDS);
+        } else {
+            this.ticker = null;
+        }
+    }
+
+    @Override
+    public Reservation reserve(Reservation.ItemType itemType, String itemId, int quantity, Duration ttl) {
+        if (itemType == null) {
+            throw new IllegalArgumentException("Item type cannot be empty");
+        }
+        if (itemId == null || itemId.isEmpty()) {
+            throw new IllegalArgumentException("Item ID cannot be empty");
+        }
+        Duration holdFor = ttl == null ? properties.getDefaultTtl() : ttl;
+        if (holdFor.isNegative() || holdFor.isZero() || holdFor.compareTo(properties.getMaxTtl()) > 0) {
+            throw new IllegalArgumentException("Reservation TTL must be positive and at most " + properties.getMaxTtl());
+        }
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be at least 1");
+        }
+        // Throws IllegalStateException when there is not enough stock
+        if (!adjust(itemType, itemId, -quantity)) {
+            return null;
+        }
+        Hold hold = new Hold(UUID.randomUUID().toString(), itemType, itemId, quantity, Instant.now().plus(holdFor));
+        holds.put(hold.id, hold);
+        hold.timeout = wheel.schedule(() -> expire(hold), holdFor);
+        return hold.toReservation();
+    }
+
+    @Override
+    public Reservation findById(String reservationId) {
+        Hold hold = reservationId == null ? null : holds.get(reservationId);
+        return hold == null ? null : hold.toReservation();
+    }
+
+    @Override
+    public Reservation confirm(String reservationId) {
+        return settle(reservationId, Reservation.Status.CONFIRMED);
+    }
+
+    @Override
+    public Reservation release(String reservationId) {
+        return settle(reservationId, Reservation.Status.RELEASED);
+    }
+
+    /**
+     * Stop expiring holds and release the pending ones, putting their stock back
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+        if (expiries instanceof ExecutorService executor) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Hold hold : holds.values()) {
+            try {
+                settle(hold, Reservation.Status.RELEASED);
+            } catch (RuntimeException e) {
+                LOG.error("Cannot release reservation {} of {} {}", hold.id, hold.itemType, hold.itemId, e);
+            }
+        }
+    }
+
+    private void expire(Hold hold) {
+        try {
+            expiries.execute(() -> {
+                try {
+                    settle(hold, Reservation.Status.EXPIRED);
+                } catch (RuntimeException e) {
+                    LOG.error("Cannot expire reservation {} of {} {}", hold.id, hold.itemType, hold.itemId, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closing; close() releases the hold instead
+        }
+    }
+
+    private Reservation settle(String reservationId, Reservation.Status outcome) {
+        Hold hold = reservationId == null ? null : holds.get(reservationId);
+        if (hold == null) {
+            return null;
+        }
+        if (!settle(hold, outcome)) {
+            throw new IllegalStateException("Reservation " + reservationId + " is already " + hold.status.get());
+        }
+        // Null only when settled before reserve() filed the expiry, which then finds nothing to do
+        TimingWheel.Timeout timeout = hold.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        return hold.toReservation();
+    }
+
+    private boolean settle(Hold hold, Reservation.Status outcome) {
+        if (!hold.status.compareAndSet(Reservation.Status.PENDING, outcome)) {
+            return false;
+        }
+        holds.remove(hold.id);
+        if (outcome != Reservation.Status.CONFIRMED) {
+            adjust(hold.itemType, hold.itemId, hold.quantity);
+        }
+        return true;
+    }
+
+    private boolean adjust(Reservation.ItemType itemType, String itemId, int delta) {
+        Object adjusted = switch (itemType) {
+            case PRODUCT -> delta < 0
+                    ? productService.decreaseQuantity(itemId, -delta)
+                    : productService.increaseQuantity(itemId, delta);
+            case CAR -> delta < 0
+                    ? carService.decreaseQuantity(itemId, -delta)
+                    : carService.increaseQuantity(itemId, delta);
+        };
+        return adjusted != null;
+    }
+
+    private static final class Hold {
+        private final String id;
+        private final Reservation.ItemType itemType;
+        private final String itemId;
+        private final int quantity;
+        private final Instant expiresAt;
+        private final AtomicReference<Reservation.Status> status = new AtomicReference<>(Reservation.Status.PENDING);
+        private volatile TimingWheel.Timeout timeout;
+
+        private Hold(String id, Reservation.ItemType itemType, String itemId, int quantity, Instant expiresAt) {
+            this.id = id;
+            this.itemType = itemType;
+            this.itemId = itemId;
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+        }
+
+        private Reservation toReservation() {
+            Reservation reservation = new Reservation();
+            reservation.setReservationId(id);
+            reservation.setItemType(itemType);
+            reservation.setItemId(itemId);
+            reservation.setQuantity(quantity);
+            reservation.setExpiresAt(expiresAt);
+            reservation.setStatus(status.get());
+            return reservation;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters for one entity's service operations. Meters are created
+ * once, when the service is, so a call only pays for a clock read and an
+ * update of meters it already holds.
+ * <p>
+ * Meters go to {@link Metrics#globalRegistry}, to which Spring Boot adds its
+ * auto-configured registries; services built outside Spring record nowhere.
+ */
+final class ServiceMetrics {
+    private final String entity;
+    private final MeterRegistry registry;
+
+    ServiceMetrics(String entity) {
+        this(entity, Metrics.globalRegistry);
+    }
+
+    ServiceMetrics(String entity, MeterRegistry registry) {
+        this.entity = entity;
+        this.registry = registry;
+    }
+
+    /**
+     * Meters for calls of one operation
+     */
+    Operation operation(String name) {
+        return operation(name, null);
+    }
+
+    /**
+     * Meters for calls of one operation returning entities, also recording how many it returned
+     */
+    Operation returningEntities(String name) {
+        DistributionSummary returned = DistributionSummary.builder("eshop.service.entities")
+                .description("Entities returned by a service call")
+                .baseUnit("entities")
+                .tag("entity", entity)
+                .tag("operation", name)
+                .register(registry);
+        return operation(name, returned);
+    }
+
+    private Operation operation(String name, DistributionSummary returned) {
+        Timer timer = Timer.builder("eshop.service.calls")
+                .description("Time spent in service operations")
+                .tag("entity", entity)
+                .tag("operation", name)
+                .register(registry);
+        Counter validationFailures = Counter.builder("eshop.service.validation.failures")
+                .description("Service calls rejected as invalid")
+                .tag("entity", entity)
+                .tag("operation", name)
+                .register(registry);
+        return new Operation(timer, validationFailures, returned);
+    }
+
+    static final class Operation {
+        private final Timer timer;
+        private final Counter validationFailures;
+        private final DistributionSummary returned;
+
+        private Operation(Timer timer, Counter validationFailures, DistributionSummary returned) {
+            this.timer = timer;
+            this.validationFailures = validationFailures;
+            this.returned = returned;
+        }
+
+        <T> T call(Supplier<T> body) {
+            long start = System.nanoTime();
+            try {
+                T result = body.get();
+                if (returned != null && result instanceof Collection<?> entities) {
+                    returned.record(entities.size());
+                }
+                return result;
+            } catch (IllegalArgumentException e) {
+                validationFailures.increment();
+                throw e;
+            } finally {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        void run(Runnable body) {
+            call(() -> {
+                body.run();
+                return null;
+            });
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hashed timing wheel: a ring of buckets, one per tick, with each timeout
+ * filed in the bucket of its deadline. Scheduling and cancelling cost O(1);
+ * each {@link #tick()} only visits the bucket under the hand. Timeouts more
+ * than one revolution away stay in their bucket until the hand has passed it
+ * enough times.
+ * <p>
+ * Any thread may schedule or cancel. Only the thread driving {@link #tick()}
+ * touches the buckets, so new timeouts wait in a lock-free queue until the
+ * next tick files them.
+ */
+final class TimingWheel {
+    private final long tickNanos;
+    private final ArrayDeque<Timeout>[] buckets;
+    private final int mask;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private volatile long elapsedTicks;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(Duration tick, int size) {
+        if (tick.isNegative() || tick.isZero()) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        if (size < 1 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two");
+        }
+        this.tickNanos = tick.toNanos();
+        this.buckets = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Run {@code task} on the ticking thread once {@code delay} has passed, rounded up to whole ticks
+     */
+    Timeout schedule(Runnable task, Duration delay) {
+        long ticks = Math.max(1, (delay.toNanos() + tickNanos - 1) / tickNanos);
+        Timeout timeout = new Timeout(task, elapsedTicks + ticks);
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Advance the hand by one tick and run the timeouts that fall due. A task
+     * that throws does not stop the others.
+     */
+    void tick() {
+        long now = elapsedTicks + 1;
+        for (Timeout timeout = pending.poll(); timeout != null; timeout = pending.poll()) {
+            if (!timeout.isCancelled()) {
+                buckets[(int) (Math.max(timeout.deadline, now) & mask)].add(timeout);
+            }
+        }
+        Iterator<Timeout> bucket = buckets[(int) (now & mask)].iterator();
+        while (bucket.hasNext()) {
+            Timeout timeout = bucket.next();
+            if (timeout.isCancelled()) {
+                bucket.remove();
+            } else if (timeout.deadline <= now) {
+                bucket.remove();
+                timeout.expire();
+            }
+        }
+        elapsedTicks = now;
+    }
+
+    /**
+     * Handle to a scheduled task
+     */
+    static final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Stop the task from running; {@code false} when it already ran or was cancelled
+         */
+        boolean cancel() {
+            if (!done.compareAndSet(false, true)) {
+                return false;
+            }
+            cancelled = true;
+            return true;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void expire() {
+            if (done.compareAndSet(false, true)) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    // Report it, but keep expiring the rest of the bucket
+                    Thread current = Thread.currentThread();
+                    current.getUncaughtExceptionHandler().uncaughtException(current, e);
+                }
+            }
+        }
+    }
+}
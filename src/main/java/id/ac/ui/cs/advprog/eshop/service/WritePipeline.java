@@ -0,0 +1,242 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Queue of creates and updates applied by a single writer thread. Request
+ * threads only enqueue a mutation and wait on its future. The writer drains
+ * whatever has queued up, up to the batch size, and applies each run of
+ * consecutive creates or updates with one {@code createAll} or
+ * {@code updateAll} call. Under a burst, many requests then share a single
+ * trip through the repository locks instead of contending for them.
+ * <p>
+ * Each future completes once the batch holding its mutation is committed.
+ * The batch calls validate every entity before writing any, so a batch that
+ * fails validation has written nothing. It is then retried one mutation at a
+ * time, and only the invalid mutations fail. Any other failure fails every
+ * mutation of its batch, and the writer moves on to the next. Two updates
+ * of one ID never share a call, so each is applied rather than collapsed
+ * into the last.
+ * <p>
+ * A full queue blocks the callers, which pushes back on write bursts the
+ * writer cannot keep up with. Futures time out after the commit timeout, so
+ * a stuck writer cannot hang request threads; a mutation that timed out may
+ * still be applied later.
+ *
+ * @param <T> The entity type written through the pipeline
+ */
+public class WritePipeline<T> implements AutoCloseable {
+    private final Function<T, String> idOf;
+    private final UnaryOperator<List<T>> createAll;
+    private final UnaryOperator<List<T>> updateAll;
+    private final int batchSize;
+    private final long commitTimeoutNanos;
+    private final BlockingQueue<Mutation<T>> queue;
+    private final DistributionSummary batchSizes;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public WritePipeline(String name, Function<T, String> idOf, UnaryOperator<List<T>> createAll,
+                         UnaryOperator<List<T>> updateAll, int batchSize, int queueCapacity,
+                         Duration commitTimeout) {
+        this(name, idOf, createAll, updateAll, batchSize, queueCapacity, commitTimeout, Metrics.globalRegistry);
+    }
+
+    WritePipeline(String name, Function<T, String> idOf, UnaryOperator<List<T>> createAll,
+                  UnaryOperator<List<T>> updateAll, int batchSize, int queueCapacity, Duration commitTimeout,
+                  MeterRegistry registry) {
+        if (batchSize < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Write pipeline batch size and queue capacity must be positive");
+        }
+        this.commitTimeoutNanos = commitTimeout.toNanos();
+        this.idOf = idOf;
+        this.createAll = createAll;
+        this.updateAll = updateAll;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSizes = DistributionSummary.builder("eshop.write.pipeline.batch.size")
+                .description("Mutations committed by one batch of the write pipeline")
+                .baseUnit("mutations")
+                .tag("entity", name)
+                .register(registry);
+        this.writer = new Thread(this::writeLoop, name + "-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queue a create, completing with the created entity
+     */
+    public CompletableFuture<T> create(T entity) {
+        return submit(new Mutation<>(Kind.CREATE, entity));
+    }
+
+    /**
+     * Queue an update, completing with the updated entity, or null when it does not exist
+     */
+    public CompletableFuture<T> update(T entity) {
+        return submit(new Mutation<>(Kind.UPDATE, entity));
+    }
+
+    /**
+     * Stop accepting mutations and wait for the queued ones to be applied
+     */
+    @Override
+    public void close() {
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<T> submit(Mutation<T> mutation) {
+        checkAccepting();
+        long deadline = System.nanoTime() + commitTimeoutNanos;
+        try {
+            // Wait for room in slices, so a writer that died or a pipeline that closed is noticed
+            while (!queue.offer(mutation, 100, TimeUnit.MILLISECONDS)) {
+                checkAccepting();
+                if (System.nanoTime() - deadline > 0) {
+                    throw new IllegalStateException("Write pipeline queue stayed full for the commit timeout");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing a write", e);
+        }
+        // The writer may have drained for the last time between the check and the put
+        if (closed && queue.remove(mutation)) {
+            throw new IllegalStateException("Write pipeline is closed");
+        }
+        return mutation.future.orTimeout(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private void checkAccepting() {
+        if (closed) {
+            throw new IllegalStateException("Write pipeline is closed");
+        }
+        if (!writer.isAlive()) {
+            throw new IllegalStateException("Write pipeline writer has stopped");
+        }
+    }
+
+    private void writeLoop() {
+        List<Mutation<T>> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            applySafely(batch);
+        }
+        // Closing: apply whatever was queued before the pipeline stopped accepting writes
+        while (queue.drainTo(batch, batchSize) > 0) {
+            applySafely(batch);
+        }
+    }
+
+    /**
+     * Apply a batch, failing whatever it left pending rather than letting the writer die
+     */
+    private void applySafely(List<Mutation<T>> batch) {
+        try {
+            apply(batch);
+        } catch (Throwable e) {
+            batch.forEach(mutation -> mutation.future.completeExceptionally(e));
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private void apply(List<Mutation<T>> batch) {
+        batchSizes.record(batch.size());
+        int start = 0;
+        while (start < batch.size()) {
+            Kind kind = batch.get(start).kind;
+            Set<String> updatedIds = new HashSet<>();
+            int end = start;
+            // An update of an ID already in the run starts a new run, so neither update is lost
+            while (end < batch.size() && batch.get(end).kind == kind
+                    && (kind == Kind.CREATE || updatedIds.add(idOf.apply(batch.get(end).entity)))) {
+                end++;
+            }
+            List<Mutation<T>> run = batch.subList(start, end);
+            try {
+                commit(kind, run);
+            } catch (IllegalArgumentException e) {
+                if (run.size() == 1) {
+                    run.get(0).future.completeExceptionally(e);
+                } else {
+                    for (Mutation<T> mutation : run) {
+                        commitAlone(kind, mutation);
+                    }
+                }
+            } catch (Throwable e) {
+                run.forEach(mutation -> mutation.future.completeExceptionally(e));
+            }
+            start = end;
+        }
+    }
+
+    private void commitAlone(Kind kind, Mutation<T> mutation) {
+        try {
+            commit(kind, List.of(mutation));
+        } catch (Throwable e) {
+            mutation.future.completeExceptionally(e);
+        }
+    }
+
+    private void commit(Kind kind, List<Mutation<T>> run) {
+        List<T> entities = new ArrayList<>(run.size());
+        for (Mutation<T> mutation : run) {
+            entities.add(mutation.entity);
+        }
+        if (kind == Kind.CREATE) {
+            List<T> created = createAll.apply(entities);
+            for (int i = 0; i < run.size(); i++) {
+                run.get(i).future.complete(created.get(i));
+            }
+            return;
+        }
+        Map<String, T> updated = new HashMap<>();
+        for (T entity : updateAll.apply(entities)) {
+            updated.put(idOf.apply(entity), entity);
+        }
+        for (Mutation<T> mutation : run) {
+            mutation.future.complete(updated.get(idOf.apply(mutation.entity)));
+        }
+    }
+
+    private enum Kind {
+        CREATE,
+        UPDATE
+    }
+
+    private record Mutation<T>(Kind kind, T entity, CompletableFuture<T> future) {
+
+        Mutation(Kind kind, T entity) {
+            this(kind, entity, new CompletableFuture<>());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Routes form creates and edits through a single-writer pipeline per entity
+ * when {@code eshop.write-pipeline.enabled} is set.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "eshop.write-pipeline", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(WritePipelineProperties.class)
+public class WritePipelineConfiguration {
+
+    @Bean
+    public WritePipeline<Product> productWritePipeline(ProductService productService,
+                                                       WritePipelineProperties properties) {
+        return new WritePipeline<>("product", Product::getProductId, productService::createAll,
+                productService::updateAll, properties.getBatchSize(), properties.getQueueCapacity(),
+                properties.getCommitTimeout());
+    }
+
+    @Bean
+    public WritePipeline<Car> carWritePipeline(CarService carService, WritePipelineProperties properties) {
+        return new WritePipeline<>("car", Car::getCarId, carService::createAll,
+                carService::updateAll, properties.getBatchSize(), properties.getQueueCapacity(),
+                properties.getCommitTimeout());
+    }
+}
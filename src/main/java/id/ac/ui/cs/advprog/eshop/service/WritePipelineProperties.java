@@ -0,0 +1,19 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "eshop.write-pipeline")
+public class WritePipelineProperties {
+    private boolean enabled = false;
+
+    private int batchSize = 256;
+
+    private int queueCapacity = 4096;
+
+    private Duration commitTimeout = Duration.ofSeconds(30);
+}
@@ -2,18 +2,34 @@ package id.ac.ui.cs.advprog.eshop.controller;
 
 import id.ac.ui.cs.advprog.eshop.model.Product;
 import id.ac.ui.cs.advprog.eshop.service.ProductService;
+import id.ac.ui.cs.advprog.eshop.service.WritePipeline;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -28,6 +44,9 @@ class ProductControllerTest {
     @Mock
     private BindingResult bindingResult;
 
+    @Mock
+    private WebRequest webRequest;
+
     private ProductController productController;
 
     @BeforeEach
@@ -55,6 +74,36 @@ class ProductControllerTest {
         assertEquals("redirect:list", viewName);
     }
 
+    @Test
+    void testCreateProductPostThroughWritePipeline() {
+        Product product = new Product();
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(productService.createAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        try (WritePipeline<Product> pipeline = new WritePipeline<>("product", Product::getProductId,
+                productService::createAll, productService::updateAll, 16, 16, Duration.ofSeconds(10))) {
+            productController.setWritePipeline(pipeline);
+
+            String viewName = productController.createProductPost(product, bindingResult, model);
+
+            verify(productService).createAll(List.of(product));
+            verify(productService, never()).create(any(Product.class));
+            assertEquals("redirect:list", viewName);
+        }
+    }
+
+    @Test
+    void testCreateProductPostThroughWritePipelineRethrowsValidationFailure() {
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(productService.createAll(anyList())).thenThrow(new IllegalArgumentException("Product name cannot be empty"));
+        try (WritePipeline<Product> pipeline = new WritePipeline<>("product", Product::getProductId,
+                productService::createAll, productService::updateAll, 16, 16, Duration.ofSeconds(10))) {
+            productController.setWritePipeline(pipeline);
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> productController.createProductPost(new Product(), bindingResult, model));
+        }
+    }
+
     @Test
     void testCreateProductPostValidationError() {
         Product product = new Product();
@@ -69,21 +118,109 @@ class ProductControllerTest {
     @Test
     void testProductListPage() {
         List<Product> products = Arrays.asList(new Product(), new Product());
-        when(productService.findAll()).thenReturn(products);
+        when(productService.findPage(0, 20)).thenReturn(products);
+
+        String viewName = productController.productListPage(0, 20, null, model, webRequest);
+
+        verify(model).addAttribute("products", products);
+        verify(model).addAttribute("previousPageUrl", null);
+        verify(model).addAttribute("nextPageUrl", null);
+        assertEquals("productList", viewName);
+    }
+
+    @Test
+    void testProductListPageLinksToNextPageWhenFull() {
+        List<Product> products = Arrays.asList(new Product(), new Product());
+        when(productService.findPage(1, 2)).thenReturn(products);
+
+        productController.productListPage(1, 2, null, model, webRequest);
 
-        String viewName = productController.productListPage(model);
+        verify(model).addAttribute("previousPageUrl", "/product/list?size=2&page=0");
+        verify(model).addAttribute("nextPageUrl", "/product/list?size=2&page=2");
+    }
+
+    @Test
+    void testProductListPageClampsPageSize() {
+        when(productService.findPage(0, 100)).thenReturn(List.of());
+
+        productController.productListPage(-1, 1_000_000, null, model, webRequest);
+
+        verify(productService).findPage(0, 100);
+        verify(model).addAttribute("size", 100);
+    }
+
+    @Test
+    void testProductListPageAfterCursor() {
+        Product product = new Product();
+        product.setProductId("last-id");
+        when(productService.findAfter("cursor-id", 1)).thenReturn(List.of(product));
+
+        productController.productListPage(0, 1, "cursor-id", model, webRequest);
+
+        verify(productService, never()).findPage(anyInt(), anyInt());
+        verify(model).addAttribute("products", List.of(product));
+        verify(model).addAttribute("previousPageUrl", "/product/list?size=1");
+        verify(model).addAttribute("nextPageUrl", "/product/list?size=1&after=last-id");
+    }
+
+    @Test
+    void testProductListAllPageStreamsFromIterator() {
+        Iterator<Product> products = Arrays.asList(new Product(), new Product()).iterator();
+        when(productService.iterateAll()).thenReturn(products);
+
+        String viewName = productController.productListAllPage(model, webRequest);
 
         verify(model).addAttribute("products", products);
+        verify(productService, never()).findAll();
         assertEquals("productList", viewName);
     }
 
+    @Test
+    void testProductListPageNotModified() {
+        when(productService.version()).thenReturn(7L);
+        when(webRequest.checkNotModified(anyString())).thenReturn(true);
+
+        String viewName = productController.productListPage(0, 20, null, model, webRequest);
+
+        assertNull(viewName);
+        verify(productService, never()).findPage(anyInt(), anyInt());
+        verifyNoInteractions(model);
+    }
+
+    @Test
+    void testProductListPageETagFollowsVersion() {
+        when(productService.version()).thenReturn(7L, 8L);
+        when(productService.findPage(0, 20)).thenReturn(List.of());
+        List<String> etags = new ArrayList<>();
+        when(webRequest.checkNotModified(anyString())).thenAnswer(invocation -> {
+            etags.add(invocation.getArgument(0));
+            return false;
+        });
+
+        productController.productListPage(0, 20, null, model, webRequest);
+        productController.productListPage(0, 20, null, model, webRequest);
+
+        assertEquals(2, etags.size());
+        assertTrue(etags.get(0).startsWith("\"") && etags.get(0).endsWith("-7\""));
+        assertTrue(etags.get(1).endsWith("-8\""));
+    }
+
+    @Test
+    void testEditProductPageNotModified() {
+        when(productService.versionOf("testId")).thenReturn(3L);
+        when(webRequest.checkNotModified(anyString())).thenReturn(true);
+
+        assertNull(productController.editProductPage("testId", model, webRequest));
+        verify(productService, never()).findById(anyString());
+    }
+
     @Test
     void testEditProductPageExistingProduct() {
         String productId = "testId";
         Product product = new Product();
         when(productService.findById(productId)).thenReturn(product);
 
-        String viewName = productController.editProductPage(productId, model);
+        String viewName = productController.editProductPage(productId, model, webRequest);
 
         verify(model).addAttribute("product", product);
         assertEquals("editProduct", viewName);
@@ -94,7 +231,7 @@ class ProductControllerTest {
         String productId = "nonExistingId";
         when(productService.findById(productId)).thenReturn(null);
 
-        String viewName = productController.editProductPage(productId, model);
+        String viewName = productController.editProductPage(productId, model, webRequest);
 
         verify(model, never()).addAttribute(eq("product"), any());
         assertEquals("redirect:/product/list", viewName);
@@ -213,13 +350,19 @@ class ProductControllerTest {
     }
 
     @Test
-    void testFindAllEntities() {
+    void testFindEntityPage() {
         List<Product> products = Arrays.asList(new Product(), new Product());
-        when(productService.findAll()).thenReturn(products);
+        when(productService.findPage(2, 10)).thenReturn(products);
 
-        List<Product> result = productController.findAllEntities();
-        assertEquals(products, result);
-        verify(productService).findAll();
+        assertEquals(products, productController.findEntityPage(2, 10));
+    }
+
+    @Test
+    void testFindEntitiesAfter() {
+        List<Product> products = Arrays.asList(new Product(), new Product());
+        when(productService.findAfter("testId", 10)).thenReturn(products);
+
+        assertEquals(products, productController.findEntitiesAfter("testId", 10));
     }
 
     @Test
@@ -257,4 +400,71 @@ class ProductControllerTest {
         String result = productController.getEntityId(product);
         assertEquals("testId", result);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCreateProductBatch() {
+        List<Product> products = List.of(new Product(), new Product());
+        when(productService.createAll(products)).thenReturn(products);
+
+        assertSame(products, productController.createProductBatch(products));
+    }
+
+    @Test
+    void testCreateProductBatchWithInvalidProductIsBadRequest() {
+        List<Product> products = List.of(new Product());
+        when(productService.createAll(products))
+                .thenThrow(new IllegalArgumentException("Product at index 0: Product name cannot be empty"));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> productController.createProductBatch(products));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+
+    @Test
+    void testUpdateProductBatch() {
+        List<Product> products = List.of(new Product());
+        when(productService.updateAll(products)).thenReturn(products);
+
+        assertSame(products, productController.updateProductBatch(products));
+    }
+
+    @Test
+    void testProductBatchTooLarge() {
+        List<Product> products = Collections.nCopies(10_001, new Product());
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> productController.updateProductBatch(products));
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, exception.getStatusCode());
+        verify(productService, never()).updateAll(anyList());
+    }
+
+    @Test
+    void testDeleteProductBatch() {
+        List<String> productIds = List.of("id-1", "id-2");
+        when(productService.deleteAllById(productIds)).thenReturn(2);
+
+        assertEquals(Map.of("deleted", 2), productController.deleteProductBatch(productIds));
+    }
+
+    @Test
+    void testSearchProductPage() {
+        List<Product> results = List.of(new Product());
+        when(productService.search("sampo cap", 20)).thenReturn(results);
+
+        String viewName = productController.searchProductPage("sampo cap", 20, model);
+
+        verify(model).addAttribute("products", results);
+        verify(model).addAttribute("query", "sampo cap");
+        assertEquals("productList", viewName);
+    }
+
+    @Test
+    void testSearchProductPageBlankQueryRedirects() {
+        String viewName = productController.searchProductPage(" ", 20, model);
+
+        verify(productService, never()).search(anyString(), anyInt());
+        assertEquals("redirect:/product/list", viewName);
+    }
+}
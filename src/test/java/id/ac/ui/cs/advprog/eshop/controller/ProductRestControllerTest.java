@@ -0,0 +1,179 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+class ProductRestControllerTest {
+
+    @Mock
+    private ProductService productService;
+
+    private ProductRestController productRestController;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        productRestController = new ProductRestController(productService);
+    }
+
+    private Product newProduct(String id) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName("Sampo Cap Bambang");
+        product.setProductQuantity(10);
+        return product;
+    }
+
+    @Test
+    void testListProductsLinksToNextPageWhenFull() {
+        List<Product> products = List.of(newProduct("id-1"), newProduct("id-2"));
+        when(productService.findPage(1, 2)).thenReturn(products);
+
+        ResponseEntity<List<Product>> response = productRestController.listProducts(1, 2, null);
+
+        assertSame(products, response.getBody());
+        assertEquals("</api/products?size=2&page=2>; rel=\"next\"",
+                response.getHeaders().getFirst(HttpHeaders.LINK));
+    }
+
+    @Test
+    void testListProductsAfterCursor() {
+        List<Product> products = List.of(newProduct("id-2"));
+        when(productService.findAfter("id-1", 1)).thenReturn(products);
+
+        ResponseEntity<List<Product>> response = productRestController.listProducts(0, 1, "id-1");
+
+        assertSame(products, response.getBody());
+        assertEquals("</api/products?size=1&after=id-2>; rel=\"next\"",
+                response.getHeaders().getFirst(HttpHeaders.LINK));
+    }
+
+    @Test
+    void testListProductsLastPageHasNoLink() {
+        when(productService.findPage(0, 100)).thenReturn(List.of(newProduct("id-1")));
+
+        ResponseEntity<List<Product>> response = productRestController.listProducts(-1, 1000, null);
+
+        assertNull(response.getHeaders().getFirst(HttpHeaders.LINK));
+    }
+
+    @Test
+    void testGetProduct() {
+        Product product = newProduct("id-1");
+        when(productService.findById("id-1")).thenReturn(product);
+
+        assertSame(product, productRestController.getProduct("id-1").getBody());
+        assertEquals(HttpStatus.NOT_FOUND, productRestController.getProduct("missing").getStatusCode());
+    }
+
+    @Test
+    void testCreateProduct() {
+        Product product = newProduct(null);
+        when(productService.create(product)).thenAnswer(invocation -> {
+            product.setProductId("id-1");
+            return product;
+        });
+
+        ResponseEntity<Product> response = productRestController.createProduct(product);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(URI.create("/api/products/id-1"), response.getHeaders().getLocation());
+        assertSame(product, response.getBody());
+    }
+
+    @Test
+    void testCreateProductIgnoresClientSuppliedId() {
+        Product product = newProduct("existing-id");
+        when(productService.create(product)).thenAnswer(invocation -> {
+            assertNull(product.getProductId());
+            product.setProductId("id-2");
+            return product;
+        });
+
+        ResponseEntity<Product> response = productRestController.createProduct(product);
+
+        assertEquals(URI.create("/api/products/id-2"), response.getHeaders().getLocation());
+        verify(productService).create(product);
+    }
+
+    @Test
+    void testCreateInvalidProductIsBadRequest() {
+        Product product = newProduct(null);
+        when(productService.create(product)).thenThrow(new IllegalArgumentException("Product quantity cannot be negative"));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> productRestController.createProduct(product));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+
+    @Test
+    void testUpdateProductTakesIdFromPath() {
+        Product product = newProduct(null);
+        when(productService.update(product)).thenReturn(product);
+
+        ResponseEntity<Product> response = productRestController.updateProduct("id-1", product);
+
+        assertEquals("id-1", product.getProductId());
+        assertSame(product, response.getBody());
+    }
+
+    @Test
+    void testUpdateMissingProduct() {
+        Product product = newProduct(null);
+        when(productService.update(product)).thenReturn(null);
+
+        assertEquals(HttpStatus.NOT_FOUND, productRestController.updateProduct("missing", product).getStatusCode());
+    }
+
+    @Test
+    void testDeleteProduct() {
+        when(productService.deleteAllById(List.of("id-1"))).thenReturn(1);
+
+        assertEquals(HttpStatus.NO_CONTENT, productRestController.deleteProduct("id-1").getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, productRestController.deleteProduct("missing").getStatusCode());
+        verify(productService).deleteAllById(List.of("id-1"));
+        verify(productService, never()).findById(anyString());
+    }
+
+    @Test
+    void testAdjustProductQuantity() {
+        Product product = newProduct("id-1");
+        when(productService.decreaseQuantity("id-1", 2)).thenReturn(product);
+
+        ResponseEntity<Product> response = productRestController.adjustProductQuantity("id-1", -2);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(product, response.getBody());
+    }
+
+    @Test
+    void testAdjustProductQuantityErrors() {
+        when(productService.decreaseQuantity("id-1", 5)).thenThrow(new IllegalStateException("Insufficient quantity"));
+
+        assertEquals(HttpStatus.NOT_FOUND, productRestController.adjustProductQuantity("missing", 1).getStatusCode());
+        ResponseStatusException conflict = assertThrows(ResponseStatusException.class,
+                () -> productRestController.adjustProductQuantity("id-1", -5));
+        assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+        ResponseStatusException zero = assertThrows(ResponseStatusException.class,
+                () -> productRestController.adjustProductQuantity("id-1", 0));
+        assertEquals(HttpStatus.BAD_REQUEST, zero.getStatusCode());
+    }
+}
@@ -0,0 +1,67 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RenderedPageCacheTest {
+
+    private RenderedPageCache.CachedPage page(long version, int bytes) {
+        return new RenderedPageCache.CachedPage(version, "text/html", "\"tag\"", new byte[bytes]);
+    }
+
+    @Test
+    void testHitAtSameVersion() {
+        RenderedPageCache cache = new RenderedPageCache(1024, 512);
+        RenderedPageCache.CachedPage page = page(3, 100);
+        cache.put("/product/list?page=[0]", page);
+
+        assertSame(page, cache.get("/product/list?page=[0]", 3));
+        assertNull(cache.get("/product/list?page=[1]", 3));
+    }
+
+    @Test
+    void testWriteInvalidatesPage() {
+        RenderedPageCache cache = new RenderedPageCache(1024, 512);
+        cache.put("/product/list", page(3, 100));
+
+        assertNull(cache.get("/product/list", 4));
+        assertEquals(0, cache.size());
+        assertNull(cache.get("/product/list", 3));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedWhenFull() {
+        RenderedPageCache cache = new RenderedPageCache(300, 512);
+        cache.put("a", page(1, 100));
+        cache.put("b", page(1, 100));
+        cache.get("a", 1);
+        cache.put("c", page(1, 100));
+
+        assertNotNull(cache.get("a", 1));
+        assertNull(cache.get("b", 1));
+        assertNotNull(cache.get("c", 1));
+        assertEquals(204, cache.size());
+    }
+
+    @Test
+    void testSkipsPagesOverEntryLimit() {
+        RenderedPageCache cache = new RenderedPageCache(4096, 512);
+        cache.put("big", page(1, 513));
+
+        assertNull(cache.get("big", 1));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testReplacingPageKeepsSizeAccurate() {
+        RenderedPageCache cache = new RenderedPageCache(4096, 512);
+        cache.put("a", page(1, 100));
+        cache.put("a", page(2, 50));
+
+        assertEquals(52, cache.size());
+    }
+}
@@ -0,0 +1,244 @@
+package id.ac.ui.cs.advprog.eshop.load;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Drives the product and car pages over HTTP on an embedded server and
+ * reports latency percentiles per endpoint. Run it with {@code ./gradlew loadTest};
+ * the {@code loadTest.*} Gradle properties below tune the run.
+ * <p>
+ * Without a target rate each worker sends its next request as soon as the
+ * previous one returns. With {@code loadTest.rate} the workers send on a fixed
+ * schedule and latency is measured from when a request was due, so a server
+ * stall shows up in the tail instead of silently lowering the request rate.
+ * <p>
+ * Workers are virtual threads, so the client can hold thousands of connections
+ * open; compare a high {@code loadTest.concurrency} run with
+ * {@code -PloadTest.virtualThreads=true} against one without to see how the
+ * server's thread mode affects throughput.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+class CrudEndpointLoadTest {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final int concurrency = Integer.getInteger("loadTest.concurrency", 32);
+    private final int warmupSeconds = Integer.getInteger("loadTest.warmupSeconds", 10);
+    private final int durationSeconds = Integer.getInteger("loadTest.durationSeconds", 30);
+    private final double readRatio = Double.parseDouble(System.getProperty("loadTest.readRatio", "0.8"));
+    private final int rate = Integer.getInteger("loadTest.rate", 0);
+    private final int catalogSize = Integer.getInteger("loadTest.catalogSize", 10_000);
+    private final long maxP99Millis = Long.getLong("loadTest.maxP99Millis", 0);
+    private final boolean virtualThreads = Boolean.getBoolean("spring.threads.virtual.enabled");
+    private final Path reportDirectory = Path.of(System.getProperty("loadTest.reportDir", "build/reports/load-test"));
+
+    @LocalServerPort
+    private Integer port;
+
+    private HttpClient client;
+    private String baseUrl;
+
+    enum Operation {
+        PRODUCT_LIST, PRODUCT_EDIT_PAGE, CAR_LIST, CAR_EDIT_PAGE,
+        PRODUCT_CREATE, PRODUCT_EDIT, CAR_CREATE, CAR_EDIT
+    }
+
+    private static final Operation[] READS = {
+            Operation.PRODUCT_LIST, Operation.PRODUCT_EDIT_PAGE, Operation.CAR_LIST, Operation.CAR_EDIT_PAGE};
+    private static final Operation[] WRITES = {
+            Operation.PRODUCT_CREATE, Operation.PRODUCT_EDIT, Operation.CAR_CREATE, Operation.CAR_EDIT};
+
+    @BeforeEach
+    void setUp() throws IOException, InterruptedException {
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        baseUrl = "http://localhost:" + port;
+        seed("/product/batch", "p", id -> "{\"productId\":\"" + id + "\",\"productName\":\"Product " + id
+                + "\",\"productQuantity\":100}");
+        seed("/car/batch", "c", id -> "{\"carId\":\"" + id + "\",\"carName\":\"Car " + id
+                + "\",\"carColor\":\"Black\",\"carQuantity\":100}");
+    }
+
+    @Test
+    void testCrudEndpointsUnderLoad() throws Exception {
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long stopAt = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long intervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(1) * concurrency / rate : 0;
+        AtomicLong errors = new AtomicLong();
+
+        ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<Map<Operation, Histogram>>> results = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            // Stagger scheduled workers so a target rate is spread over the interval
+            long firstDue = start + (intervalNanos * i) / concurrency;
+            results.add(workers.submit(() -> run(firstDue, intervalNanos, measureFrom, stopAt, errors)));
+        }
+        Map<Operation, Histogram> merged = new EnumMap<>(Operation.class);
+        for (Future<Map<Operation, Histogram>> result : results) {
+            result.get().forEach((operation, histogram) ->
+                    merged.computeIfAbsent(operation, ignored -> newHistogram()).add(histogram));
+        }
+        workers.shutdown();
+
+        report(merged);
+        assertEquals(0, errors.get(), "Requests answered with an error status");
+        if (maxP99Millis > 0) {
+            merged.forEach((operation, histogram) -> assertTrue(
+                    histogram.getValueAtPercentile(99) <= TimeUnit.MILLISECONDS.toMicros(maxP99Millis),
+                    operation + " p99 exceeded " + maxP99Millis + " ms"));
+        }
+    }
+
+    private Map<Operation, Histogram> run(long firstDue, long intervalNanos, long measureFrom, long stopAt,
+                                          AtomicLong errors) throws IOException, InterruptedException {
+        Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long due = firstDue;
+        while (true) {
+            if (intervalNanos > 0) {
+                LockSupport.parkNanos(due - System.nanoTime());
+            } else {
+                due = System.nanoTime();
+            }
+            if (due >= stopAt) {
+                return histograms;
+            }
+            Operation operation = random.nextDouble() < readRatio
+                    ? READS[random.nextInt(READS.length)]
+                    : WRITES[random.nextInt(WRITES.length)];
+            HttpResponse<Void> response = client.send(request(operation, random), HttpResponse.BodyHandlers.discarding());
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due);
+            if (due >= measureFrom) {
+                histograms.computeIfAbsent(operation, ignored -> newHistogram())
+                        .recordValue(Math.min(latencyMicros, MAX_LATENCY_MICROS));
+                if (response.statusCode() >= 400) {
+                    errors.incrementAndGet();
+                }
+            }
+            due += intervalNanos;
+        }
+    }
+
+    private HttpRequest request(Operation operation, ThreadLocalRandom random) {
+        String productId = "p-" + random.nextInt(catalogSize);
+        String carId = "c-" + random.nextInt(catalogSize);
+        return switch (operation) {
+            case PRODUCT_LIST -> get("/product/list?page=" + random.nextInt(Math.max(1, catalogSize / 20)));
+            case PRODUCT_EDIT_PAGE -> get("/product/edit/" + productId);
+            case CAR_LIST -> get("/car/listCar?page=" + random.nextInt(Math.max(1, catalogSize / 20)));
+            case CAR_EDIT_PAGE -> get("/car/editCar/" + carId);
+            case PRODUCT_CREATE -> post("/product/create", Map.of(
+                    "productName", "Load product", "productQuantity", "10"));
+            case PRODUCT_EDIT -> post("/product/edit", Map.of(
+                    "productId", productId, "productName", "Product " + productId,
+                    "productQuantity", Integer.toString(random.nextInt(1, 100))));
+            case CAR_CREATE -> post("/car/createCar", Map.of(
+                    "carName", "Load car", "carColor", "Red", "carQuantity", "10"));
+            case CAR_EDIT -> post("/car/editCar", Map.of(
+                    "carId", carId, "carName", "Car " + carId, "carColor", "Black",
+                    "carQuantity", Integer.toString(random.nextInt(1, 100))));
+        };
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    private HttpRequest post(String path, Map<String, String> form) {
+        StringBuilder body = new StringBuilder();
+        form.forEach((name, value) -> body.append(body.isEmpty() ? "" : "&")
+                .append(URLEncoder.encode(name, StandardCharsets.UTF_8))
+                .append('=')
+                .append(URLEncoder.encode(value, StandardCharsets.UTF_8)));
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+
+    private void seed(String path, String prefix, Function<String, String> json)
+            throws IOException, InterruptedException {
+        for (int from = 0; from < catalogSize; from += 1_000) {
+            StringBuilder body = new StringBuilder("[");
+            for (int i = from; i < Math.min(from + 1_000, catalogSize); i++) {
+                body.append(i == from ? "" : ",").append(json.apply(prefix + "-" + i));
+            }
+            HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.append(']').toString()))
+                    .build(), HttpResponse.BodyHandlers.discarding());
+            assertEquals(200, response.statusCode(), "Seeding " + path);
+        }
+    }
+
+    private static Histogram newHistogram() {
+        return new Histogram(MAX_LATENCY_MICROS, 3);
+    }
+
+    private void report(Map<Operation, Histogram> histograms) throws IOException {
+        Files.createDirectories(reportDirectory);
+        StringBuilder summary = new StringBuilder(String.format(
+                "threads=%s concurrency=%d rate=%s readRatio=%.2f duration=%ds catalogSize=%d%n",
+                virtualThreads ? "virtual" : "platform", concurrency, rate > 0 ? rate + "/s" : "closed-loop",
+                readRatio, durationSeconds, catalogSize));
+        summary.append(String.format("%-18s %10s %10s %9s %9s %9s %9s%n",
+                "operation", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        Histogram total = newHistogram();
+        for (Map.Entry<Operation, Histogram> entry : histograms.entrySet()) {
+            summary.append(line(entry.getKey().name(), entry.getValue()));
+            total.add(entry.getValue());
+            try (PrintStream out = new PrintStream(
+                    Files.newOutputStream(reportDirectory.resolve(entry.getKey().name().toLowerCase() + ".hgrm")))) {
+                entry.getValue().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        summary.append(line("ALL", total));
+        Files.writeString(reportDirectory.resolve("summary.txt"), summary);
+        System.out.print(summary);
+    }
+
+    private String line(String name, Histogram histogram) {
+        return String.format("%-18s %10d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                name,
+                histogram.getTotalCount(),
+                histogram.getTotalCount() / (double) durationSeconds,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+}
@@ -0,0 +1,175 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CarRepositoryTest {
+
+    private CarRepository carRepository;
+
+    @BeforeEach
+    void setUp() {
+        carRepository = new CarRepository();
+    }
+
+    private Car newCar(String id, String name, String color, int quantity) {
+        Car car = new Car();
+        car.setCarId(id);
+        car.setCarName(name);
+        car.setCarColor(color);
+        car.setCarQuantity(quantity);
+        return car;
+    }
+
+    @Test
+    void testCreateAssignsIdWhenMissing() {
+        Car car = carRepository.create(newCar(null, "Avanza", "Black", 2));
+
+        assertNotNull(car.getCarId());
+        assertEquals("Avanza", carRepository.findById(car.getCarId()).getCarName());
+    }
+
+    @Test
+    void testFindAllKeepsInsertionOrder() {
+        carRepository.create(newCar("car-1", "Avanza", "Black", 2));
+        carRepository.create(newCar("car-2", "Jazz", "Red", 3));
+        carRepository.update("car-1", newCar("car-1", "Xenia", "White", 4));
+
+        Iterator<Car> carIterator = carRepository.findAll();
+        assertEquals("Xenia", carIterator.next().getCarName());
+        assertEquals("car-2", carIterator.next().getCarId());
+        assertFalse(carIterator.hasNext());
+    }
+
+    @Test
+    void testUpdatePublishesNewSnapshot() {
+        carRepository.create(newCar("car-1", "Avanza", "Black", 2));
+        Car before = carRepository.findById("car-1");
+
+        Car updated = carRepository.update("car-1", newCar("car-1", "Xenia", "White", 4));
+
+        assertNotSame(before, updated);
+        assertEquals("Avanza", before.getCarName());
+        assertEquals("Black", before.getCarColor());
+        assertEquals(2, before.getCarQuantity());
+        assertEquals("Xenia", carRepository.findById("car-1").getCarName());
+        assertEquals(4, carRepository.findById("car-1").getCarQuantity());
+    }
+
+    @Test
+    void testUpdateNotFound() {
+        assertNull(carRepository.update("missing", newCar("missing", "Avanza", "Black", 2)));
+        assertNull(carRepository.update(null, newCar(null, "Avanza", "Black", 2)));
+    }
+
+    @Test
+    void testDelete() {
+        carRepository.create(newCar("car-1", "Avanza", "Black", 2));
+        carRepository.deleteById("car-1");
+        carRepository.deleteById(null);
+
+        assertNull(carRepository.findById("car-1"));
+        assertFalse(carRepository.findAll().hasNext());
+    }
+
+    @Test
+    void testReadersNeverSeeTornUpdates() throws InterruptedException {
+        carRepository.create(newCar("car-1", "A", "A", 1));
+        AtomicBoolean torn = new AtomicBoolean();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                Car car = carRepository.findById("car-1");
+                if (!car.getCarName().equals(car.getCarColor())
+                        || car.getCarName().length() != car.getCarQuantity()) {
+                    torn.set(true);
+                }
+            }
+        });
+        reader.start();
+        for (int i = 1; i <= 2000; i++) {
+            String value = "A".repeat(i % 10 + 1);
+            carRepository.update("car-1", newCar("car-1", value, value, value.length()));
+        }
+        running.set(false);
+        reader.join();
+
+        assertFalse(torn.get());
+    }
+
+    @Test
+    void testFindByColorAndName() {
+        carRepository.create(newCar("car-1", "Avanza", "Black", 2));
+        carRepository.create(newCar("car-2", "Jazz", "Red", 3));
+        carRepository.create(newCar("car-3", "Xenia", "black", 1));
+
+        List<Car> black = carRepository.findByColor("BLACK");
+        assertEquals(2, black.size());
+        assertEquals("car-2", carRepository.findByName("jazz").get(0).getCarId());
+        assertTrue(carRepository.findByColor("white").isEmpty());
+        assertTrue(carRepository.findByColor(null).isEmpty());
+    }
+
+    @Test
+    void testColorIndexFollowsUpdatesAndDeletes() {
+        carRepository.create(newCar("car-1", "Avanza", "Black", 2));
+        carRepository.create(newCar("car-2", "Jazz", "Black", 3));
+        assertEquals(2, carRepository.findByColor("black").size());
+
+        carRepository.update("car-1", newCar("car-1", "Avanza", "White", 2));
+        carRepository.deleteById("car-2");
+
+        assertTrue(carRepository.findByColor("black").isEmpty());
+        assertEquals("car-1", carRepository.findByColor("white").get(0).getCarId());
+        assertTrue(carRepository.findByName("jazz").isEmpty());
+    }
+
+    @Test
+    void testIndexKeepsUpWithManyEntitiesUnderOneColor() {
+        List<Car> loaded = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            loaded.add(newCar("loaded-" + i, "Avanza", "Black", 1));
+        }
+        carRepository.createAll(loaded);
+        // The first query builds the index from the 50k stored cars
+        assertEquals(50_000, carRepository.findByColor("black").size());
+
+        for (int i = 0; i < 50_000; i++) {
+            carRepository.create(newCar("created-" + i, "Avanza", "Black", 1));
+        }
+        assertEquals(100_000, carRepository.findByColor("black").size());
+
+        for (int i = 0; i < 100_000; i += 2) {
+            carRepository.deleteById(i < 50_000 ? "loaded-" + i : "created-" + (i - 50_000));
+        }
+        assertEquals(50_000, carRepository.findByColor("black").size());
+    }
+
+    @Test
+    void testAdjustQuantityKeepsOtherFields() {
+        carRepository.create(newCar("car-1", "Avanza", "Black", 2));
+
+        Car adjusted = carRepository.adjustQuantity("car-1", 3);
+
+        assertEquals(5, adjusted.getCarQuantity());
+        assertEquals("Black", carRepository.findById("car-1").getCarColor());
+        assertEquals(1, carRepository.findByColor("black").size());
+        assertThrows(IllegalStateException.class, () -> carRepository.adjustQuantity("car-1", -6));
+        assertEquals(5, carRepository.findById("car-1").getCarQuantity());
+    }
+}
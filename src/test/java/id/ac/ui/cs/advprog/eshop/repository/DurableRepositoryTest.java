@@ -0,0 +1,318 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DurableRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private DurableRepository<Product> open(boolean syncOnCommit) {
+        return new DurableRepository<>(() -> new ConcurrentHeapRepository<>(ProductCodec.INSTANCE),
+                ProductCodec.INSTANCE, directory, "product", syncOnCommit,
+                Duration.ofMillis(5), Duration.ofHours(1));
+    }
+
+    private Product newProduct(String id, String name, int quantity) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setProductQuantity(quantity);
+        return product;
+    }
+
+    private List<Path> logSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+
+    @Test
+    void testRecoversFromLogAfterRestart() {
+        try (DurableRepository<Product> repository = open(true)) {
+            repository.create(newProduct("id-1", "Sampo", 1));
+            repository.create(newProduct("id-2", "Sabun", 2));
+            repository.create(newProduct("id-3", "Pasta Gigi", 3));
+            repository.update("id-1", newProduct("id-1", "Sampo Baru", 10));
+            repository.deleteById("id-2");
+            repository.deleteById("missing");
+        }
+
+        try (DurableRepository<Product> repository = open(true)) {
+            List<Product> products = repository.snapshot();
+            assertEquals(2, products.size());
+            assertEquals("Sampo Baru", products.get(0).getProductName());
+            assertEquals(10, products.get(0).getProductQuantity());
+            assertEquals("id-3", products.get(1).getProductId());
+            assertNull(repository.findById("id-2"));
+        }
+    }
+
+    @Test
+    void testCheckpointCompactsLogAndKeepsLaterWrites() throws IOException {
+        try (DurableRepository<Product> repository = open(false)) {
+            for (int i = 0; i < 100; i++) {
+                repository.create(newProduct("id-" + i, "Product " + i, i));
+            }
+            repository.checkpoint();
+            assertEquals(1, logSegments().size());
+
+            repository.update("id-5", newProduct("id-5", "After checkpoint", 55));
+            repository.create(newProduct("id-100", "Product 100", 100));
+        }
+
+        assertTrue(Files.exists(directory.resolve("product.snapshot")));
+        try (DurableRepository<Product> repository = open(false)) {
+            assertEquals(101, repository.count());
+            assertEquals("After checkpoint", repository.findById("id-5").getProductName());
+            assertEquals("id-5", repository.findPage(5, 1).get(0).getProductId());
+            assertEquals("id-100", repository.findPage(100, 1).get(0).getProductId());
+        }
+    }
+
+    @Test
+    void testCheckpointRebasesOntoFreshEngine() {
+        List<ConcurrentHeapRepository<Product>> engines = new ArrayList<>();
+        try (DurableRepository<Product> repository = new DurableRepository<>(() -> {
+            ConcurrentHeapRepository<Product> engine = new ConcurrentHeapRepository<>(ProductCodec.INSTANCE);
+            engines.add(engine);
+            return engine;
+        }, ProductCodec.INSTANCE, directory, "product", false, Duration.ofMillis(5), Duration.ofHours(1))) {
+            for (int i = 0; i < 10; i++) {
+                repository.create(newProduct("id-" + i, "Product " + i, i));
+            }
+            repository.deleteById("id-3");
+            repository.update("id-5", newProduct("id-5", "Updated", 50));
+            List<String> before = repository.snapshot().stream().map(Product::getProductId).toList();
+            long version = repository.version();
+
+            repository.checkpoint();
+            assertEquals(2, engines.size());
+            assertEquals(0, engines.get(1).count());
+            assertEquals(before, repository.snapshot().stream().map(Product::getProductId).toList());
+            assertEquals("Updated", repository.findById("id-5").getProductName());
+            assertNull(repository.findById("id-3"));
+
+            repository.create(newProduct("id-10", "Product 10", 10));
+            repository.deleteById("id-0");
+            assertEquals(1, engines.get(1).count());
+            assertEquals(9, repository.count());
+            assertTrue(repository.version() > version);
+        }
+    }
+
+    @Test
+    void testWritesDuringCheckpointSurviveRebase() {
+        List<DurableRepository<Product>> opened = new ArrayList<>();
+        DurableRepository<Product> repository = new DurableRepository<>(() -> {
+            if (!opened.isEmpty()) {
+                // The snapshot is on disk by the time the fresh engine is opened
+                opened.get(0).update("id-1", newProduct("id-1", "During checkpoint", 11));
+                opened.get(0).create(newProduct("id-2", "Sabun", 2));
+            }
+            return new ConcurrentHeapRepository<>(ProductCodec.INSTANCE);
+        }, ProductCodec.INSTANCE, directory, "product", true, Duration.ofMillis(5), Duration.ofHours(1));
+        opened.add(repository);
+        try (repository) {
+            repository.create(newProduct("id-1", "Sampo", 1));
+            repository.checkpoint();
+
+            assertEquals(2, repository.count());
+            assertEquals("During checkpoint", repository.findById("id-1").getProductName());
+            assertEquals("id-2", repository.findPage(1, 1).get(0).getProductId());
+        }
+
+        try (DurableRepository<Product> recovered = open(true)) {
+            assertEquals(2, recovered.count());
+            assertEquals("During checkpoint", recovered.findById("id-1").getProductName());
+        }
+    }
+
+    @Test
+    void testFailedScheduledCheckpointIsRetried() throws Exception {
+        // A directory where the temporary snapshot goes makes every checkpoint fail
+        Path obstacle = Files.createDirectories(directory.resolve("product.snapshot.tmp").resolve("blocked"));
+        try (DurableRepository<Product> repository = new DurableRepository<>(
+                () -> new ConcurrentHeapRepository<>(ProductCodec.INSTANCE), ProductCodec.INSTANCE, directory,
+                "product", false, Duration.ofMillis(5), Duration.ofMillis(10))) {
+            repository.create(newProduct("id-1", "Sampo", 1));
+            Thread.sleep(100);
+            assertFalse(Files.exists(directory.resolve("product.snapshot")));
+
+            Files.delete(obstacle);
+            Files.delete(obstacle.getParent());
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (!Files.exists(directory.resolve("product.snapshot")) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(Files.exists(directory.resolve("product.snapshot")));
+        }
+    }
+
+    @Test
+    void testReplayingRecordsAlreadyInSnapshotIsIdempotent() {
+        try (DurableRepository<Product> repository = open(true)) {
+            repository.create(newProduct("id-1", "Sampo", 1));
+            repository.create(newProduct("id-2", "Sabun", 2));
+        }
+        List<String> before;
+        try (DurableRepository<Product> repository = open(true)) {
+            repository.create(newProduct("id-1", "Sampo", 1));
+            repository.checkpoint();
+            before = repository.snapshot().stream().map(Product::getProductId).toList();
+        }
+
+        try (DurableRepository<Product> repository = open(true)) {
+            assertEquals(2, repository.count());
+            assertEquals(before, repository.snapshot().stream().map(Product::getProductId).toList());
+        }
+    }
+
+    @Test
+    void testTornTailIsIgnored() throws IOException {
+        DurableRepository<Product> repository = open(true);
+        repository.create(newProduct("id-1", "Sampo", 1));
+        repository.create(newProduct("id-2", "Sabun", 2));
+        List<Path> segments = logSegments();
+        Path segment = segments.get(segments.size() - 1);
+        // Simulate a crash: abandon the repository without a final checkpoint
+        byte[] intact = Files.readAllBytes(segment);
+
+        Path crashed = Files.createDirectory(directory.resolve("crashed"));
+        Files.write(crashed.resolve(segment.getFileName()), intact);
+        Files.write(crashed.resolve(segment.getFileName()), new byte[] {0, 0, 0, 42, 1, 2},
+                StandardOpenOption.APPEND);
+        repository.close();
+
+        try (DurableRepository<Product> recovered = new DurableRepository<>(
+                () -> new ConcurrentHeapRepository<>(ProductCodec.INSTANCE), ProductCodec.INSTANCE,
+                crashed, "product", true, Duration.ofMillis(5), Duration.ofHours(1))) {
+            assertEquals(2, recovered.count());
+            assertEquals("Sabun", recovered.findById("id-2").getProductName());
+
+            recovered.create(newProduct("id-3", "Pasta Gigi", 3));
+            assertEquals(3, recovered.count());
+        }
+    }
+
+    @Test
+    void testImplausibleRecordLengthIsTreatedAsTornTail() throws IOException {
+        try (DurableRepository<Product> repository = open(true)) {
+            repository.create(newProduct("id-1", "Sampo", 1));
+        }
+        List<Path> segments = logSegments();
+        Files.write(segments.get(segments.size() - 1), new byte[] {0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff, 1},
+                StandardOpenOption.APPEND);
+
+        try (DurableRepository<Product> repository = open(true)) {
+            assertEquals(1, repository.count());
+        }
+    }
+
+    @Test
+    void testFailedAppendLeavesEngineUnchanged() {
+        ConcurrentHeapRepository<Product> engine = new ConcurrentHeapRepository<>(ProductCodec.INSTANCE);
+        DurableRepository<Product> repository = new DurableRepository<>(() -> engine, ProductCodec.INSTANCE,
+                directory, "product", true, Duration.ofMillis(5), Duration.ofHours(1));
+        repository.create(newProduct("id-1", "Sampo", 1));
+        repository.close();
+
+        // The log is closed, so every append fails
+        assertThrows(IllegalStateException.class, () -> repository.create(newProduct("id-2", "Sabun", 2)));
+        assertThrows(IllegalStateException.class, () -> repository.update("id-1", newProduct("id-1", "Baru", 5)));
+        assertThrows(IllegalStateException.class, () -> repository.deleteById("id-1"));
+        assertNull(engine.findById("id-2"));
+        assertEquals("Sampo", engine.findById("id-1").getProductName());
+    }
+
+    @Test
+    void testBatchesAreRecovered() {
+        try (DurableRepository<Product> repository = open(true)) {
+            repository.createAll(List.of(newProduct("id-1", "Sampo", 1), newProduct("id-2", "Sabun", 2),
+                    newProduct("id-3", "Pasta Gigi", 3)));
+            repository.updateAll(Map.of("id-2", newProduct("id-2", "Sabun Cair", 20)));
+            assertEquals(1, repository.deleteAllById(List.of("id-3", "missing")));
+        }
+
+        try (DurableRepository<Product> repository = open(true)) {
+            assertEquals(2, repository.count());
+            assertEquals("Sabun Cair", repository.findById("id-2").getProductName());
+            assertNull(repository.findById("id-3"));
+        }
+    }
+
+    @Test
+    void testWriterOnSameStripeDoesNotWaitForAnotherCommit() throws Exception {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        String first = "id-0";
+        String second = "id-1";
+        for (int i = 1; StripedLocks.stripeIndex(second) != StripedLocks.stripeIndex(first); i++) {
+            second = "id-" + i;
+        }
+        try (DurableRepository<Product> durable = new DurableRepository<>(
+                () -> new ConcurrentHeapRepository<>(ProductCodec.INSTANCE), ProductCodec.INSTANCE, directory,
+                "product", true, Duration.ofMillis(5), Duration.ofHours(1), () -> {
+                    flushing.countDown();
+                    awaitQuietly(release);
+                })) {
+            IndexedRepository<Product> repository =
+                    new IndexedRepository<>("product", durable, ProductCodec.INSTANCE, List.of());
+            ExecutorService writers = Executors.newFixedThreadPool(2);
+            // Closing waits for the flusher, so the held fsync is let go first
+            try {
+                Future<Product> held = writers.submit(() -> repository.create(newProduct(first, "Sampo", 1)));
+                assertTrue(flushing.await(10, TimeUnit.SECONDS));
+
+                String sameStripe = second;
+                Future<Product> next = writers.submit(() -> repository.create(newProduct(sameStripe, "Sabun", 2)));
+                long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+                while (repository.findById(sameStripe) == null && System.nanoTime() < deadline) {
+                    Thread.sleep(1);
+                }
+                // The second write was applied while the first still waits for its fsync
+                assertNotNull(repository.findById(sameStripe));
+                assertFalse(held.isDone());
+
+                release.countDown();
+                assertEquals(first, held.get(10, TimeUnit.SECONDS).getProductId());
+                assertEquals(sameStripe, next.get(10, TimeUnit.SECONDS).getProductId());
+            } finally {
+                release.countDown();
+                writers.shutdownNow();
+            }
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
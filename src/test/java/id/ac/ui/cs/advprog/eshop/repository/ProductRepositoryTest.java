@@ -1,29 +1,34 @@
 package id.ac.ui.cs.advprog.eshop.repository;
 
 import id.ac.ui.cs.advprog.eshop.model.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
-@ExtendWith(MockitoExtension.class)
 public class ProductRepositoryTest {
 
-    @InjectMocks
     ProductRepository productRepository;
 
     @BeforeEach
     void setUp() {
-        // Initialize the tests
+        productRepository = new ProductRepository();
     }
 
     @Test
@@ -295,4 +300,289 @@ public class ProductRepositoryTest {
         assertNull(result);
     }
 
-}
\ No newline at end of file
+    @Test
+    void testUpdateKeepsInsertionOrder() {
+        Product product1 = new Product();
+        product1.setProductId("id-1");
+        product1.setProductName("Product 1");
+        productRepository.create(product1);
+
+        Product product2 = new Product();
+        product2.setProductId("id-2");
+        product2.setProductName("Product 2");
+        productRepository.create(product2);
+
+        Product updatedProduct = new Product();
+        updatedProduct.setProductId("id-1");
+        updatedProduct.setProductName("Updated Product 1");
+        productRepository.update(updatedProduct);
+
+        Iterator<Product> productIterator = productRepository.findAll();
+        assertEquals("Updated Product 1", productIterator.next().getProductName());
+        assertEquals("id-2", productIterator.next().getProductId());
+        assertFalse(productIterator.hasNext());
+    }
+
+    @Test
+    void testCreateWithExistingIdReplacesProduct() {
+        Product product = new Product();
+        product.setProductId("test-id");
+        product.setProductName("Original Name");
+        productRepository.create(product);
+
+        Product duplicate = new Product();
+        duplicate.setProductId("test-id");
+        duplicate.setProductName("Duplicate Name");
+        productRepository.create(duplicate);
+
+        assertEquals("Duplicate Name", productRepository.findById("test-id").getProductName());
+        Iterator<Product> productIterator = productRepository.findAll();
+        productIterator.next();
+        assertFalse(productIterator.hasNext());
+    }
+
+    @Test
+    void testConcurrentCreateAndDelete() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            String productId = "id-" + i;
+            executor.submit(() -> {
+                Product product = new Product();
+                product.setProductId(productId);
+                product.setProductName("Product");
+                productRepository.create(product);
+                productRepository.findAll().forEachRemaining(found -> { });
+                if (productId.hashCode() % 2 == 0) {
+                    productRepository.deleteById(productId);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        List<Product> remaining = new ArrayList<>();
+        productRepository.findAll().forEachRemaining(remaining::add);
+        for (Product product : remaining) {
+            assertNotNull(productRepository.findById(product.getProductId()));
+        }
+        for (int i = 0; i < 1000; i++) {
+            String productId = "id-" + i;
+            assertEquals(productId.hashCode() % 2 != 0, productRepository.findById(productId) != null);
+        }
+    }
+
+    @Test
+    void testFindPageAndFindAfter() {
+        for (int i = 0; i < 5; i++) {
+            Product product = new Product();
+            product.setProductId("id-" + i);
+            product.setProductName("Product " + i);
+            productRepository.create(product);
+        }
+        productRepository.deleteById("id-1");
+
+        List<Product> secondPage = productRepository.findPage(2, 2);
+        assertEquals(2, secondPage.size());
+        assertEquals("id-3", secondPage.get(0).getProductId());
+        assertEquals("id-4", secondPage.get(1).getProductId());
+
+        List<Product> afterCursor = productRepository.findAfter("id-2", 10);
+        assertEquals(2, afterCursor.size());
+        assertEquals("id-3", afterCursor.get(0).getProductId());
+
+        assertTrue(productRepository.findAfter("id-1", 10).isEmpty());
+        assertTrue(productRepository.findPage(10, 2).isEmpty());
+        assertEquals(4, productRepository.count());
+    }
+
+    @Test
+    void testSnapshotIsSharedUntilNextWrite() {
+        Product product = new Product();
+        product.setProductId("id-1");
+        product.setProductName("Product 1");
+        productRepository.create(product);
+
+        List<Product> snapshot = productRepository.snapshot();
+        assertSame(snapshot, productRepository.snapshot());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(new Product()));
+
+        Product updatedProduct = new Product();
+        updatedProduct.setProductId("id-1");
+        updatedProduct.setProductName("Updated Product 1");
+        productRepository.update(updatedProduct);
+        productRepository.deleteById("missing-id");
+
+        List<Product> afterUpdate = productRepository.snapshot();
+        assertNotSame(snapshot, afterUpdate);
+        assertEquals("Product 1", snapshot.get(0).getProductName());
+        assertEquals("Updated Product 1", afterUpdate.get(0).getProductName());
+    }
+
+    @Test
+    void testSnapshotAcrossManyChunks() {
+        for (int i = 0; i < 5000; i++) {
+            Product product = new Product();
+            product.setProductId("id-" + i);
+            product.setProductName("Product " + i);
+            productRepository.create(product);
+        }
+        List<Product> before = productRepository.snapshot();
+        for (int i = 0; i < 5000; i += 3) {
+            productRepository.deleteById("id-" + i);
+        }
+
+        List<Product> after = productRepository.snapshot();
+        assertEquals(5000, before.size());
+        assertEquals(3333, after.size());
+        assertEquals("id-1", after.get(0).getProductId());
+        assertEquals("id-4999", after.get(after.size() - 1).getProductId());
+        List<Product> iterated = new ArrayList<>();
+        after.forEach(iterated::add);
+        for (int i = 0; i < iterated.size(); i++) {
+            assertEquals(after.get(i).getProductId(), iterated.get(i).getProductId());
+        }
+        assertEquals(after.subList(100, 120).stream().map(Product::getProductId).toList(),
+                productRepository.findPage(100, 20).stream().map(Product::getProductId).toList());
+    }
+
+
+    private Product newProduct(String id, String name) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setProductQuantity(1);
+        return product;
+    }
+
+    private List<String> ids(List<Product> products) {
+        List<String> ids = new ArrayList<>();
+        for (Product product : products) {
+            ids.add(product.getProductId());
+        }
+        return ids;
+    }
+
+    @Test
+    void testFindByNamePrefix() {
+        productRepository.create(newProduct("id-1", "Sampo Cap Bambang"));
+        productRepository.create(newProduct("id-2", "Sabun Mandi"));
+        productRepository.create(newProduct("id-3", "sampo cap usep"));
+        productRepository.create(newProduct("id-4", "Pasta Gigi"));
+
+        assertEquals(List.of("id-1", "id-3"), ids(productRepository.findByNamePrefix("SAMPO", 10)));
+        assertEquals(List.of("id-2", "id-1", "id-3"), ids(productRepository.findByNamePrefix("sa", 10)));
+        assertEquals(List.of("id-2"), ids(productRepository.findByNamePrefix("sa", 1)));
+        assertTrue(productRepository.findByNamePrefix("x", 10).isEmpty());
+    }
+
+    @Test
+    void testNameIndexFollowsWrites() {
+        productRepository.create(newProduct("id-1", "Sampo Cap Bambang"));
+        productRepository.create(newProduct("id-2", "Sabun Mandi"));
+        assertEquals(List.of("id-1"), ids(productRepository.findByNamePrefix("sampo", 10)));
+
+        productRepository.update("id-1", newProduct("id-1", "Pasta Gigi"));
+        productRepository.deleteById("id-2");
+        productRepository.create(newProduct("id-3", "Sampo Baru"));
+        productRepository.createAll(List.of(newProduct("id-4", "Sampo Lain"), newProduct("id-3", "Sikat Gigi")));
+
+        assertEquals(List.of("id-4"), ids(productRepository.findByNamePrefix("sampo", 10)));
+        assertEquals(List.of("id-1"), ids(productRepository.findByNamePrefix("pasta", 10)));
+        assertEquals(List.of("id-3"), ids(productRepository.findByNamePrefix("sikat", 10)));
+        assertTrue(productRepository.findByNamePrefix("sabun", 10).isEmpty());
+    }
+
+    @Test
+    void testNameIndexIsBuiltFromExistingData() {
+        ConcurrentHeapRepository<Product> storage = new ConcurrentHeapRepository<>(ProductCodec.INSTANCE);
+        storage.create(newProduct("id-1", "Sampo Cap Bambang"));
+        productRepository = new ProductRepository(storage);
+        productRepository.create(newProduct("id-2", "Sampo Cap Usep"));
+
+        assertEquals(List.of("id-1", "id-2"), ids(productRepository.findByNamePrefix("sampo cap", 10)));
+    }
+
+    @Test
+    void testSearchRanksWholeWordsAboveWordPrefixes() {
+        productRepository.create(newProduct("id-1", "Sampo Cap Bambang"));
+        productRepository.create(newProduct("id-2", "Sampoerna Mild"));
+        productRepository.create(newProduct("id-3", "Sabun Cap Sampo"));
+        productRepository.create(newProduct("id-4", "Pasta Gigi"));
+
+        assertEquals(List.of("id-1", "id-3", "id-2"), ids(productRepository.search("SAMPO", 10)));
+        assertEquals(List.of("id-1", "id-3"), ids(productRepository.search("cap samp", 10)));
+        assertEquals(List.of("id-3"), ids(productRepository.search("sampo, sab", 10)));
+        assertEquals(List.of("id-1"), ids(productRepository.search("sampo", 1)));
+        assertTrue(productRepository.search("sampo gigi", 10).isEmpty());
+        assertTrue(productRepository.search("--", 10).isEmpty());
+    }
+
+    @Test
+    void testSearchFollowsWrites() {
+        productRepository.create(newProduct("id-1", "Sampo Cap Bambang"));
+        productRepository.create(newProduct("id-2", "Sabun Mandi"));
+        assertEquals(List.of("id-1"), ids(productRepository.search("bambang", 10)));
+
+        productRepository.update("id-1", newProduct("id-1", "Sampo Cap Usep"));
+        productRepository.deleteById("id-2");
+        productRepository.createAll(List.of(newProduct("id-3", "Usep Mandi")));
+
+        assertTrue(productRepository.search("bambang", 10).isEmpty());
+        assertTrue(productRepository.search("sabun", 10).isEmpty());
+        assertEquals(List.of("id-1", "id-3"), ids(productRepository.search("usep", 10)));
+    }
+
+    @Test
+    void testAdjustQuantity() {
+        Product product = newProduct("id-1", "Sampo Cap Bambang");
+        product.setProductQuantity(5);
+        productRepository.create(product);
+
+        assertEquals(8, productRepository.adjustQuantity("id-1", 3).getProductQuantity());
+        assertEquals(0, productRepository.adjustQuantity("id-1", -8).getProductQuantity());
+        assertThrows(IllegalStateException.class, () -> productRepository.adjustQuantity("id-1", -1));
+        assertEquals(0, productRepository.findById("id-1").getProductQuantity());
+        assertEquals("Sampo Cap Bambang", productRepository.findById("id-1").getProductName());
+        assertNull(productRepository.adjustQuantity("missing", 1));
+    }
+
+    @Test
+    void testConcurrentDecrementsAreNeverLost() throws InterruptedException {
+        Product product = newProduct("id-1", "Sampo Cap Bambang");
+        product.setProductQuantity(1000);
+        productRepository.create(product);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // 1200 attempts on 1000 units: exactly 1000 succeed and the rest see insufficient stock
+        List<Boolean> taken = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 1200; i++) {
+            executor.execute(() -> {
+                try {
+                    productRepository.adjustQuantity("id-1", -1);
+                    taken.add(true);
+                } catch (IllegalStateException e) {
+                    taken.add(false);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, taken.stream().filter(Boolean::booleanValue).count());
+        assertEquals(0, productRepository.findById("id-1").getProductQuantity());
+    }
+
+    @Test
+    void testEachRepositoryReportsToItsOwnRegistry() {
+        SimpleMeterRegistry first = new SimpleMeterRegistry();
+        SimpleMeterRegistry second = new SimpleMeterRegistry();
+        ProductRepository one = new ProductRepository(new ConcurrentHeapRepository<>(ProductCodec.INSTANCE), first);
+        ProductRepository other = new ProductRepository(new ConcurrentHeapRepository<>(ProductCodec.INSTANCE), second);
+        one.create(newProduct("id-1", "Sampo Cap Bambang"));
+        other.create(newProduct("id-2", "Sabun Cap Usep"));
+        other.create(newProduct("id-3", "Sikat Gigi"));
+
+        assertEquals(1.0, first.get("eshop.repository.size").tag("repository", "product").gauge().value());
+        assertEquals(2.0, second.get("eshop.repository.size").tag("repository", "product").gauge().value());
+    }
+}
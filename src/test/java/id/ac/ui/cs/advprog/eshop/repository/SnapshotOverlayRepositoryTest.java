@@ -0,0 +1,144 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotOverlayRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private SnapshotOverlayRepository<Product> repository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            products.add(newProduct("id-" + i, "Product " + i, i));
+        }
+        products.add(newProduct(null, "Product without ID", 1));
+        Path file = directory.resolve("product.snapshot");
+        MappedSnapshot.write(file, products, ProductCodec.INSTANCE);
+
+        repository = new SnapshotOverlayRepository<>(MappedSnapshot.open(file, ProductCodec.INSTANCE),
+                ProductCodec.INSTANCE, new ConcurrentHeapRepository<>(ProductCodec.INSTANCE));
+    }
+
+    private Product newProduct(String id, String name, int quantity) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setProductQuantity(quantity);
+        return product;
+    }
+
+    private List<String> ids(List<Product> products) {
+        List<String> ids = new ArrayList<>();
+        for (Product product : products) {
+            ids.add(product.getProductId());
+        }
+        return ids;
+    }
+
+    @Test
+    void testReadsFromSnapshot() {
+        assertEquals(11, repository.count());
+        assertEquals("Product 7", repository.findById("id-7").getProductName());
+        assertNull(repository.findById("missing"));
+        assertNull(repository.findById(null));
+        assertNull(repository.snapshot().get(10).getProductId());
+        assertEquals(List.of("id-3", "id-4"), ids(repository.findPage(3, 2)));
+    }
+
+    @Test
+    void testWritesOverlaySnapshot() {
+        repository.update("id-1", newProduct("id-1", "Updated", 100));
+        repository.deleteById("id-2");
+        repository.create(newProduct("id-3", "Created again", 3));
+        repository.create(newProduct("id-new", "New", 5));
+
+        assertEquals(11, repository.count());
+        assertEquals("Updated", repository.findById("id-1").getProductName());
+        assertNull(repository.findById("id-2"));
+        assertNull(repository.update("id-2", newProduct("id-2", "Deleted", 1)));
+        assertEquals("Created again", repository.findById("id-3").getProductName());
+
+        List<Product> all = new ArrayList<>();
+        repository.findAll().forEachRemaining(all::add);
+        List<String> expected = new ArrayList<>(List.of("id-0", "id-1", "id-4", "id-5", "id-6", "id-7",
+                "id-8", "id-9"));
+        expected.add(null);
+        expected.addAll(List.of("id-3", "id-new"));
+        assertEquals(expected, ids(all));
+        assertEquals(expected, ids(repository.snapshot()));
+        assertEquals("Updated", repository.snapshot().get(1).getProductName());
+    }
+
+    @Test
+    void testSnapshotSkipsTombstonesAndIsReusedUntilWritten() {
+        for (int i = 0; i < 10; i += 3) {
+            repository.deleteById("id-" + i);
+        }
+        repository.deleteById("id-1");
+        repository.create(newProduct("id-new", "New", 5));
+
+        List<Product> snapshot = repository.snapshot();
+        List<Product> all = new ArrayList<>();
+        repository.findAll().forEachRemaining(all::add);
+        assertEquals(ids(all), ids(snapshot));
+        assertEquals("id-2", snapshot.get(0).getProductId());
+        assertEquals("id-new", snapshot.get(snapshot.size() - 1).getProductId());
+        assertSame(snapshot, repository.snapshot());
+
+        repository.update("id-2", newProduct("id-2", "Updated", 20));
+        assertNotSame(snapshot, repository.snapshot());
+        assertEquals("Updated", repository.snapshot().get(0).getProductName());
+    }
+
+    @Test
+    void testFindAfterCrossesIntoOverlay() {
+        repository.deleteById("id-9");
+        repository.create(newProduct("id-new", "New", 5));
+        repository.create(newProduct("id-newer", "Newer", 6));
+
+        List<String> expected = new ArrayList<>();
+        expected.add(null);
+        expected.add("id-new");
+        assertEquals(List.of("id-8"), ids(repository.findAfter("id-7", 1)));
+        assertEquals(expected, ids(repository.findAfter("id-8", 2)));
+        assertEquals(List.of("id-newer"), ids(repository.findAfter("id-new", 5)));
+        assertTrue(repository.findAfter("id-9", 5).isEmpty());
+    }
+
+    @Test
+    void testModificationVersions() {
+        long initial = repository.version();
+        assertEquals(0, repository.versionOf("id-1"));
+        assertEquals(-1, repository.versionOf("missing"));
+
+        repository.update("id-1", newProduct("id-1", "Updated", 100));
+        long updated = repository.versionOf("id-1");
+        repository.create(newProduct("id-1", "Created again", 1));
+
+        assertTrue(updated > 0);
+        assertTrue(repository.versionOf("id-1") > updated);
+        assertTrue(repository.version() > initial);
+        assertEquals(0, repository.versionOf("id-2"));
+
+        repository.deleteById("id-1");
+        assertEquals(-1, repository.versionOf("id-1"));
+    }
+}
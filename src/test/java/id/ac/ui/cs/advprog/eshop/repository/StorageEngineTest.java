@@ -0,0 +1,384 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StorageEngineTest {
+
+    @TempDir
+    Path directory;
+
+    private StorageProperties properties(int segmentSize) {
+        StorageProperties properties = new StorageProperties();
+        properties.setDirectory(directory);
+        properties.setSegmentSize(segmentSize);
+        return properties;
+    }
+
+    private Product newProduct(String id, String name, int quantity) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setProductQuantity(quantity);
+        return product;
+    }
+
+    private void assertCrudRoundTrip(CrudRepository<Product, String> repository) {
+        for (int i = 0; i < 200; i++) {
+            repository.create(newProduct("id-" + i, "Product " + i, i));
+        }
+        repository.create(newProduct(null, "Product without ID", 1));
+        repository.update("id-1", newProduct("id-1", "Updated Product", 42));
+        repository.deleteById("id-2");
+
+        assertEquals("Updated Product", repository.findById("id-1").getProductName());
+        assertEquals(42, repository.findById("id-1").getProductQuantity());
+        assertNull(repository.findById("id-2"));
+        assertNull(repository.update("id-2", newProduct("id-2", "Deleted", 1)));
+
+        List<Product> all = new ArrayList<>();
+        repository.findAll().forEachRemaining(all::add);
+        assertEquals(200, all.size());
+        assertEquals("id-0", all.get(0).getProductId());
+        assertEquals("id-1", all.get(1).getProductId());
+        assertEquals("id-3", all.get(2).getProductId());
+        assertNull(all.get(199).getProductId());
+
+        List<Product> snapshot = repository.snapshot();
+        assertEquals(all.size(), snapshot.size());
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(all.get(i).getProductName(), snapshot.get(i).getProductName());
+        }
+        assertEquals("id-3", repository.findPage(2, 1).get(0).getProductId());
+    }
+
+    @Test
+    void testHeapEngine() {
+        CrudRepository<Product, String> repository =
+                StorageEngine.HEAP.open("product", ProductCodec.INSTANCE, properties(1024));
+
+        assertInstanceOf(ConcurrentHeapRepository.class, repository);
+        assertCrudRoundTrip(repository);
+    }
+
+    @Test
+    void testOffHeapEngineAcrossSegments() {
+        CrudRepository<Product, String> repository =
+                StorageEngine.OFF_HEAP.open("product", ProductCodec.INSTANCE, properties(100));
+
+        assertInstanceOf(ByteStoreRepository.class, repository);
+        assertCrudRoundTrip(repository);
+    }
+
+    @Test
+    void testMappedFileEngine() {
+        try (CrudRepository<Product, String> repository =
+                     StorageEngine.MAPPED_FILE.open("product", ProductCodec.INSTANCE, properties(4096))) {
+            assertCrudRoundTrip(repository);
+            assertTrue(Files.exists(directory.resolve("product.dat")));
+        }
+        assertFalse(Files.exists(directory.resolve("product.dat")));
+    }
+
+    @Test
+    void testCompactEngine() {
+        CrudRepository<Product, String> repository =
+                StorageEngine.COMPACT.open("product", ProductCodec.INSTANCE, properties(1024));
+
+        assertInstanceOf(CompactRepository.class, repository);
+        assertCrudRoundTrip(repository);
+    }
+
+    @Test
+    void testCompactEngineStoresUuidsAndRepeatedValuesOnce() {
+        CompactRepository<Car> repository = (CompactRepository<Car>)
+                StorageEngine.COMPACT.open("car", CarCodec.INSTANCE, properties(1024));
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Car car = new Car();
+            car.setCarId(UUID.randomUUID().toString());
+            car.setCarName("Model " + (i % 10));
+            car.setCarColor(i % 2 == 0 ? "Black" : "White");
+            car.setCarQuantity(i);
+            repository.create(car);
+            ids.add(car.getCarId());
+        }
+        repository.deleteById(ids.get(0));
+
+        assertEquals(12, repository.storedStrings());
+        assertEquals(9_999, repository.count());
+        assertNull(repository.findById(ids.get(0)));
+        Car found = repository.findById(ids.get(4_321));
+        assertEquals(ids.get(4_321), found.getCarId());
+        assertEquals("Model 1", found.getCarName());
+        assertEquals("White", found.getCarColor());
+        assertEquals(4_321, found.getCarQuantity());
+        assertNull(repository.findById(ids.get(4_321).toUpperCase()));
+        assertEquals(ids.get(1), repository.findPage(0, 1).get(0).getCarId());
+        assertEquals(ids.get(5_001), repository.findAfter(ids.get(5_000), 1).get(0).getCarId());
+    }
+
+    @Test
+    void testCompactEngineViewsAreDetachedOnWrite() {
+        CrudRepository<Product, String> repository =
+                StorageEngine.COMPACT.open("product", ProductCodec.INSTANCE, properties(1024));
+        repository.create(newProduct("id-1", "Original", 1));
+        List<Product> before = repository.snapshot();
+
+        Product read = repository.findById("id-1");
+        read.setProductQuantity(5);
+        repository.update("id-1", newProduct("id-1", "Updated", 2));
+
+        assertEquals("Original", read.getProductName());
+        assertEquals(5, read.getProductQuantity());
+        assertEquals("Original", before.get(0).getProductName());
+        assertEquals("Updated", repository.findById("id-1").getProductName());
+        assertNotSame(before, repository.snapshot());
+    }
+
+    @Test
+    void testOffHeapColumnsEngine() {
+        try (CrudRepository<Product, String> repository =
+                     StorageEngine.OFF_HEAP_COLUMNS.open("product", ProductCodec.INSTANCE, properties(100))) {
+            assertInstanceOf(CompactRepository.class, repository);
+            assertCrudRoundTrip(repository);
+        }
+    }
+
+    @Test
+    void testOffHeapColumnsEngineUpdatesQuantitiesInPlace() {
+        CompactRepository<Car> repository = (CompactRepository<Car>)
+                StorageEngine.OFF_HEAP_COLUMNS.open("car", CarCodec.INSTANCE, properties(1024));
+        Car car = new Car();
+        car.setCarId(UUID.randomUUID().toString());
+        car.setCarName("Sedan");
+        car.setCarColor("Merah");
+        car.setCarQuantity(3);
+        repository.create(car);
+        Car read = repository.findById(car.getCarId());
+        long before = repository.versionOf(car.getCarId());
+
+        car.setCarQuantity(7);
+        repository.update(car.getCarId(), car);
+
+        assertEquals(2, repository.storedStrings());
+        assertEquals(3, read.getCarQuantity());
+        assertEquals(7, repository.findById(car.getCarId()).getCarQuantity());
+        assertTrue(repository.versionOf(car.getCarId()) > before);
+
+        car.setCarColor("Biru");
+        repository.update(car.getCarId(), car);
+
+        assertEquals(4, repository.storedStrings());
+        assertEquals("Merah", read.getCarColor());
+        assertEquals("Biru", repository.findById(car.getCarId()).getCarColor());
+    }
+
+    @Test
+    void testOffHeapColumnsSnapshotsAreUnchangedByLaterQuantities() {
+        CompactRepository<Product> engine = (CompactRepository<Product>)
+                StorageEngine.OFF_HEAP_COLUMNS.open("product", ProductCodec.INSTANCE, properties(1024));
+        ProductRepository repository = new ProductRepository(engine);
+        repository.create(newProduct("id-1", "Sampo", 5));
+        List<Product> before = repository.snapshot();
+        Product listed = repository.findPage(0, 1).get(0);
+
+        // The row is in a snapshot, so the first update appends; the second rewrites the new row
+        repository.adjustQuantity("id-1", -2);
+        repository.adjustQuantity("id-1", -1);
+
+        assertEquals(2, engine.storedStrings());
+        assertEquals(5, before.get(0).getProductQuantity());
+        assertEquals(5, listed.getProductQuantity());
+        assertEquals(2, repository.findById("id-1").getProductQuantity());
+        assertEquals(2, repository.snapshot().get(0).getProductQuantity());
+    }
+
+    @Test
+    void testCompactEnginesReclaimDeadRows() {
+        assertReclaimsDeadRows(new CompactRepository<>(ProductCodec.INSTANCE, ProductCodec.INSTANCE,
+                () -> new HeapRowStore(1, 1), 4096));
+        assertReclaimsDeadRows(new CompactRepository<>(ProductCodec.INSTANCE, ProductCodec.INSTANCE,
+                () -> new OffHeapRowStore(1, 1, 1024), 4096));
+    }
+
+    private void assertReclaimsDeadRows(CompactRepository<Product> repository) {
+        for (int i = 0; i < 20; i++) {
+            repository.create(newProduct("id-" + i, "Product " + i, i));
+        }
+        long stamp = repository.versionOf("id-0");
+        List<Product> before = repository.snapshot();
+
+        // The first update replaces a row the snapshot holds; the second rewrites the new row in place
+        repository.update("id-19", newProduct("id-19", "Product 19", 100));
+        long dead = repository.deadBytes();
+        repository.update("id-19", newProduct("id-19", "Product 19", 101));
+        assertTrue(dead > 0);
+        assertEquals(dead, repository.deadBytes());
+        repository.deleteById("id-18");
+        assertTrue(repository.deadBytes() > dead);
+
+        for (int i = 0; i < 500; i++) {
+            repository.update("id-1", newProduct("id-1", "Updated " + i, i));
+        }
+
+        assertTrue(repository.deadBytes() < 4096);
+        assertTrue(repository.storedStrings() < 500);
+        assertEquals(stamp, repository.versionOf("id-0"));
+        assertEquals("Updated 499", repository.findById("id-1").getProductName());
+        assertEquals(101, repository.findById("id-19").getProductQuantity());
+        assertNull(repository.findById("id-18"));
+        assertEquals(19, repository.snapshot().size());
+        assertEquals("id-19", repository.findAfter("id-17", 1).get(0).getProductId());
+        assertEquals("Product 1", before.get(1).getProductName());
+        assertEquals(19, before.get(19).getProductQuantity());
+    }
+
+    @Test
+    void testHeapEngineReturnsDetachedCopies() {
+        CrudRepository<Product, String> repository =
+                StorageEngine.HEAP.open("product", ProductCodec.INSTANCE, properties(1024));
+        repository.create(newProduct("id-1", "Original", 1));
+        repository.create(newProduct("id-2", "Second", 2));
+        long version = repository.versionOf("id-1");
+
+        repository.findById("id-1").setProductName("Changed after read");
+        repository.snapshot().get(0).setProductQuantity(5);
+        repository.findAll().next().setProductName("Changed while iterating");
+        repository.findAfter("id-1", 1).get(0).setProductName("Changed after paging");
+        repository.update("id-2", newProduct("id-2", "Updated", 3)).setProductQuantity(9);
+
+        assertEquals("Original", repository.findById("id-1").getProductName());
+        assertEquals(1, repository.snapshot().get(0).getProductQuantity());
+        assertEquals("Updated", repository.findById("id-2").getProductName());
+        assertEquals(3, repository.findById("id-2").getProductQuantity());
+        assertEquals(version, repository.versionOf("id-1"));
+    }
+
+    @Test
+    void testSerializedEngineReturnsDetachedCopies() {
+        CrudRepository<Product, String> repository =
+                StorageEngine.OFF_HEAP.open("product", ProductCodec.INSTANCE, properties(1024));
+        Product product = newProduct("id-1", "Original", 1);
+        repository.create(product);
+
+        product.setProductName("Changed after create");
+        repository.findById("id-1").setProductName("Changed after read");
+
+        assertEquals("Original", repository.findById("id-1").getProductName());
+    }
+
+    @Test
+    void testSerializedEngineCompactsDeadRecords() {
+        ByteStoreRepository<Product> repository =
+                new ByteStoreRepository<>(ProductCodec.INSTANCE, () -> new OffHeapByteStore(1024), 2048);
+        for (int i = 0; i < 20; i++) {
+            repository.create(newProduct("id-" + i, "Product " + i, i));
+        }
+        long stamp = repository.versionOf("id-0");
+        List<Product> before = repository.snapshot();
+        repository.deleteById("id-19");
+        assertTrue(repository.deadBytes() > 0);
+
+        for (int i = 0; i < 200; i++) {
+            repository.update("id-1", newProduct("id-1", "Updated " + i, i));
+        }
+
+        assertTrue(repository.deadBytes() < 2048);
+        assertEquals(stamp, repository.versionOf("id-0"));
+        assertEquals("Updated 199", repository.findById("id-1").getProductName());
+        assertEquals(19, repository.snapshot().size());
+        assertEquals("Product 19", before.get(19).getProductName());
+        assertEquals("Product 1", before.get(1).getProductName());
+    }
+
+    @Test
+    void testRecordLargerThanSegmentIsRejected() {
+        CrudRepository<Product, String> repository =
+                StorageEngine.OFF_HEAP.open("product", ProductCodec.INSTANCE, properties(16));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.create(newProduct("id-1", "A name that does not fit", 1)));
+        Iterator<Product> products = repository.findAll();
+        assertFalse(products.hasNext());
+    }
+
+    private void assertBatchRoundTrip(CrudRepository<Product, String> repository) {
+        repository.create(newProduct("id-0", "Existing", 1));
+        List<Product> batch = new ArrayList<>();
+        for (int i = 1; i <= 50; i++) {
+            batch.add(newProduct("id-" + i, "Product " + i, i));
+        }
+        batch.add(newProduct("id-0", "Created again", 0));
+        repository.createAll(batch);
+
+        assertEquals(51, repository.count());
+        assertEquals("id-1", repository.findPage(0, 1).get(0).getProductId());
+        assertEquals("Created again", repository.findPage(50, 1).get(0).getProductName());
+
+        List<Product> updated = repository.updateAll(Map.of(
+                "id-1", newProduct("id-1", "Updated", 10),
+                "missing", newProduct("missing", "Missing", 1)));
+        assertEquals(1, updated.size());
+        assertEquals("Updated", repository.findById("id-1").getProductName());
+
+        assertEquals(2, repository.deleteAllById(List.of("id-2", "id-3", "missing")));
+        assertEquals(49, repository.count());
+        assertNull(repository.findById("id-3"));
+    }
+
+    @Test
+    void testBatchOperations() {
+        assertBatchRoundTrip(StorageEngine.HEAP.open("product", ProductCodec.INSTANCE, properties(1024)));
+        assertBatchRoundTrip(StorageEngine.OFF_HEAP.open("product", ProductCodec.INSTANCE, properties(1024)));
+        assertBatchRoundTrip(StorageEngine.COMPACT.open("product", ProductCodec.INSTANCE, properties(1024)));
+        assertBatchRoundTrip(StorageEngine.OFF_HEAP_COLUMNS.open("product", ProductCodec.INSTANCE, properties(1024)));
+    }
+
+    private void assertVersions(CrudRepository<Product, String> repository) {
+        long empty = repository.version();
+        repository.create(newProduct("id-1", "Sampo", 1));
+        repository.create(newProduct("id-2", "Sabun", 2));
+        long created = repository.version();
+        long first = repository.versionOf("id-1");
+        long second = repository.versionOf("id-2");
+
+        repository.update("id-1", newProduct("id-1", "Sampo Baru", 3));
+
+        assertTrue(created > empty);
+        assertTrue(repository.version() > created);
+        assertTrue(repository.versionOf("id-1") > first);
+        assertEquals(second, repository.versionOf("id-2"));
+        assertEquals(-1, repository.versionOf("missing"));
+        assertEquals(-1, repository.versionOf(null));
+
+        repository.deleteById("id-2");
+        assertEquals(-1, repository.versionOf("id-2"));
+    }
+
+    @Test
+    void testModificationVersions() {
+        assertVersions(StorageEngine.HEAP.open("product", ProductCodec.INSTANCE, properties(1024)));
+        assertVersions(StorageEngine.OFF_HEAP.open("product", ProductCodec.INSTANCE, properties(1024)));
+        assertVersions(StorageEngine.COMPACT.open("product", ProductCodec.INSTANCE, properties(1024)));
+        assertVersions(StorageEngine.OFF_HEAP_COLUMNS.open("product", ProductCodec.INSTANCE, properties(1024)));
+    }
+}
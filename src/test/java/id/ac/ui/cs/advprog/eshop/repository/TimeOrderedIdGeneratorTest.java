@@ -0,0 +1,86 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeOrderedIdGeneratorTest {
+
+    @Test
+    void testIdsAreVersion7UuidsCarryingTheTimestamp() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> 0x0190_1234_5678L);
+
+        UUID id = UUID.fromString(generator.nextId());
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(0x0190_1234_5678L, id.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    void testIdsFromOneThreadIncreaseWithinTheSameMillisecond() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> 1_000L);
+
+        String previous = generator.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            String next = generator.nextId();
+            assertTrue(next.compareTo(previous) > 0, next + " should sort after " + previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void testIdsKeepIncreasingWhenTheClockGoesBack() {
+        long[] now = {5_000L};
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> now[0]);
+
+        String before = generator.nextId();
+        now[0] = 4_000L;
+
+        assertTrue(generator.nextId().compareTo(before) > 0);
+    }
+
+    @Test
+    void testIdsAreUniqueAcrossThreads() throws Exception {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> 1_000L);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    ids.add(generator.nextId());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(80_000, ids.size());
+    }
+
+    @Test
+    void testRandomStrategyGeneratesVersion4Uuids() {
+        IdGenerator generator = IdStrategy.RANDOM.create();
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(generator.nextId());
+        }
+
+        assertEquals(100, ids.size());
+        assertEquals(4, UUID.fromString(ids.iterator().next()).version());
+    }
+}
@@ -0,0 +1,165 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import id.ac.ui.cs.advprog.eshop.model.ChangeEvent;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
+import id.ac.ui.cs.advprog.eshop.repository.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeFeedTest {
+
+    @Test
+    void testPublishedEventsArePolledInOrder() {
+        ChangeFeed feed = new ChangeFeed(8);
+        ChangeFeed.Cursor cursor = feed.subscribe(feed.nextSequence());
+
+        feed.publish(ChangeEvent.EntityType.PRODUCT, ChangeEvent.Type.CREATED, "p1", null);
+        feed.publish(ChangeEvent.EntityType.CAR, ChangeEvent.Type.DELETED, "c1", null);
+
+        ChangeFeed.Batch batch = cursor.poll(10);
+        assertEquals(0, batch.lost());
+        assertEquals(2, batch.events().size());
+        assertEquals("p1", batch.events().get(0).getEntityId());
+        assertEquals(ChangeEvent.Type.DELETED, batch.events().get(1).getType());
+        assertTrue(cursor.poll(10).isEmpty());
+    }
+
+    @Test
+    void testPollStopsAtMax() {
+        ChangeFeed feed = new ChangeFeed(8);
+        ChangeFeed.Cursor cursor = feed.subscribe(1);
+        for (int i = 0; i < 5; i++) {
+            feed.publish(ChangeEvent.EntityType.PRODUCT, ChangeEvent.Type.UPDATED, "p" + i, null);
+        }
+
+        assertEquals(3, cursor.poll(3).events().size());
+        assertEquals(4, cursor.position());
+        assertEquals(2, cursor.poll(3).events().size());
+    }
+
+    @Test
+    void testSlowCursorIsToldHowManyEventsItLost() {
+        ChangeFeed feed = new ChangeFeed(4);
+        ChangeFeed.Cursor cursor = feed.subscribe(1);
+        for (int i = 1; i <= 10; i++) {
+            feed.publish(ChangeEvent.EntityType.PRODUCT, ChangeEvent.Type.UPDATED, "p" + i, null);
+        }
+
+        ChangeFeed.Batch batch = cursor.poll(10);
+        assertEquals(6, batch.lost());
+        assertEquals(4, batch.events().size());
+        assertEquals(7, batch.events().get(0).getSequence());
+    }
+
+    @Test
+    void testAwaitTimesOutWhenNothingIsPublished() throws InterruptedException {
+        ChangeFeed feed = new ChangeFeed(4);
+
+        assertTrue(feed.subscribe(1).await(10, Duration.ofMillis(20)).isEmpty());
+    }
+
+    @Test
+    void testAwaitWakesOnPublish() throws Exception {
+        ChangeFeed feed = new ChangeFeed(4);
+        ChangeFeed.Cursor cursor = feed.subscribe(1);
+        Thread publisher = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                return;
+            }
+            feed.publish(ChangeEvent.EntityType.CAR, ChangeEvent.Type.CREATED, "c1", null);
+        });
+        publisher.start();
+
+        ChangeFeed.Batch batch = cursor.await(10, Duration.ofSeconds(10));
+        publisher.join();
+        assertEquals(1, batch.events().size());
+    }
+
+    @Test
+    void testConcurrentPublishersLoseNothingWithinCapacity() throws Exception {
+        ChangeFeed feed = new ChangeFeed(1 << 12);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    feed.publish(ChangeEvent.EntityType.PRODUCT, ChangeEvent.Type.UPDATED, "p", null);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        ChangeFeed.Cursor cursor = feed.subscribe(1);
+        List<ChangeEvent> events = new ArrayList<>();
+        ChangeFeed.Batch batch;
+        while (!(batch = cursor.poll(256)).isEmpty()) {
+            assertEquals(0, batch.lost());
+            events.addAll(batch.events());
+        }
+        assertEquals(4000, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i + 1, events.get(i).getSequence());
+        }
+    }
+
+    @Test
+    void testConcurrentWritesToOneProductAreFedInCommitOrder() throws Exception {
+        ChangeFeed feed = new ChangeFeed(1 << 16);
+        ProductRepository repository = new ProductRepository();
+        ProductService service = new ProductServiceImpl(repository, new TimeOrderedIdGenerator(), feed);
+        Product product = new Product();
+        product.setProductId("p1");
+        product.setProductName("Sampo");
+        product.setProductQuantity(0);
+        service.create(product);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            int writer = thread;
+            executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    Product update = new Product();
+                    update.setProductId("p1");
+                    update.setProductName("Sampo " + writer + "-" + i);
+                    update.setProductQuantity(i);
+                    service.update(update);
+                    service.increaseQuantity("p1", 1);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        ChangeFeed.Cursor cursor = feed.subscribe(1);
+        ChangeEvent last = null;
+        ChangeFeed.Batch batch;
+        while (!(batch = cursor.poll(1024)).isEmpty()) {
+            assertEquals(0, batch.lost());
+            for (ChangeEvent event : batch.events()) {
+                last = event;
+            }
+        }
+        Product stored = service.findById("p1");
+        Product fed = (Product) last.getEntity();
+        assertEquals(stored.getProductName(), fed.getProductName());
+        assertEquals(stored.getProductQuantity(), fed.getProductQuantity());
+    }
+
+    @Test
+    void testCapacityMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new ChangeFeed(100));
+    }
+}
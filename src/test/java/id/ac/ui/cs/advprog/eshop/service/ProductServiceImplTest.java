@@ -2,22 +2,28 @@ package id.ac.ui.cs.advprog.eshop.service;
 
 import id.ac.ui.cs.advprog.eshop.model.Product;
 import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
+import id.ac.ui.cs.advprog.eshop.repository.TimeOrderedIdGenerator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.never;
@@ -29,13 +35,13 @@ class ProductServiceImplTest {
     @Mock
     private ProductRepository productRepository;
 
-    @InjectMocks
     private ProductServiceImpl productService;
 
     private Product product;
 
     @BeforeEach
     void setUp() {
+        productService = new ProductServiceImpl(productRepository, new TimeOrderedIdGenerator(), new ChangeFeed(1 << 10));
         product = new Product();
         product.setProductId("eb558e9f-1c39-460e-8860-71af6af63bd6");
         product.setProductName("Sampo Cap Bambang");
@@ -93,15 +99,51 @@ class ProductServiceImplTest {
         Product product2 = new Product();
         product2.setProductId("a0f9de45-90b1-437d-a0bf-d0821dde9096");
 
-        List<Product> productList = Arrays.asList(product, product2);
-        Iterator<Product> iterator = productList.iterator();
-
-        when(productRepository.findAll()).thenReturn(iterator);
+        List<Product> snapshot = List.of(product, product2);
+        when(productRepository.snapshot()).thenReturn(snapshot);
 
         List<Product> result = productService.findAll();
 
         assertEquals(2, result.size());
-        verify(productRepository).findAll();
+        assertSame(snapshot, result);
+        verify(productRepository).snapshot();
+    }
+
+    @Test
+    void testIterateAllDoesNotCopy() {
+        Iterator<Product> iterator = Arrays.asList(product).iterator();
+        when(productRepository.findAll()).thenReturn(iterator);
+
+        assertSame(iterator, productService.iterateAll());
+    }
+
+    @Test
+    void testFindPage() {
+        List<Product> page = Arrays.asList(product);
+        when(productRepository.findPage(40, 20)).thenReturn(page);
+
+        List<Product> result = productService.findPage(2, 20);
+
+        assertEquals(page, result);
+        verify(productRepository).findPage(40, 20);
+    }
+
+    @Test
+    void testFindPageWithInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> productService.findPage(-1, 20));
+        assertThrows(IllegalArgumentException.class, () -> productService.findPage(0, 0));
+        verify(productRepository, never()).findPage(anyLong(), anyInt());
+    }
+
+    @Test
+    void testFindAfter() {
+        List<Product> page = Arrays.asList(product);
+        when(productRepository.findAfter("cursor-id", 20)).thenReturn(page);
+
+        List<Product> result = productService.findAfter("cursor-id", 20);
+
+        assertEquals(page, result);
+        verify(productRepository).findAfter("cursor-id", 20);
     }
 
     @Test
@@ -212,6 +254,21 @@ class ProductServiceImplTest {
         verify(productRepository, never()).update(any());
     }
 
+    @Test
+    void testUpdateProductWithNameTooLongToStore() {
+        Product updateProduct = new Product();
+        updateProduct.setProductId("test-id");
+        updateProduct.setProductName("\u20ac".repeat(30000));
+        updateProduct.setProductQuantity(100);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            productService.update(updateProduct);
+        });
+
+        assertEquals("Product ID and name cannot be longer than 64 KB", exception.getMessage());
+        verify(productRepository, never()).update(any());
+    }
+
     @Test
     void testUpdateProductNotFound() {
         when(productRepository.update(product)).thenReturn(null);
@@ -230,4 +287,102 @@ class ProductServiceImplTest {
 
         verify(productRepository).deleteById(product.getProductId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCreateAllAssignsIdsAndCreatesInOnePass() {
+        Product withoutId = new Product();
+        withoutId.setProductName("Sabun Cap Bambang");
+        withoutId.setProductQuantity(5);
+        List<Product> products = List.of(product, withoutId);
+        when(productRepository.createAll(products)).thenReturn(products);
+
+        List<Product> result = productService.createAll(products);
+
+        assertSame(products, result);
+        assertEquals("eb558e9f-1c39-460e-8860-71af6af63bd6", product.getProductId());
+        assertNotNull(withoutId.getProductId());
+    }
+
+    @Test
+    void testCreateAllRejectsWholeBatchWhenOneProductIsInvalid() {
+        Product invalid = new Product();
+        invalid.setProductName(" ");
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> productService.createAll(List.of(product, invalid)));
+
+        assertEquals("Product at index 1: Product name cannot be empty", exception.getMessage());
+        verify(productRepository, never()).createAll(anyList());
+    }
+
+    @Test
+    void testUpdateAllKeysProductsById() {
+        when(productRepository.updateAll(Map.of(product.getProductId(), product))).thenReturn(List.of(product));
+
+        List<Product> result = productService.updateAll(List.of(product));
+
+        assertEquals(List.of(product), result);
+    }
+
+    @Test
+    void testUpdateAllRequiresIds() {
+        product.setProductId(null);
+
+        assertThrows(IllegalArgumentException.class, () -> productService.updateAll(List.of(product)));
+        verify(productRepository, never()).updateAll(anyMap());
+    }
+
+    @Test
+    void testDeleteAllById() {
+        List<String> productIds = List.of(product.getProductId(), "missing");
+        when(productRepository.deleteAllById(productIds)).thenReturn(1);
+
+        assertEquals(1, productService.deleteAllById(productIds));
+    }
+
+    @Test
+    void testFindByNamePrefix() {
+        List<Product> products = List.of(product);
+        when(productRepository.findByNamePrefix("Sampo", 10)).thenReturn(products);
+
+        assertSame(products, productService.findByNamePrefix("Sampo", 10));
+    }
+
+    @Test
+    void testFindByNamePrefixInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> productService.findByNamePrefix(" ", 10));
+        assertThrows(IllegalArgumentException.class, () -> productService.findByNamePrefix("Sampo", 0));
+        verify(productRepository, never()).findByNamePrefix(any(), anyInt());
+    }
+
+    @Test
+    void testSearch() {
+        List<Product> products = List.of(product);
+        when(productRepository.search("sampo cap", 10)).thenReturn(products);
+
+        assertSame(products, productService.search("sampo cap", 10));
+    }
+
+    @Test
+    void testSearchInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> productService.search("", 10));
+        assertThrows(IllegalArgumentException.class, () -> productService.search("sampo", 0));
+        verify(productRepository, never()).search(any(), anyInt());
+    }
+
+    @Test
+    void testIncreaseAndDecreaseQuantity() {
+        when(productRepository.adjustQuantity("id-1", 3)).thenReturn(product);
+        when(productRepository.adjustQuantity("id-1", -2)).thenReturn(product);
+
+        assertSame(product, productService.increaseQuantity("id-1", 3));
+        assertSame(product, productService.decreaseQuantity("id-1", 2));
+    }
+
+    @Test
+    void testAdjustQuantityRejectsNonPositiveAmount() {
+        assertThrows(IllegalArgumentException.class, () -> productService.increaseQuantity("id-1", 0));
+        assertThrows(IllegalArgumentException.class, () -> productService.decreaseQuantity("id-1", -1));
+        verify(productRepository, never()).adjustQuantity(any(), anyInt());
+    }
+}
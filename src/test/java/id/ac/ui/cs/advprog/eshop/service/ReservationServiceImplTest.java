@@ -0,0 +1,160 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.model.Reservation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationServiceImplTest {
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private CarService carService;
+
+    private TimingWheel wheel;
+
+    private ReservationServiceImpl reservationService;
+
+    @BeforeEach
+    void setUp() {
+        ReservationProperties properties = new ReservationProperties();
+        properties.setTick(Duration.ofSeconds(1));
+        wheel = new TimingWheel(properties.getTick(), 8);
+        reservationService = new ReservationServiceImpl(productService, carService, properties, wheel,
+                Runnable::run, false);
+    }
+
+    private void tick(int times) {
+        for (int i = 0; i < times; i++) {
+            wheel.tick();
+        }
+    }
+
+    @Test
+    void testReserveTakesStockUntilConfirmed() {
+        when(productService.decreaseQuantity("id-1", 3)).thenReturn(new Product());
+
+        Reservation reservation = reservationService.reserve(
+                Reservation.ItemType.PRODUCT, "id-1", 3, Duration.ofSeconds(5));
+
+        assertNotNull(reservation.getReservationId());
+        assertEquals(Reservation.Status.PENDING, reservation.getStatus());
+        assertNotNull(reservationService.findById(reservation.getReservationId()));
+
+        Reservation confirmed = reservationService.confirm(reservation.getReservationId());
+        tick(10);
+
+        assertEquals(Reservation.Status.CONFIRMED, confirmed.getStatus());
+        assertNull(reservationService.findById(reservation.getReservationId()));
+        verify(productService, never()).increaseQuantity(any(), anyInt());
+    }
+
+    @Test
+    void testReleaseReturnsStock() {
+        when(carService.decreaseQuantity("car-1", 2)).thenReturn(new Car());
+        Reservation reservation = reservationService.reserve(Reservation.ItemType.CAR, "car-1", 2, null);
+
+        Reservation released = reservationService.release(reservation.getReservationId());
+
+        assertEquals(Reservation.Status.RELEASED, released.getStatus());
+        verify(carService).increaseQuantity("car-1", 2);
+        assertNull(reservationService.confirm(reservation.getReservationId()));
+    }
+
+    @Test
+    void testUnsettledHoldExpires() {
+        when(productService.decreaseQuantity("id-1", 1)).thenReturn(new Product());
+        Reservation reservation = reservationService.reserve(
+                Reservation.ItemType.PRODUCT, "id-1", 1, Duration.ofSeconds(2));
+
+        tick(1);
+        assertNotNull(reservationService.findById(reservation.getReservationId()));
+        tick(1);
+
+        assertNull(reservationService.findById(reservation.getReservationId()));
+        verify(productService).increaseQuantity("id-1", 1);
+    }
+
+    @Test
+    void testExpiryIsHandedOffTheTickingThread() {
+        ReservationProperties properties = new ReservationProperties();
+        properties.setTick(Duration.ofSeconds(1));
+        List<Runnable> queued = new ArrayList<>();
+        ReservationServiceImpl service = new ReservationServiceImpl(productService, carService, properties, wheel,
+                queued::add, false);
+        when(productService.decreaseQuantity("id-1", 1)).thenReturn(new Product());
+        Reservation reservation = service.reserve(Reservation.ItemType.PRODUCT, "id-1", 1, Duration.ofSeconds(1));
+
+        tick(1);
+        assertEquals(1, queued.size());
+        verify(productService, never()).increaseQuantity(any(), anyInt());
+
+        queued.forEach(Runnable::run);
+        assertNull(service.findById(reservation.getReservationId()));
+        verify(productService).increaseQuantity("id-1", 1);
+    }
+
+    @Test
+    void testCloseReleasesPendingHolds() {
+        when(productService.decreaseQuantity("id-1", 2)).thenReturn(new Product());
+        when(carService.decreaseQuantity("car-1", 1)).thenReturn(new Car());
+        Reservation pending = reservationService.reserve(Reservation.ItemType.PRODUCT, "id-1", 2, null);
+        Reservation confirmed = reservationService.reserve(Reservation.ItemType.CAR, "car-1", 1, null);
+        reservationService.confirm(confirmed.getReservationId());
+
+        reservationService.close();
+
+        assertNull(reservationService.findById(pending.getReservationId()));
+        verify(productService).increaseQuantity("id-1", 2);
+        verify(carService, never()).increaseQuantity(any(), anyInt());
+    }
+
+    @Test
+    void testReserveMissingItem() {
+        when(productService.decreaseQuantity("missing", 1)).thenReturn(null);
+
+        assertNull(reservationService.reserve(Reservation.ItemType.PRODUCT, "missing", 1, null));
+    }
+
+    @Test
+    void testReserveInsufficientStock() {
+        when(productService.decreaseQuantity("id-1", 5)).thenThrow(new IllegalStateException("Insufficient quantity"));
+
+        assertThrows(IllegalStateException.class,
+                () -> reservationService.reserve(Reservation.ItemType.PRODUCT, "id-1", 5, null));
+    }
+
+    @Test
+    void testReserveInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> reservationService.reserve(null, "id-1", 1, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> reservationService.reserve(Reservation.ItemType.PRODUCT, "", 1, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> reservationService.reserve(Reservation.ItemType.PRODUCT, "id-1", 0, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> reservationService.reserve(Reservation.ItemType.PRODUCT, "id-1", 1, Duration.ofHours(2)));
+        verify(productService, never()).decreaseQuantity(any(), anyInt());
+    }
+}
@@ -0,0 +1,62 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ServiceMetricsTest {
+
+    private MeterRegistry registry;
+    private ServiceMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new ServiceMetrics("product", registry);
+    }
+
+    @Test
+    void testCallIsTimed() {
+        ServiceMetrics.Operation operation = metrics.operation("create");
+
+        assertEquals("done", operation.call(() -> "done"));
+        operation.run(() -> { });
+
+        assertEquals(2, registry.get("eshop.service.calls")
+                .tag("entity", "product").tag("operation", "create").timer().count());
+    }
+
+    @Test
+    void testValidationFailureIsCountedAndRethrown() {
+        ServiceMetrics.Operation operation = metrics.operation("update");
+
+        assertThrows(IllegalArgumentException.class, () -> operation.call(() -> {
+            throw new IllegalArgumentException("Product name cannot be empty");
+        }));
+        assertThrows(IllegalStateException.class, () -> operation.call(() -> {
+            throw new IllegalStateException("Not enough stock");
+        }));
+
+        assertEquals(1.0, registry.get("eshop.service.validation.failures")
+                .tag("operation", "update").counter().count());
+        assertEquals(2, registry.get("eshop.service.calls").tag("operation", "update").timer().count());
+    }
+
+    @Test
+    void testReturnedEntitiesAreRecorded() {
+        ServiceMetrics.Operation operation = metrics.returningEntities("findAll");
+
+        operation.call(() -> List.of("a", "b", "c"));
+        operation.call(List::of);
+
+        var returned = registry.get("eshop.service.entities").tag("operation", "findAll").summary();
+        assertEquals(2, returned.count());
+        assertEquals(3.0, returned.totalAmount());
+    }
+}
@@ -0,0 +1,96 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    private static void tick(TimingWheel wheel, int times) {
+        for (int i = 0; i < times; i++) {
+            wheel.tick();
+        }
+    }
+
+    @Test
+    void testTasksRunWhenTheirTickComes() {
+        TimingWheel wheel = new TimingWheel(Duration.ofMillis(10), 8);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(() -> fired.add("a"), Duration.ofMillis(10));
+        wheel.schedule(() -> fired.add("b"), Duration.ofMillis(25));
+
+        tick(wheel, 1);
+        assertEquals(List.of("a"), fired);
+        tick(wheel, 1);
+        assertEquals(List.of("a"), fired);
+        tick(wheel, 1);
+        assertEquals(List.of("a", "b"), fired);
+    }
+
+    @Test
+    void testDelaysLongerThanOneRevolution() {
+        TimingWheel wheel = new TimingWheel(Duration.ofMillis(1), 4);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(() -> fired.add("late"), Duration.ofMillis(10));
+
+        tick(wheel, 9);
+        assertTrue(fired.isEmpty());
+        tick(wheel, 1);
+        assertEquals(List.of("late"), fired);
+        tick(wheel, 8);
+        assertEquals(1, fired.size());
+    }
+
+    @Test
+    void testCancelledTasksNeverRun() {
+        TimingWheel wheel = new TimingWheel(Duration.ofMillis(1), 4);
+        List<String> fired = new ArrayList<>();
+        TimingWheel.Timeout beforeFiling = wheel.schedule(() -> fired.add("a"), Duration.ofMillis(2));
+        TimingWheel.Timeout afterFiling = wheel.schedule(() -> fired.add("b"), Duration.ofMillis(3));
+
+        assertTrue(beforeFiling.cancel());
+        tick(wheel, 1);
+        assertTrue(afterFiling.cancel());
+        assertFalse(afterFiling.cancel());
+        tick(wheel, 4);
+
+        assertTrue(fired.isEmpty());
+    }
+
+    @Test
+    void testFailingTaskDoesNotStopTheBucket() {
+        TimingWheel wheel = new TimingWheel(Duration.ofMillis(1), 4);
+        List<String> fired = new ArrayList<>();
+        TimingWheel.Timeout failing = wheel.schedule(() -> {
+            throw new IllegalStateException("boom");
+        }, Duration.ofMillis(1));
+        wheel.schedule(() -> fired.add("after"), Duration.ofMillis(1));
+
+        Thread current = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = current.getUncaughtExceptionHandler();
+        List<Throwable> reported = new ArrayList<>();
+        current.setUncaughtExceptionHandler((thread, e) -> reported.add(e));
+        try {
+            tick(wheel, 1);
+        } finally {
+            current.setUncaughtExceptionHandler(handler);
+        }
+
+        assertEquals(List.of("after"), fired);
+        assertEquals(1, reported.size());
+        assertFalse(failing.cancel());
+    }
+
+    @Test
+    void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel(Duration.ZERO, 8));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel(Duration.ofMillis(1), 6));
+    }
+}
@@ -0,0 +1,178 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WritePipelineTest {
+
+    private final Map<String, String> store = new ConcurrentHashMap<>();
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private final List<Integer> updateBatchSizes = new ArrayList<>();
+    private final CountDownLatch writerBlocked = new CountDownLatch(1);
+    private final CountDownLatch releaseWriter = new CountDownLatch(1);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private WritePipeline<String> pipeline;
+
+    @AfterEach
+    void tearDown() {
+        releaseWriter.countDown();
+        pipeline.close();
+    }
+
+    @Test
+    void testQueuedCreatesAreCommittedTogether() {
+        pipeline = blockingPipeline();
+        CompletableFuture<String> first = pipeline.create("first");
+        awaitWriterBlocked();
+        List<CompletableFuture<String>> queued = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            queued.add(pipeline.create("entity" + i));
+        }
+        releaseWriter.countDown();
+
+        assertEquals("first", first.join());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("entity" + i, queued.get(i).join());
+        }
+        assertEquals(List.of(1, 5), batchSizes);
+        assertEquals(6, store.size());
+        assertEquals(2, registry.get("eshop.write.pipeline.batch.size").summary().count());
+    }
+
+    @Test
+    void testInvalidMutationFailsAloneWhenItsBatchIsRetried() {
+        pipeline = blockingPipeline();
+        pipeline.create("first");
+        awaitWriterBlocked();
+        CompletableFuture<String> valid = pipeline.create("valid");
+        CompletableFuture<String> invalid = pipeline.create("");
+        CompletableFuture<String> alsoValid = pipeline.create("also-valid");
+        releaseWriter.countDown();
+
+        assertEquals("valid", valid.join());
+        assertEquals("also-valid", alsoValid.join());
+        CompletionException failure = assertThrows(CompletionException.class, invalid::join);
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    void testUpdateOfMissingEntityCompletesWithNull() {
+        pipeline = blockingPipeline();
+        releaseWriter.countDown();
+        pipeline.create("kept").join();
+
+        assertEquals("kept", pipeline.update("kept").join());
+        assertNull(pipeline.update("missing").join());
+    }
+
+    @Test
+    void testCloseAppliesQueuedMutationsAndRejectsNewOnes() throws InterruptedException {
+        pipeline = blockingPipeline();
+        pipeline.create("first");
+        awaitWriterBlocked();
+        CompletableFuture<String> queued = pipeline.create("queued");
+        Thread closer = new Thread(pipeline::close);
+        closer.start();
+        releaseWriter.countDown();
+        closer.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertEquals("queued", queued.getNow(null));
+        assertThrows(IllegalStateException.class, () -> pipeline.create("late"));
+    }
+
+    @Test
+    void testErrorFailsItsBatchWithoutStoppingTheWriter() {
+        pipeline = blockingPipeline();
+        releaseWriter.countDown();
+
+        CompletionException failure = assertThrows(CompletionException.class, () -> pipeline.create("error").join());
+        assertInstanceOf(Error.class, failure.getCause());
+        assertEquals("after", pipeline.create("after").join());
+    }
+
+    @Test
+    void testUncommittedWriteTimesOut() {
+        pipeline = new WritePipeline<>("test", id -> id, this::createAll, this::updateAll, 64, 64,
+                Duration.ofMillis(50), registry);
+        pipeline.create("first");
+        awaitWriterBlocked();
+
+        CompletionException failure = assertThrows(CompletionException.class, () -> pipeline.create("late").join());
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+    }
+
+    @Test
+    void testUpdatesOfOneIdAreNotCollapsed() {
+        pipeline = blockingPipeline();
+        pipeline.create("first");
+        awaitWriterBlocked();
+        store.put("a", "a");
+        store.put("b", "b");
+        List<CompletableFuture<String>> updates = List.of(
+                pipeline.update("a"), pipeline.update("b"), pipeline.update("a"));
+        releaseWriter.countDown();
+
+        updates.forEach(update -> assertEquals(update == updates.get(1) ? "b" : "a", update.join()));
+        assertEquals(List.of(2, 1), updateBatchSizes);
+    }
+
+    private WritePipeline<String> blockingPipeline() {
+        return new WritePipeline<>("test", id -> id, this::createAll, this::updateAll, 64, 64,
+                Duration.ofSeconds(10), registry);
+    }
+
+    private List<String> createAll(List<String> ids) {
+        if (writerBlocked.getCount() > 0) {
+            writerBlocked.countDown();
+            try {
+                releaseWriter.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (String id : ids) {
+            if (id.equals("error")) {
+                throw new Error("Simulated failure");
+            }
+            if (id.isEmpty()) {
+                throw new IllegalArgumentException("ID cannot be empty");
+            }
+        }
+        batchSizes.add(ids.size());
+        ids.forEach(id -> store.put(id, id));
+        return ids;
+    }
+
+    private List<String> updateAll(List<String> ids) {
+        updateBatchSizes.add(ids.size());
+        return ids.stream().filter(store::containsKey).toList();
+    }
+
+    private void awaitWriterBlocked() {
+        try {
+            assertTrue(writerBlocked.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+}